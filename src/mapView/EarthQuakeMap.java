@@ -1,31 +1,56 @@
 package mapView;
 
 //Java utilities libraries
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ForkJoinPool;
 
 //Unfolding libraries
 import de.fhpotsdam.unfolding.UnfoldingMap;
 import de.fhpotsdam.unfolding.data.Feature;
-import de.fhpotsdam.unfolding.data.GeoJSONReader;
 import de.fhpotsdam.unfolding.data.PointFeature;
 import de.fhpotsdam.unfolding.geo.Location;
 import de.fhpotsdam.unfolding.marker.AbstractMarker;
-import de.fhpotsdam.unfolding.marker.AbstractShapeMarker;
 import de.fhpotsdam.unfolding.marker.Marker;
-import de.fhpotsdam.unfolding.marker.MultiMarker;
 import de.fhpotsdam.unfolding.providers.Google;
 import de.fhpotsdam.unfolding.utils.MapUtils;
+import de.fhpotsdam.unfolding.utils.ScreenPosition;
 import markers.CityMarker;
 import markers.CommonMarker;
 import markers.EarthQuakeMarker;
+import markers.EarthquakeBatchRenderer;
+import markers.EarthquakeClusterMarker;
+import markers.EarthquakeLegend;
+import markers.EarthquakeStore;
 import markers.LandQuakeMarker;
 import markers.OceanQuakeMarker;
 //Parsing library
-import parsing.ParseFeed;
+import parsing.DatasetSnapshot;
+import parsing.EarthquakeFeedUpdater;
+import parsing.EarthquakeFeedUpdater.FeedUpdate;
+import parsing.FlatFeatureCollection;
+import parsing.GeoJSONStreamReader;
+import spatial.CountryGrid;
+import spatial.CountryLocator;
+import spatial.CountryLookup;
+import spatial.ParallelCountryClassifier;
+import spatial.QuakeClusterIndex;
+import spatial.ScreenHitGrid;
+import spatial.SphereKdTree;
+import tiles.CachingMapProvider;
 //Processing library
 import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PImage;
+import processing.event.KeyEvent;
+import processing.event.MouseEvent;
 
 /**
  * This class builds a Google Map that shows earthquake and city data
@@ -37,49 +62,148 @@ public class EarthQuakeMap extends PApplet{
 	private static final long serialVersionUID = 6090104746129831548L;
 	
 	private UnfoldingMap map;
+	// Area of the map in the window
+	private final static int MAP_LEFT = 200;
+	private final static int MAP_TOP = 10;
+	private final static int MAP_WIDTH = 950;
+	private final static int MAP_HEIGHT = 620;
+	// The tiles and markers as drawn last time, reused while the map does not move and the markers do not change
+	private PImage mapLayer;
+	// The transform of the map when it was drawn last, the copy is made at this transform
+	private double mapLayerOffsetX;
+	private double mapLayerOffsetY;
+	private double mapLayerScale;
+	private double mapLayerAngle;
+	// Screen positions of what is drawn on top of the map, they only change when the map is drawn
+	// again or the mouse selects another marker, so the frames in between do not ask the map for them
+	private float selectedX;
+	private float selectedY;
+	private float clickedX;
+	private float clickedY;
+	private float[] impactedCityXs = new float[0];
+	private float[] impactedCityYs = new float[0];
+	private boolean mapLayerDirty = true;
+	// The legend never changes, it is drawn once
+	private PGraphics legendLayer;
 	private final static String earthQuakeURL = "http://earthquake.usgs.gov/earthquakes/feed/v1.0/summary/2.5_week.atom";
-	private List<PointFeature> earthquakeFeature;
 	private List<Marker> earthquakeMarkers;
+	// Columns of all earthquakes, the earthquake markers are views on its rows
+	private EarthquakeStore earthquakeStore;
 	private List<Marker> countryMarkers;
+	// Finds the country marker of a location, with an R-tree over the country polygons
+	private CountryLocator countryLocator;
+	// Raster of the countries, only quakes near a border need the exact test. 0 cells per degree turns it off
+	private final static int COUNTRY_GRID_CELLS_PER_DEGREE = 4;
+	private CountryGrid countryGrid;
 	private List<Marker> cityMarkers;
-	private List<Feature> countryFeature;
+	// k-d tree over the city locations and the cities in the impact circle of the clicked quake
+	private SphereKdTree cityIndex;
+	private int[] cityCandidates;
+	private List<Marker> impactedCities = new ArrayList<Marker>();
+	// Screen grid of the earthquake markers followed by the city markers, for hover and click.
+	// It is rebuilt when the map moves or the markers change, hover is looked up once per frame.
+	private final static float HIT_GRID_CELL_SIZE = 32;
+	private final static Location HIT_GRID_REFERENCE = new Location(0, 0);
+	private ScreenHitGrid hitGrid;
+	private List<Marker> hitGridMarkers;
+	private int hitGridQuakeCount;
+	// Whether the grid holds the clusters in view instead of every quake
+	private boolean hitGridClustered;
+	private float hitGridZoom;
+	private ScreenPosition hitGridReference;
+	private boolean hitGridDirty = true;
+	private boolean hoverPending;
+	// The earthquake markers are not added to the map, they are drawn as clusters or in style groups
+	private EarthquakeBatchRenderer earthquakeRenderer = new EarthquakeBatchRenderer();
+	// Clusters of the earthquakes for every zoom level, rebuilt when the markers change
+	private QuakeClusterIndex clusterIndex;
+	private List<Marker> clusterMarkers;
+	private boolean clusterIndexDirty = true;
+	private int[] visibleClusters = new int[0];
+	private EarthquakeClusterMarker clusterMarker = new EarthquakeClusterMarker();
+	// Zoom levels a click on a cluster zooms in, so it splits up
+	private final static int CLUSTER_CLICK_ZOOM = 2;
+	// Country outlines in flat coordinate arrays, with the bounding box of every country
+	private FlatFeatureCollection countryFeature;
 	private List<Feature> cityFeature;
 	private String cityDataFile = "city-data.json";
 	private String countryDataFile = "countries.geo.json";
+	private String snapshotFile = "cache/earthquake-map.snapshot";
+	// Key of the snapshot, and the snapshot made after the last feed update waiting to be written
+	private byte[] snapshotKey;
+	private volatile DatasetSnapshot pendingSnapshot;
+	// Snapshots are written one at a time, they share the temporary file
+	private final Object snapshotLock = new Object();
+	private String countryGridFile = "cache/country-grid.bin";
+	// Tiles are cached in memory and on disk, with the neighbours of every shown tile prefetched
+	private String tileCacheFolder = "cache/tiles";
+	private final static int MEMORY_TILES = 256;
+	private final static long DISK_TILE_BYTES = 128L << 20;
+	private CachingMapProvider tileProvider;
 	private CommonMarker lastSelected;
 	private CommonMarker lastClicked;
+	// Refresh the earthquake feed every 5 minutes, only changed entries are patched into the markers
+	private final static int REFRESH_INTERVAL = 5 * 60 * 1000;
+	private EarthquakeFeedUpdater feedUpdater;
+	private HashMap<String, Marker> earthquakeMarkersById;
+	private int lastRefreshTime;
+	// Draw only when something changed instead of 60 times a second. Input events, feed updates
+	// and a timer for the next refresh ask for a frame, moving maps and loading tiles keep drawing.
+	private final static boolean REDRAW_ON_DEMAND = true;
+	private Timer refreshTimer;
+	private volatile boolean refreshing;
+	private volatile FeedUpdate pendingUpdate;
 	
 	public void setup() {
 		// Set the size of the windows
 		size(1200, 650, OPENGL);
 		// Initialize the map
-		map = new UnfoldingMap(this, 200, 10, 950, 620, new Google.GoogleMapProvider());
+		tileProvider = new CachingMapProvider(new Google.GoogleMapProvider(), new File(sketchPath(tileCacheFolder)),
+				MEMORY_TILES, DISK_TILE_BYTES);
+		map = new UnfoldingMap(this, MAP_LEFT, MAP_TOP, MAP_WIDTH, MAP_HEIGHT, tileProvider);
 		// Low zoom level that we can see a lot
 		map.zoomLevel(0);
 		// Zoom, pan and click event
 		MapUtils.createDefaultEventDispatcher(this, map);
 		
-		// Read data from earthquake feed
-		earthquakeFeature = ParseFeed.parseEarthquake(this, earthQuakeURL);
-		
 		// Read country data from RSS feed;
-		countryFeature = GeoJSONReader.loadData(this, countryDataFile);
-		countryMarkers = MapUtils.createSimpleMarkers(countryFeature);
+		countryFeature = GeoJSONStreamReader.load(this, countryDataFile);
+		countryMarkers = countryFeature.createMarkers();
+		countryLocator = new CountryLocator(countryMarkers);
+		loadCountryGrid();
+		
+		// Read the earthquake and city data and create the earthquake markers, from the snapshot
+		// if the input files did not change since it was written.
+		// The updater remembers the entries so later refreshes only bring the changes.
+		feedUpdater = new EarthquakeFeedUpdater(this, earthQuakeURL);
+		earthquakeStore = new EarthquakeStore();
+		earthquakeMarkers = new ArrayList<Marker>();
+		earthquakeMarkersById = new HashMap<String, Marker>();
+		loadDatasets();
+		lastRefreshTime = millis();
 		
-		// Read city data from RSS feed;
-		cityFeature = GeoJSONReader.loadData(this, cityDataFile);
 		cityMarkers = new ArrayList<Marker>();
 		for(Feature feature : cityFeature) {
 			cityMarkers.add(new CityMarker((PointFeature) feature));
 		}
+		buildCityIndex();
 		
-		// Create earthquake markers according to the data in List<PointFeature>
-		earthquakeMarkers = new ArrayList<Marker>();
-		createEarthquakeMarker(earthquakeFeature);
+		// The city markers are not added to the map, drawMapLayer() draws them over the quakes
+		legendLayer = createLegend();
 		
-		// Add markers to the map
-		map.addMarkers(earthquakeMarkers);
-		map.addMarkers(cityMarkers);
+		if(REDRAW_ON_DEMAND) {
+			noLoop();
+			registerMethod("mouseEvent", this);
+			registerMethod("keyEvent", this);
+			// Wake up now and then, so draw() starts the refresh of the feed when it is due
+			refreshTimer = new Timer(true);
+			refreshTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					redraw();
+				}
+			}, REFRESH_INTERVAL / 5, REFRESH_INTERVAL / 5);
+		}
 		
 		//
 		sortAndPrint(10);
@@ -87,10 +211,41 @@ public class EarthQuakeMap extends PApplet{
 	
 	public void draw() {
 		
+		// Find the marker under the mouse once, however many times it moved since the last frame
+		if(hoverPending) {
+			hoverPending = false;
+			selectMarkerHovering();
+		}
+		
+		// Patch the markers with the last refresh of the feed, then start the next one when it is due
+		FeedUpdate update = pendingUpdate;
+		if(update != null) {
+			pendingUpdate = null;
+			applyFeedUpdate(update);
+			// The next start begins from this state, not from the feed of the first one
+			pendingSnapshot = createSnapshot();
+			thread("writePendingSnapshot");
+		}
+		if(!refreshing && millis() - lastRefreshTime > REFRESH_INTERVAL) {
+			refreshing = true;
+			lastRefreshTime = millis();
+			thread("refreshEarthquakes");
+		}
+		
 		background(150);
-		map.draw();
+		// Draw the map again only if it moved or the markers changed, otherwise reuse the last one
+		boolean mapChanged = !isMapLayerValid();
+		if(mapChanged) {
+			drawMapLayer();
+		} else {
+			image(mapLayer, MAP_LEFT, MAP_TOP);
+		}
+		// The title of the marker under the mouse goes on top of the map
+		if(lastSelected != null && !lastSelected.isHidden()) {
+			lastSelected.showTitle(g, selectedX, selectedY);
+		}
 		// Add legend to the map.
-		addLegend();
+		image(legendLayer, 0, 0);
 		
 		// If clicked on a earthquake marker and there are city inside the impact circle, 
 		// then draw a line between the city and the earthquake marker
@@ -98,6 +253,110 @@ public class EarthQuakeMap extends PApplet{
 			drawLineQuakeToCity();
 			drawImpactCircle();
 		}
+		
+		// While the map moves or tiles are loading there is another frame to draw,
+		// once a frame could use the copy of the map nothing changes until the next event
+		if(REDRAW_ON_DEMAND) {
+			if(mapChanged) {
+				loop();
+			} else {
+				noLoop();
+			}
+		}
+	}
+	
+	/**
+	 * This method asks for a frame after every mouse event, the map may have been panned or zoomed
+	 * @param event is the mouse event
+	 */
+	public void mouseEvent(MouseEvent event) {
+		redraw();
+	}
+	
+	/**
+	 * This method asks for a frame after every key event, the map may have been panned or zoomed
+	 * @param event is the key event
+	 */
+	public void keyEvent(KeyEvent event) {
+		redraw();
+	}
+	
+	/**
+	 * This method draws the tiles and the markers, and keeps a copy of them once all tiles are loaded
+	 * and the map stopped moving. Reading the screen back is not done while the map is panned or zoomed,
+	 * a copy taken there would be outdated in the next frame.
+	 * The marker under the mouse is drawn without its title, draw() adds it on top.
+	 */
+	private void drawMapLayer() {
+		boolean clustered = isClustered();
+		if(lastSelected != null) {
+			lastSelected.setSelected(false);
+		}
+		// Tiles which left the view are not downloaded any more, the ones in the middle come first
+		tileProvider.setViewport(map.getTopLeftBorder(), map.getBottomRightBorder(), map.getZoomLevel());
+		map.draw();
+		if(clustered) {
+			drawEarthquakeClusters();
+		} else {
+			drawEarthquakeMarkers();
+		}
+		drawCityMarkers();
+		if(lastSelected != null) {
+			lastSelected.setSelected(true);
+		}
+		updateOverlayPositions();
+		
+		// The map settled when it was drawn at the same transform as in the frame before
+		boolean settled = map.mapDisplay.innerOffsetX == mapLayerOffsetX && map.mapDisplay.innerOffsetY == mapLayerOffsetY
+				&& map.mapDisplay.innerScale == mapLayerScale && map.mapDisplay.innerAngle == mapLayerAngle;
+		mapLayerOffsetX = map.mapDisplay.innerOffsetX;
+		mapLayerOffsetY = map.mapDisplay.innerOffsetY;
+		mapLayerScale = map.mapDisplay.innerScale;
+		mapLayerAngle = map.mapDisplay.innerAngle;
+		// Tiles which are still loading would stay missing in the copy
+		if(settled && map.allTilesLoaded()) {
+			mapLayer = get(MAP_LEFT, MAP_TOP, MAP_WIDTH, MAP_HEIGHT);
+			mapLayerDirty = false;
+		} else {
+			mapLayer = null;
+		}
+	}
+	
+	/**
+	 * This method finds the screen positions of the selected marker, the clicked marker and the
+	 * cities in its impact circle, for drawing the title, the impact circle and the lines
+	 */
+	private void updateOverlayPositions() {
+		if(lastSelected != null) {
+			ScreenPosition position = lastSelected.getScreenPosition(map);
+			selectedX = position.x;
+			selectedY = position.y;
+		}
+		if(lastClicked != null) {
+			ScreenPosition position = lastClicked.getScreenPosition(map);
+			clickedX = position.x;
+			clickedY = position.y;
+			if(impactedCityXs.length < impactedCities.size()) {
+				impactedCityXs = new float[impactedCities.size()];
+				impactedCityYs = new float[impactedCities.size()];
+			}
+			for(int i = 0; i < impactedCities.size(); i++) {
+				position = ((AbstractMarker) impactedCities.get(i)).getScreenPosition(map);
+				impactedCityXs[i] = position.x;
+				impactedCityYs[i] = position.y;
+			}
+		}
+	}
+	
+	/**
+	 * This method checks if the copy of the map is still what map.draw() would draw. It compares the
+	 * transform of the map itself, which creates no objects, as it runs every frame.
+	 * @return true if the map did not move and the markers did not change since the copy was made
+	 */
+	private boolean isMapLayerValid() {
+		return mapLayer != null && !mapLayerDirty
+				&& map.mapDisplay.innerOffsetX == mapLayerOffsetX && map.mapDisplay.innerOffsetY == mapLayerOffsetY
+				&& map.mapDisplay.innerScale == mapLayerScale && map.mapDisplay.innerAngle == mapLayerAngle;
 	}
 	
 	/**
@@ -108,7 +367,7 @@ public class EarthQuakeMap extends PApplet{
 		Object[] quakeArray = earthquakeMarkers.toArray();
 		Arrays.sort(quakeArray);
 		
-		for(int i = 0; i < numOfRecordToPrint; i++) {
+		for(int i = 0; i < Math.min(numOfRecordToPrint, quakeArray.length); i++) {
 			System.out.println(quakeArray[i]);
 		}
 	}
@@ -118,11 +377,21 @@ public class EarthQuakeMap extends PApplet{
 	 */
 	@Override
 	public void mouseClicked() {
+		mapLayerDirty = true;
 		if(lastClicked != null) {
 			lastClicked.setClicked(false);
 			lastClicked = null;
+			impactedCities.clear();
 			unhideAllMarkers();
 		} else {
+			// A cluster of several quakes is zoomed in on until it splits
+			CommonMarker cluster = selectClusterMarker();
+			if(cluster != null) {
+				map.zoomAndPanTo(map.getZoomLevel() + CLUSTER_CLICK_ZOOM, cluster.getLocation());
+				cluster.setSelected(false);
+				lastSelected = null;
+				return;
+			}
 			// Find out which earthquake marker is clicked
 			EarthQuakeMarker quake = selectEarthquakeMarkers(earthquakeMarkers);
 			if(quake != null) {
@@ -135,36 +404,33 @@ public class EarthQuakeMap extends PApplet{
 	}
 	
 	/*
-	 * This method shows the tile when the mouse moves on a marker
+	 * This method shows the tile when the mouse moves on a marker. The marker is looked up
+	 * in the next frame, so many mouse events in one frame cost one lookup.
 	 * @see processing.core.PApplet#mouseMoved()
 	 */
 	@Override
 	public void mouseMoved() {
-		
-		if(lastSelected != null) {
-			lastSelected.setSelected(false);
-			lastSelected = null;
-		}
-		// Check whether the mouse is on one of the earthquake markers or city markers
-		selectMarkerHovering(earthquakeMarkers);
-		selectMarkerHovering(cityMarkers);
-		
+		hoverPending = true;
 	}
 	
 	/**
 	 * This function helps to determine whether the mouse within one of the marker area, if yes,
-	 * show the title of the marker.
-	 * @param mouseX is the X coordinate of the mouse
-	 * @param mouseY is the Y coordinate of the mouse
-	 */
-	public void selectMarkerHovering(List<Marker> markers) {
-		for(Marker marker : markers) {
-			if(marker.isInside(map, mouseX, mouseY)) {
-				// If the mouse is inside the marker region, then set it to selected
-				lastSelected = (CommonMarker) marker;
-				lastSelected.setSelected(true);
-				return;
-			}
+	 * show the title of the marker. Earthquake markers come before city markers.
+	 */
+	public void selectMarkerHovering() {
+		if(lastSelected != null) {
+			lastSelected.setSelected(false);
+			lastSelected = null;
+		}
+		updateHitGrid();
+		int index = hitGrid.find(mouseX, mouseY);
+		if(index != ScreenHitGrid.NO_MARKER) {
+			// If the mouse is inside the marker region, then set it to selected
+			lastSelected = (CommonMarker) hitGridMarkers.get(index);
+			lastSelected.setSelected(true);
+			ScreenPosition position = lastSelected.getScreenPosition(map);
+			selectedX = position.x;
+			selectedY = position.y;
 		}
 	}
 	
@@ -174,15 +440,84 @@ public class EarthQuakeMap extends PApplet{
 	 * @return An EarthQuakeMarker type marker
 	 */
 	public EarthQuakeMarker selectEarthquakeMarkers(List<Marker> earthquakeMarkers) {
-		for(Marker earthquakeMarker : earthquakeMarkers) {
-			if(earthquakeMarker.isInside(map, mouseX, mouseY)) {
-				// If the mouse is inside the marker region, then return it
-				return (EarthQuakeMarker) earthquakeMarker;
-			}
+		updateHitGrid();
+		int index = hitGrid.find(mouseX, mouseY);
+		if(index != ScreenHitGrid.NO_MARKER && index < hitGridQuakeCount
+				&& hitGridMarkers.get(index) instanceof EarthQuakeMarker) {
+			// If the mouse is inside the marker region, then return it
+			return (EarthQuakeMarker) hitGridMarkers.get(index);
 		}
 		return null;
 	}
 	
+	/**
+	 * This method finds out which cluster of several earthquakes is being clicked
+	 * @return the marker of the cluster, or null if the mouse is not on one
+	 */
+	private CommonMarker selectClusterMarker() {
+		updateHitGrid();
+		int index = hitGrid.find(mouseX, mouseY);
+		if(index != ScreenHitGrid.NO_MARKER && index < hitGridQuakeCount
+				&& hitGridMarkers.get(index) instanceof EarthquakeClusterMarker) {
+			return (CommonMarker) hitGridMarkers.get(index);
+		}
+		return null;
+	}
+	
+	/**
+	 * This method projects the earthquake and city markers into a new screen grid if the map
+	 * was zoomed or panned or the markers changed since the grid was built. While the quakes are
+	 * drawn as clusters, the grid holds what is drawn: the clusters in view, each one quake marker
+	 * or a cluster marker, instead of the hidden single quakes.
+	 */
+	private void updateHitGrid() {
+		float zoom = map.getZoom();
+		ScreenPosition reference = map.getScreenPosition(HIT_GRID_REFERENCE);
+		boolean clustered = isClustered();
+		if(!hitGridDirty && hitGrid != null && zoom == hitGridZoom && clustered == hitGridClustered
+				&& reference.x == hitGridReference.x && reference.y == hitGridReference.y) {
+			return;
+		}
+		
+		hitGridMarkers = new ArrayList<Marker>(earthquakeMarkers.size() + cityMarkers.size());
+		if(clustered) {
+			int level = map.getZoomLevel();
+			int count = findVisibleClusters(level);
+			for(int i = 0; i < count; i++) {
+				int cluster = visibleClusters[i];
+				int item = clusterIndex.getItem(level, cluster);
+				if(item >= 0) {
+					hitGridMarkers.add(clusterMarkers.get(item));
+				} else {
+					EarthquakeClusterMarker marker = new EarthquakeClusterMarker(
+							new Location(clusterIndex.getLatitude(level, cluster), clusterIndex.getLongitude(level, cluster)));
+					marker.set(clusterIndex.getCount(level, cluster), clusterIndex.getMaxMagnitude(level, cluster), clusterIndex.getDepthClass(level, cluster));
+					hitGridMarkers.add(marker);
+				}
+			}
+		} else {
+			hitGridMarkers.addAll(earthquakeMarkers);
+		}
+		hitGridQuakeCount = hitGridMarkers.size();
+		hitGridMarkers.addAll(cityMarkers);
+		int count = hitGridMarkers.size();
+		float[] xs = new float[count];
+		float[] ys = new float[count];
+		float[] radii = new float[count];
+		for(int i = 0; i < count; i++) {
+			CommonMarker marker = (CommonMarker) hitGridMarkers.get(i);
+			ScreenPosition position = marker.getScreenPosition(map);
+			xs[i] = position.x;
+			ys[i] = position.y;
+			radii[i] = marker.getRadius();
+		}
+		hitGrid = ScreenHitGrid.build(xs, ys, radii, count, 0, 0, width, height, HIT_GRID_CELL_SIZE);
+		hitGridZoom = zoom;
+		hitGridClustered = clustered;
+		hitGridReference = reference;
+		hitGridDirty = false;
+	}
+	
 	/**
 	 * This method hide all the earthquake markers except the clicked earthquake marker
 	 * @param earthquakeMarkers contains all the earthquakes information parsed from the link
@@ -200,19 +535,48 @@ public class EarthQuakeMap extends PApplet{
 	}
 	
 	/**
-	 * 
+	 * This method hides all the city markers except the cities in the impact circle of the clicked quake,
+	 * the impacted cities are found once here and kept for drawing the lines
 	 * @param cityMarkers contains all the city information parsed from the file
 	 */
 	public void hideCityMarkers(List<Marker> cityMarkers) {
+		if(lastClicked == null) {
+			return;
+		}
+		findImpactedCities();
 		for(Marker cityMarker : cityMarkers) {
-			if(lastClicked != null) {
-				// Check the distance between the city and the earthquake to see whether the city is in the impact circle
-				if(cityMarker.getDistanceTo(lastClicked.getLocation()) < ((EarthQuakeMarker) lastClicked).getImpactDistance()) {
-					cityMarker.setHidden(false);
-				} else {
-					cityMarker.setHidden(true);
-				}
-			}
+			cityMarker.setHidden(true);
+		}
+		for(Marker cityMarker : impactedCities) {
+			cityMarker.setHidden(false);
+		}
+	}
+	
+	/**
+	 * This method puts the city locations into a k-d tree for the impact circle queries
+	 */
+	private void buildCityIndex() {
+		float[] latitudes = new float[cityMarkers.size()];
+		float[] longitudes = new float[cityMarkers.size()];
+		for(int i = 0; i < cityMarkers.size(); i++) {
+			latitudes[i] = cityMarkers.get(i).getLocation().getLat();
+			longitudes[i] = cityMarkers.get(i).getLocation().getLon();
+		}
+		cityIndex = SphereKdTree.build(latitudes, longitudes, cityMarkers.size());
+		cityCandidates = new int[cityMarkers.size()];
+	}
+	
+	/**
+	 * This method finds the cities within the impact distance of the clicked quake
+	 */
+	private void findImpactedCities() {
+		impactedCities.clear();
+		Location loc = lastClicked.getLocation();
+		int count = cityIndex.findWithin(loc.getLat(), loc.getLon(), ((EarthQuakeMarker) lastClicked).getImpactDistance(), cityCandidates);
+		// Keep the order of cityMarkers
+		Arrays.sort(cityCandidates, 0, count);
+		for(int i = 0; i < count; i++) {
+			impactedCities.add(cityMarkers.get(cityCandidates[i]));
 		}
 	}
 	
@@ -232,11 +596,108 @@ public class EarthQuakeMap extends PApplet{
 	 * If the city is inside the impact circle, draw a line between the city and the earthquake
 	 */
 	public void drawLineQuakeToCity() {
-		for(Marker cityMarker : cityMarkers) {
-			if(cityMarker.getDistanceTo(lastClicked.getLocation()) < ((EarthQuakeMarker)lastClicked).getImpactDistance()) {
-				line(((AbstractMarker)cityMarker).getScreenPosition(map).x, ((AbstractMarker)cityMarker).getScreenPosition(map).y, lastClicked.getScreenPosition(map).x, lastClicked.getScreenPosition(map).y);
+		// The impacted cities were found when the quake was clicked, their positions when the map was drawn
+		for(int i = 0; i < impactedCities.size(); i++) {
+			line(impactedCityXs[i], impactedCityYs[i], clickedX, clickedY);
+		}
+	}
+	
+	/**
+	 * This method draws the earthquake clusters of the current zoom level which are in view.
+	 * A cluster of one quake is drawn with the marker of that quake.
+	 */
+	private void drawEarthquakeClusters() {
+		int zoom = map.getZoomLevel();
+		int count = findVisibleClusters(zoom);
+		for(int i = 0; i < count; i++) {
+			int cluster = visibleClusters[i];
+			int item = clusterIndex.getItem(zoom, cluster);
+			if(item >= 0) {
+				EarthQuakeMarker marker = (EarthQuakeMarker) clusterMarkers.get(item);
+				ScreenPosition position = marker.getScreenPosition(map);
+				earthquakeRenderer.add(marker, position.x, position.y);
+			} else {
+				ScreenPosition position = map.getScreenPosition(new Location(clusterIndex.getLatitude(zoom, cluster), clusterIndex.getLongitude(zoom, cluster)));
+				clusterMarker.set(clusterIndex.getCount(zoom, cluster), clusterIndex.getMaxMagnitude(zoom, cluster), clusterIndex.getDepthClass(zoom, cluster));
+				clusterMarker.draw(g, position.x, position.y);
 			}
 		}
+		earthquakeRenderer.flush(g);
+	}
+	
+	// Return whether the quakes are drawn as clusters: zoomed out and with nothing clicked
+	private boolean isClustered() {
+		return lastClicked == null && map.getZoomLevel() <= QuakeClusterIndex.MAX_ZOOM;
+	}
+	
+	/**
+	 * This method finds the earthquake clusters of a zoom level which are in view, building the
+	 * clusters first if the markers changed
+	 * @param zoom is the zoom level
+	 * @return the number of clusters, they are in visibleClusters
+	 */
+	private int findVisibleClusters(int zoom) {
+		if(clusterIndexDirty) {
+			buildClusterIndex();
+		}
+		if(visibleClusters.length < clusterIndex.getClusterCount(zoom)) {
+			visibleClusters = new int[clusterIndex.getClusterCount(zoom)];
+		}
+		Location topLeft = map.getTopLeftBorder();
+		Location bottomRight = map.getBottomRightBorder();
+		return clusterIndex.findInView(zoom, topLeft.getLat(), topLeft.getLon(), bottomRight.getLat(), bottomRight.getLon(), visibleClusters);
+	}
+	
+	/**
+	 * This method draws the earthquake markers inside the map area, grouped by their style
+	 */
+	private void drawEarthquakeMarkers() {
+		float margin = EarthQuakeMarker.BASE_RADIUS * 2;
+		for(Marker marker : earthquakeMarkers) {
+			ScreenPosition position = ((EarthQuakeMarker) marker).getScreenPosition(map);
+			if(position.x > MAP_LEFT - margin && position.x < MAP_LEFT + MAP_WIDTH + margin
+					&& position.y > MAP_TOP - margin && position.y < MAP_TOP + MAP_HEIGHT + margin) {
+				earthquakeRenderer.add((EarthQuakeMarker) marker, position.x, position.y);
+			}
+		}
+		earthquakeRenderer.flush(g);
+	}
+	
+	/**
+	 * This method draws the city markers inside the map area. They come after the earthquakes,
+	 * so a quake never covers a city.
+	 */
+	private void drawCityMarkers() {
+		float margin = EarthQuakeMarker.BASE_RADIUS * 2;
+		for(Marker marker : cityMarkers) {
+			ScreenPosition position = ((CityMarker) marker).getScreenPosition(map);
+			if(position.x > MAP_LEFT - margin && position.x < MAP_LEFT + MAP_WIDTH + margin
+					&& position.y > MAP_TOP - margin && position.y < MAP_TOP + MAP_HEIGHT + margin) {
+				((CityMarker) marker).draw(g, position.x, position.y);
+			}
+		}
+	}
+	
+	/**
+	 * This method clusters the current earthquake markers for every zoom level
+	 */
+	private void buildClusterIndex() {
+		clusterMarkers = new ArrayList<Marker>(earthquakeMarkers);
+		int count = clusterMarkers.size();
+		float[] latitudes = new float[count];
+		float[] longitudes = new float[count];
+		float[] magnitudes = new float[count];
+		float[] depths = new float[count];
+		for(int i = 0; i < count; i++) {
+			EarthQuakeMarker marker = (EarthQuakeMarker) clusterMarkers.get(i);
+			latitudes[i] = marker.getLocation().getLat();
+			longitudes[i] = marker.getLocation().getLon();
+			magnitudes[i] = marker.getMagnitude();
+			depths[i] = marker.getDepth();
+		}
+		clusterIndex = QuakeClusterIndex.build(latitudes, longitudes, magnitudes, depths, count,
+				EarthQuakeMarker.EARTHQUAKE_SHALLOW, EarthQuakeMarker.EARTHQUAKE_DEEP);
+		clusterIndexDirty = false;
 	}
 	
 	/**
@@ -244,9 +705,9 @@ public class EarthQuakeMap extends PApplet{
 	 */
 	public void drawImpactCircle() {
 		float xLoc, yLoc, impactDist;
-		xLoc = lastClicked.getScreenPosition(map).x;
-		yLoc = lastClicked.getScreenPosition(map).y;
-		impactDist = Float.parseFloat(((EarthQuakeMarker)lastClicked).getProperty("magnitude").toString()) * 15;
+		xLoc = clickedX;
+		yLoc = clickedY;
+		impactDist = ((EarthQuakeMarker)lastClicked).getMagnitude() * 15;
 		noFill();
 		ellipse(xLoc, yLoc, impactDist, impactDist);
 	}
@@ -254,19 +715,250 @@ public class EarthQuakeMap extends PApplet{
 	
 	/**
 	 * This function creates the earthquake markers according to the earthquake features and 
-	 * categorize into LandQuake and OceanQuake
+	 * categorize into LandQuake and OceanQuake. The quakes are classified in parallel, then the
+	 * markers are created and the countries counted in the order of the list.
 	 * @param quakeFeatures is a list with data type PointFeature, which contains information of the earthquake 
 	 * location, such as latitude and longitude, magnitude and title etc.
-	 * @return
+	 * @return whether each quake is a land quake, in the order of the list
 	 */
-	public void createEarthquakeMarker(List<PointFeature> quakeFeatures) {
-		for(PointFeature feature : quakeFeatures) {
-			if(isInCountry(feature)) {
-				earthquakeMarkers.add(new LandQuakeMarker(feature));
-			} else {
-				earthquakeMarkers.add(new OceanQuakeMarker(feature));
+	public boolean[] createEarthquakeMarker(List<PointFeature> quakeFeatures) {
+		CountryLookup lookup = countryGrid != null ? countryGrid : countryLocator;
+		int[] countryCounts = new int[countryMarkers.size()];
+		int[] countries = ParallelCountryClassifier.classify(quakeFeatures, lookup, countryCounts, ForkJoinPool.commonPool());
+		
+		// Fold the counts into the country markers
+		for(int i = 0; i < countryCounts.length; i++) {
+			if(countryCounts[i] > 0) {
+				Marker marker = countryMarkers.get(i);
+				Object count = marker.getProperty("earthquakeCount");
+				marker.setProperty("earthquakeCount", (count == null ? 0 : (int) count) + countryCounts[i]);
+			}
+		}
+		
+		boolean[] onLand = new boolean[countries.length];
+		for(int i = 0; i < countries.length; i++) {
+			PointFeature feature = quakeFeatures.get(i);
+			onLand[i] = countries[i] != CountryLocator.NO_COUNTRY;
+			if(onLand[i]) {
+				feature.addProperty("country", countryMarkers.get(countries[i]).getProperty("name"));
 			}
+			addEarthquakeMarker(feature, onLand[i]);
 		}
+		return onLand;
+	}
+	
+	/**
+	 * This method reads the earthquake feed and the city data and creates the earthquake markers.
+	 * The snapshot is keyed by the country and city files only, it holds the feed as it was when the
+	 * snapshot was written. If it matches, the features, their land/ocean classification and the
+	 * earthquake count of every country are taken from it without waiting for the network, and a
+	 * refresh of the feed brings the changes since. Otherwise the feed is fetched, everything is
+	 * parsed and classified and a new snapshot is written. The snapshot is written again after every
+	 * update of the feed.
+	 */
+	public void loadDatasets() {
+		snapshotKey = DatasetSnapshot.contentKey(loadBytes(countryDataFile), loadBytes(cityDataFile));
+		DatasetSnapshot snapshot = DatasetSnapshot.load(new File(sketchPath(snapshotFile)), snapshotKey);
+		
+		if(snapshot != null) {
+			// Warm start, no network, no parsing and no point in polygon tests
+			List<PointFeature> earthquakeFeature = snapshot.getEarthquakeFeatures();
+			cityFeature = snapshot.getCityFeatures();
+			feedUpdater.setKnownEntries(snapshot.getKnownEntries());
+			for(int i = 0; i < earthquakeFeature.size(); i++) {
+				addEarthquakeMarker(earthquakeFeature.get(i), snapshot.isOnLand(i));
+			}
+			for(Marker marker : countryMarkers) {
+				Integer count = snapshot.getEarthquakeCounts().get(marker.getProperty("name"));
+				if(count != null) {
+					marker.setProperty("earthquakeCount", (int) count);
+				}
+			}
+			// The feed of the snapshot may be old, fetch the changes right away in the background
+			refreshing = true;
+			thread("refreshEarthquakes");
+			return;
+		}
+		
+		// Cold start, parse and classify everything, then keep the result for the next start
+		List<PointFeature> earthquakeFeature = feedUpdater.refresh().getAddedFeatures();
+		cityFeature = new ArrayList<Feature>(GeoJSONStreamReader.load(this, cityDataFile).createPointFeatures());
+		createEarthquakeMarker(earthquakeFeature);
+		if(earthquakeFeature.isEmpty()) {
+			// The feed could not be fetched, a snapshot without quakes would hide them on the next start
+			return;
+		}
+		writeSnapshot(createSnapshot());
+	}
+	
+	/**
+	 * This method makes a snapshot of the current earthquakes, cities, earthquake counts and known feed entries
+	 * @return the snapshot
+	 */
+	private DatasetSnapshot createSnapshot() {
+		List<PointFeature> features = new ArrayList<PointFeature>(earthquakeMarkers.size());
+		boolean[] onLand = new boolean[earthquakeMarkers.size()];
+		for(int i = 0; i < earthquakeMarkers.size(); i++) {
+			features.add(((EarthQuakeMarker) earthquakeMarkers.get(i)).toFeature());
+			onLand[i] = earthquakeMarkers.get(i) instanceof LandQuakeMarker;
+		}
+		HashMap<String, Integer> earthquakeCounts = new HashMap<String, Integer>();
+		for(Marker marker : countryMarkers) {
+			if(marker.getProperty("earthquakeCount") != null) {
+				earthquakeCounts.put(marker.getProperty("name").toString(), (int) marker.getProperty("earthquakeCount"));
+			}
+		}
+		return new DatasetSnapshot(features, onLand, cityFeature, earthquakeCounts, feedUpdater.getKnownEntries());
+	}
+	
+	/**
+	 * This method writes the snapshot made after the last feed update. It runs on its own thread,
+	 * so the drawing does not wait for the disk.
+	 */
+	public void writePendingSnapshot() {
+		synchronized(snapshotLock) {
+			// The latest snapshot is taken under the lock, so an older one is never written after it
+			DatasetSnapshot snapshot = pendingSnapshot;
+			if(snapshot != null) {
+				pendingSnapshot = null;
+				writeSnapshot(snapshot);
+			}
+		}
+	}
+	
+	/**
+	 * This method writes a snapshot
+	 * @param snapshot is the snapshot to write
+	 */
+	private void writeSnapshot(DatasetSnapshot snapshot) {
+		synchronized(snapshotLock) {
+			File file = new File(sketchPath(snapshotFile));
+			try {
+				snapshot.save(file, snapshotKey);
+			} catch (IOException e) {
+				System.err.println("Could not write snapshot " + file + ": " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * This function creates the land or ocean quake marker of one earthquake and keeps it by the feed entry id
+	 * @param feature contains information of the earthquake
+	 * @return the new marker
+	 */
+	private Marker addEarthquakeMarker(PointFeature feature) {
+		return addEarthquakeMarker(feature, isInCountry(feature));
+	}
+	
+	/**
+	 * This function stores one earthquake which is already classified in the earthquake store
+	 * and creates its marker as a light view on the store row
+	 * @param feature contains information of the earthquake
+	 * @param onLand is true for a land quake, false for an ocean quake
+	 * @return the new marker
+	 */
+	private Marker addEarthquakeMarker(PointFeature feature, boolean onLand) {
+		int row = earthquakeStore.add(feature, onLand);
+		Marker marker;
+		if(onLand) {
+			marker = new LandQuakeMarker(earthquakeStore, row);
+		} else {
+			marker = new OceanQuakeMarker(earthquakeStore, row);
+		}
+		marker.setId(feature.getId());
+		earthquakeMarkers.add(marker);
+		hitGridDirty = true;
+		clusterIndexDirty = true;
+		mapLayerDirty = true;
+		if(feature.getId() != null) {
+			earthquakeMarkersById.put(feature.getId(), marker);
+		}
+		return marker;
+	}
+	
+	/**
+	 * This method fetches the changes of the earthquake feed. It runs on its own thread so
+	 * the drawing does not wait for the network, the changes are applied by draw().
+	 */
+	public void refreshEarthquakes() {
+		try {
+			FeedUpdate update = feedUpdater.refresh();
+			if(!update.isEmpty()) {
+				pendingUpdate = update;
+				redraw();
+			}
+		} finally {
+			// a failed refresh must not stop the later ones
+			refreshing = false;
+		}
+	}
+	
+	/**
+	 * This method patches the earthquake markers with the changes of the feed: removed entries lose their
+	 * marker, changed entries get a new one and new entries are added, all other markers stay as they are.
+	 * @param update contains the changes since the previous refresh
+	 */
+	public void applyFeedUpdate(FeedUpdate update) {
+		for(String id : update.getRemovedIds()) {
+			removeEarthquakeMarker(id);
+		}
+		for(PointFeature feature : update.getChangedFeatures()) {
+			removeEarthquakeMarker(feature.getId());
+		}
+		List<PointFeature> newFeatures = new ArrayList<PointFeature>(update.getChangedFeatures());
+		newFeatures.addAll(update.getAddedFeatures());
+		for(PointFeature feature : newFeatures) {
+			Marker marker = addEarthquakeMarker(feature);
+			// While a quake is clicked only that one is shown
+			marker.setHidden(lastClicked != null);
+		}
+		// Unchanged quakes whose age moved on, e.g. out of the past hour, lose or gain their cross
+		for(Map.Entry<String, String> entry : update.getAgeChanges().entrySet()) {
+			Marker marker = earthquakeMarkersById.get(entry.getKey());
+			Object age = marker == null ? null : marker.getProperty("age");
+			if(marker == null || (age == null ? entry.getValue() == null : age.equals(entry.getValue()))) {
+				continue;
+			}
+			((EarthQuakeMarker) marker).setAge(entry.getValue());
+			clusterIndexDirty = true;
+			mapLayerDirty = true;
+		}
+	}
+	
+	/**
+	 * This method removes the marker of a feed entry from the map and from the earthquake count of its country
+	 * @param id is the id of the feed entry
+	 */
+	private void removeEarthquakeMarker(String id) {
+		Marker marker = earthquakeMarkersById.remove(id);
+		if(marker == null) {
+			return;
+		}
+		earthquakeMarkers.remove(marker);
+		hitGridDirty = true;
+		clusterIndexDirty = true;
+		mapLayerDirty = true;
+		
+		Object country = marker.getProperty("country");
+		if(country != null) {
+			for(Marker countryMarker : countryMarkers) {
+				if(country.equals(countryMarker.getProperty("name")) && countryMarker.getProperty("earthquakeCount") != null) {
+					countryMarker.setProperty("earthquakeCount", (int) countryMarker.getProperty("earthquakeCount") - 1);
+					break;
+				}
+			}
+		}
+		
+		if(marker == lastSelected) {
+			lastSelected = null;
+		}
+		if(marker == lastClicked) {
+			lastClicked = null;
+			impactedCities.clear();
+			unhideAllMarkers();
+		}
+		// The row of the store goes to the next quake added
+		((EarthQuakeMarker) marker).release();
 	}
 	
 	/**
@@ -279,109 +971,65 @@ public class EarthQuakeMap extends PApplet{
 		return isInCountry(feature);
 	}
 	
+	/**
+	 * This function loads the country grid made from the same country file, or builds and saves it.
+	 */
+	private void loadCountryGrid() {
+		if(COUNTRY_GRID_CELLS_PER_DEGREE <= 0) {
+			return;
+		}
+		byte[] key = DatasetSnapshot.contentKey(loadBytes(countryDataFile));
+		File file = new File(sketchPath(countryGridFile));
+		countryGrid = CountryGrid.load(file, key, countryLocator, COUNTRY_GRID_CELLS_PER_DEGREE);
+		if(countryGrid == null) {
+			countryGrid = CountryGrid.build(countryLocator, COUNTRY_GRID_CELLS_PER_DEGREE);
+			try {
+				countryGrid.save(file, key);
+			} catch (IOException e) {
+				System.err.println("Could not write country grid " + file + ": " + e.getMessage());
+			}
+		}
+	}
+	
 	/**
 	 * This function takes in the earthquake feature and determines whether the quake happens inland
 	 * or in the ocean, if it's inland, assigns it to corresponding country and add one more count on
 	 * the earthquakeCount feature of the country marker.
+	 * Quakes away from any border are classified by the country grid, the others by the exact test
+	 * of the polygons whose bounding box contains them.
 	 * @param feature contains information about the earthquake.
 	 * @return true is it is inland, false in the ocean
 	 */
 	public boolean isInCountry(PointFeature feature) {
 		
 		Location loc = feature.getLocation();
-		for(Marker marker : countryMarkers) {
-			// Check if the country marker is a multimarker
-			if(marker.getClass() == MultiMarker.class) {
-				for(Marker subMultiMarker : ((MultiMarker) marker).getMarkers()) {
-					// In the multimarker, check whether the location is inside
-					if(((AbstractShapeMarker) subMultiMarker).isInsideByLocation(loc)) {
-						// If is inside the country, then and the country name to the pointfeature
-						feature.addProperty("country", marker.getProperty("name"));
-						if(marker.getProperty("earthquakeCount") == null) {
-							// If there is no earthquakeCount property in the country marker, set it to 1 since here we found one earthquake in the country
-							marker.setProperty("earthquakeCount", (int) 1);
-						} else {
-							// If there is earthquakeCount property, then increase the number
-							marker.setProperty("earthquakeCount", (int) marker.getProperty("earthquakeCount") + 1);
-						}
-						return true;
-					}
-				}
-			} else {
-				// If the country marker is not a multimarker, then check the location to see if it's inside the country
-				if(((AbstractShapeMarker) marker).isInsideByLocation(loc)) {
-					feature.addProperty("country", marker.getProperty("name"));
-					if(marker.getProperty("earthquakeCount") == null) {
-						marker.setProperty("earthquakeCount", (int) 1);
-					} else {
-						marker.setProperty("earthquakeCount", (int) marker.getProperty("earthquakeCount") + 1);
-					}
-					return true;
-				}
-			}
+		int country = countryGrid != null ? countryGrid.findCountry(loc) : countryLocator.findCountry(loc);
+		if(country == CountryLocator.NO_COUNTRY) {
+			return false;
+		}
+		// If is inside the country, then and the country name to the pointfeature
+		Marker marker = countryMarkers.get(country);
+		feature.addProperty("country", marker.getProperty("name"));
+		if(marker.getProperty("earthquakeCount") == null) {
+			// If there is no earthquakeCount property in the country marker, set it to 1 since here we found one earthquake in the country
+			marker.setProperty("earthquakeCount", (int) 1);
+		} else {
+			// If there is earthquakeCount property, then increase the number
+			marker.setProperty("earthquakeCount", (int) marker.getProperty("earthquakeCount") + 1);
 		}
-		return false;
+		return true;
 	}
 	
 	/**
-	 * This function draws a panel contains the legends of the markers.
+	 * This function draws a panel contains the legends of the markers into an offscreen image once.
+	 * @return the image of the legend, draw() puts it at 0, 0
 	 */
-	private void addLegend() {
-		// Yellow Panel
-		fill(color(255, 255, 200));
-		rect(20, 10, 150, 340);
-
-		// Panel Title 
-		fill(color(0, 0 ,0));
-		text("Earthquake Key", 42, 50);
-
-		// City Marker
-		fill(color(255, 0, 0));
-		triangle(44, 83, 38, 95, 49, 95);
-		fill(color(0, 0 ,0));
-		text("City Marker", 60, 93);
-
-		// Land quake
-		fill(color(255, 255, 255));
-		ellipse(44, 126, 12, 12);
-		fill(color(0, 0 ,0));
-		text("Land Quake", 60, 129);
-
-		// Ocen Quake
-		fill(color(255, 255, 255));
-		rect(40, 153, 10, 10);
-		fill(color(0, 0 ,0));
-		text("Ocen Quake", 60, 162);
-		
-		//
-		fill(color(0, 0, 0));
-		text("Size - Magnitude", 40, 200);
-		
-		// Shallow
-		fill(color(255, 255, 0));
-		ellipse(46, 230, 15, 15);
-		fill(color(0, 0, 0));
-		text("Shallow", 63, 233);
-		
-		// Intermediate
-		fill(color(0, 0, 255));
-		ellipse(46, 260, 15, 15);
-		fill(color(0, 0, 0));
-		text("Intermediate", 63, 263);
-		
-		// Deep
-		fill(color(255, 0, 0));
-		ellipse(46, 290, 15, 15);
-		fill(color(0, 0, 0));
-		text("Deep", 63, 293);
-		
-		// Past Hour
-		fill(color(255, 255, 255));
-		ellipse (46, 320, 15, 15);
-		line(36, 310, 56, 330);
-		line(36, 330, 56, 310);
-		fill(color(0, 0, 0));
-		text("Past Hour", 63, 323);
+	private PGraphics createLegend() {
+		PGraphics pg = createGraphics(EarthquakeLegend.WIDTH, EarthquakeLegend.HEIGHT);
+		pg.beginDraw();
+		EarthquakeLegend.draw(pg);
+		pg.endDraw();
+		return pg;
 	}
 	
 }
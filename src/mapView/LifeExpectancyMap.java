@@ -1,16 +1,25 @@
 package mapView;
 
 import processing.core.PApplet;
+import processing.event.KeyEvent;
+import processing.event.MouseEvent;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.HashMap;
 
 import de.fhpotsdam.unfolding.UnfoldingMap;
+import de.fhpotsdam.unfolding.geo.Location;
+import de.fhpotsdam.unfolding.utils.ScreenPosition;
 import de.fhpotsdam.unfolding.utils.MapUtils;
 import de.fhpotsdam.unfolding.providers.Google.*;
-import de.fhpotsdam.unfolding.data.Feature;
-import de.fhpotsdam.unfolding.data.GeoJSONReader;
 import de.fhpotsdam.unfolding.marker.Marker;
+import markers.SimplifiedPolygonMarker;
+import parsing.FlatFeatureCollection;
+import parsing.GeoJSONStreamReader;
+import parsing.LifeExpectancyTable;
+import tiles.CachingMapProvider;
+import vectortiles.VectorTileLayer;
 //import de.fhpotsdam.unfolding.geo.Location;
 
 /**
@@ -24,18 +33,51 @@ public class LifeExpectancyMap extends PApplet {
 	 * 
 	 */
 	private static final long serialVersionUID = 1L;
+	// The file has no header row, its 13 value columns are the years 2000 to 2012
+	private static final String LIFE_EXPECTANCY_FILE = "LifeExpectancyWorldBank.csv";
+	private static final int FIRST_YEAR = 2000;
+	// Number of frames each year is shown while animating, at 60 frames per second
+	private static final int FRAMES_PER_YEAR = 20;
+	// Position of the year slider above the map
+	private static final float SLIDER_LEFT = 60;
+	private static final float SLIDER_RIGHT = 740;
+	private static final float SLIDER_Y = 25;
+	// Zoom levels up to this one draw the country outlines simplified to half a pixel
+	private static final int SIMPLIFIED_MAX_ZOOM = 8;
 	private UnfoldingMap myMap;
-	private GoogleMapProvider mapProvider;
-	private HashMap<String, Float> lifeExptCountry;
-	private List<Feature> countries;
+	// Tiles are cached in memory and on disk, with the neighbours of every shown tile prefetched
+	private static final String TILE_CACHE_FOLDER = "cache/tiles";
+	private static final int MEMORY_TILES = 256;
+	private static final long DISK_TILE_BYTES = 128L << 20;
+	private CachingMapProvider mapProvider;
+	// The countries are drawn from the vector tiles of VectorTileGenerator if they were generated from
+	// the same country file, otherwise from the country markers
+	private static final String VECTOR_TILE_FOLDER = "cache/vector-tiles";
+	private static final int MEMORY_VECTOR_TILES = 128;
+	private VectorTileLayer countryLayer;
+	private LifeExpectancyTable lifeExpTable;
+	private FlatFeatureCollection countries;
 	private List<Marker> countryMarkers;
+	// Colors of every country marker for every year, yearColors[year][marker]
+	private int[][] yearColors;
+	private int currentYear = -1;
+	private boolean animating;
+	private int lastYearFrame;
+	// Draw only when something changed instead of 60 times a second. Input events ask for a frame,
+	// the animation, a moving map and loading tiles keep drawing.
+	private static final boolean REDRAW_ON_DEMAND = true;
+	private static final Location REFERENCE_LOCATION = new Location(0, 0);
+	private float lastFrameZoom;
+	private ScreenPosition lastFrameReference;
 	
 	public void setup() {
 		// The size of the User interface
 		size(800, 600);
+		frameRate(60);
 		this.background(150, 150, 150);
 		// Initialized the map provider
-		mapProvider = new GoogleMapProvider();
+		mapProvider = new CachingMapProvider(new GoogleMapProvider(), new File(sketchPath(TILE_CACHE_FOLDER)),
+				MEMORY_TILES, DISK_TILE_BYTES);
 		// Initialize new map
 		myMap = new UnfoldingMap(this, 50, 50, 800, 600, mapProvider);
 		// Interact with map
@@ -45,64 +87,206 @@ public class LifeExpectancyMap extends PApplet {
 		// Zoom the map to defined location
 //		myMap.zoomAndPanTo(zoomLvl, loc);
 		
-		// Read the the life expectancy and countries
-		lifeExptCountry = getLifeExpectancyAndCountry("LifeExpectancyWorldBankModule3.csv");
+		// Read the the life expectancy of every year and countries
+		lifeExpTable = LifeExpectancyTable.load(this, LIFE_EXPECTANCY_FILE, FIRST_YEAR);
 		// Read the geometric data of each country
-		countries = GeoJSONReader.loadData(this, "countries.geo.json");
-		// Create Markers using the geometric data
-		countryMarkers = MapUtils.createSimpleMarkers(countries);
-		// Add marker to the map
-		myMap.addMarkers(countryMarkers);
+		countries = GeoJSONStreamReader.load(this, "countries.geo.json");
+		// Create Markers using the geometric data, with simpler outlines for the low zoom levels
+		countryMarkers = SimplifiedPolygonMarker.simplify(countries.createMarkers(), SIMPLIFIED_MAX_ZOOM);
+		// The vector tiles are only used if they were made from the same countries
+		countryLayer = VectorTileLayer.open(new File(sketchPath(VECTOR_TILE_FOLDER)), loadBytes("countries.geo.json"),
+				MEMORY_VECTOR_TILES);
+		if(countryLayer != null) {
+			countryLayer.setLayers(true, false, false);
+			countryLayer.setCountryStyle(color(100, 100, 100), color(50, 50, 50));
+			List<String> countryIds = new ArrayList<String>();
+			for(Marker marker : countryMarkers) {
+				countryIds.add(marker.getId());
+			}
+			countryLayer.setCountryIds(countryIds);
+		} else {
+			// Add marker to the map
+			myMap.addMarkers(countryMarkers);
+		}
 		
-		// Add color to countries according the life expectancy
-		addColorToCountry();
+		// Work out the color of every country for every year once, then show the most recent year
+		precomputeYearColors();
+		showYear(lifeExpTable.getYearCount() - 1);
+		
+		if(REDRAW_ON_DEMAND) {
+			noLoop();
+			registerMethod("mouseEvent", this);
+			registerMethod("keyEvent", this);
+		}
 	}
 	
 	public void draw() {
+		// While animating, move on to the next year and start over after the last one
+		if(animating && frameCount - lastYearFrame >= FRAMES_PER_YEAR) {
+			showYear((currentYear + 1) % lifeExpTable.getYearCount());
+		}
+		background(150);
+		boolean moving = isMapMoving();
+		if(moving) {
+			// Tiles which left the view are not downloaded any more, the ones in the middle come first
+			mapProvider.setViewport(myMap.getTopLeftBorder(), myMap.getBottomRightBorder(), myMap.getZoomLevel());
+		}
 		myMap.draw();
+		if(countryLayer != null) {
+			countryLayer.draw(g, myMap);
+		}
+		drawYearSlider();
+		
+		if(REDRAW_ON_DEMAND) {
+			if(animating || moving || !myMap.allTilesLoaded()) {
+				loop();
+			} else {
+				noLoop();
+			}
+		}
 	}
 	
 	/**
-	 * This function reads the file contains all the country information and corresponding life expectancy and 
-	 * return with the country code and corresponding life expectancy
-	 * @param fileNames which is a CVS file contains all the country information and corresponding life expectancy
-	 * @return HashMap<String, Float> contains country code and life expectancy
+	 * This function checks if the map was panned or zoomed since the last frame
+	 * @return true if the map moved
 	 */
-	public HashMap<String, Float> getLifeExpectancyAndCountry(String fileNames) {
-		HashMap<String, Float> lifeExptCountryList = new HashMap<String, Float>();
+	private boolean isMapMoving() {
+		ScreenPosition reference = myMap.getScreenPosition(REFERENCE_LOCATION);
+		boolean moving = lastFrameReference == null || myMap.getZoom() != lastFrameZoom
+				|| reference.x != lastFrameReference.x || reference.y != lastFrameReference.y;
+		lastFrameZoom = myMap.getZoom();
+		lastFrameReference = reference;
+		return moving;
+	}
+	
+	/**
+	 * This function asks for a frame after every mouse event, the map may have been panned or zoomed
+	 * @param event is the mouse event
+	 */
+	public void mouseEvent(MouseEvent event) {
+		redraw();
+	}
+	
+	/**
+	 * This function asks for a frame after every key event, the year or the map may have changed
+	 * @param event is the key event
+	 */
+	public void keyEvent(KeyEvent event) {
+		redraw();
+	}
+	
+	/**
+	 * This function computes the color of every country marker for every year, so changing the year
+	 * only has to hand each marker its color from an array
+	 */
+	public void precomputeYearColors() {
+		// Look up the table row of every marker once
+		int[] markerRows = new int[countryMarkers.size()];
+		for(int i = 0; i < markerRows.length; i++) {
+			markerRows[i] = lifeExpTable.rowOf(countryMarkers.get(i).getId());
+		}
 		
-		// Read all rows in to the String Array
-		String[] rows = loadStrings(fileNames);
-		// Extract the information split by "," from each row
-		for(String row : rows) {
-			String[] cols = row.split(",");
-			// Check whether the row is valid
-			if((cols.length == 6)&&(!cols[5].equals(".."))) {
-				// Put the country and the life expectancy into the HashMap
-				lifeExptCountryList.put(cols[4], Float.parseFloat(cols[5]));
+		yearColors = new int[lifeExpTable.getYearCount()][markerRows.length];
+		for(int year = 0; year < yearColors.length; year++) {
+			for(int i = 0; i < markerRows.length; i++) {
+				float lifeExpValue = markerRows[i] < 0 ? Float.NaN : lifeExpTable.getValue(markerRows[i], year);
+				yearColors[year][i] = lifeExpectancyColor(lifeExpValue);
 			}
 		}
-		return lifeExptCountryList;
 	}
 	
 	/**
-	 * This function add different color to the shape of the country according the life expectancy
+	 * This function returns the color of a country according the life expectancy
+	 * @param lifeExpValue is the life expectancy, NaN if unknown
+	 * @return the color for the country
+	 */
+	public int lifeExpectancyColor(float lifeExpValue) {
+		if(Float.isNaN(lifeExpValue)) {
+			// If the life expectancy is not known, use default color
+			return color(100, 100, 100);
+		}
+		// Convert the float information into a integer within an integer range
+		int colorLvl = (int) map(lifeExpValue, 40, 90, 10, 255);
+		return color(255 - colorLvl, colorLvl, 100);
+	}
+	
+	/**
+	 * This function colors the countries with the precomputed colors of a year
+	 * @param year is the index of the year, 0 for the first year of the table
+	 */
+	public void showYear(int year) {
+		if(year == currentYear) {
+			return;
+		}
+		currentYear = year;
+		lastYearFrame = frameCount;
+		int[] colors = yearColors[year];
+		for(int i = 0; i < colors.length; i++) {
+			countryMarkers.get(i).setColor(colors[i]);
+		}
+		if(countryLayer != null) {
+			countryLayer.setCountryColors(colors);
+		}
+	}
+	
+	/**
+	 * This function draws the year slider above the map, with the current year and whether it is playing
+	 */
+	private void drawYearSlider() {
+		int years = lifeExpTable.getYearCount();
+		stroke(0);
+		line(SLIDER_LEFT, SLIDER_Y, SLIDER_RIGHT, SLIDER_Y);
+		float knobX = years > 1 ? map(currentYear, 0, years - 1, SLIDER_LEFT, SLIDER_RIGHT) : SLIDER_LEFT;
+		fill(255);
+		ellipse(knobX, SLIDER_Y, 14, 14);
+		fill(0);
+		text((lifeExpTable.getFirstYear() + currentYear) + (animating ? " (playing, space to pause)" : " (space to play)"), SLIDER_LEFT, SLIDER_Y - 10);
+	}
+	
+	/*
+	 * Clicking on the slider jumps to the year
+	 * @see processing.core.PApplet#mousePressed()
 	 */
-	public void addColorToCountry() {
-		 for(Marker marker : countryMarkers) {
-			 String countryID = marker.getId();
-			 // Find the key in the HashMap which has corresponding country key and life expectancy information
-			 if(lifeExptCountry.containsKey(countryID)) {
-				 float lifeExpValue = lifeExptCountry.get(countryID);
-				 // Convert the float information into a integer within an integer range
-				 int colorLvl = (int) map(lifeExpValue, 40, 90, 10, 255);
-				 // Set the marker's color according to the colorLvl
-				 marker.setColor(color(255 - colorLvl, colorLvl, 100));
-			 } else {
-				 // If the countryID not found, use default color
-				 marker.setColor(color(100, 100, 100));
-			 }
-		 }
-		 
+	@Override
+	public void mousePressed() {
+		selectYearAtMouse();
+	}
+	
+	/*
+	 * Dragging along the slider scrubs through the years
+	 * @see processing.core.PApplet#mouseDragged()
+	 */
+	@Override
+	public void mouseDragged() {
+		selectYearAtMouse();
+	}
+	
+	/*
+	 * Space starts and stops the animation, the arrow keys step through the years
+	 * @see processing.core.PApplet#keyPressed()
+	 */
+	@Override
+	public void keyPressed() {
+		int years = lifeExpTable.getYearCount();
+		if(key == ' ') {
+			animating = !animating;
+			lastYearFrame = frameCount;
+		} else if(keyCode == LEFT) {
+			showYear((currentYear + years - 1) % years);
+		} else if(keyCode == RIGHT) {
+			showYear((currentYear + 1) % years);
+		}
+	}
+	
+	/**
+	 * This function shows the year under the mouse if the mouse is on the slider
+	 */
+	private void selectYearAtMouse() {
+		if(abs(mouseY - SLIDER_Y) > 10 || mouseX < SLIDER_LEFT - 10 || mouseX > SLIDER_RIGHT + 10) {
+			return;
+		}
+		int years = lifeExpTable.getYearCount();
+		int year = round(map(constrain(mouseX, SLIDER_LEFT, SLIDER_RIGHT), SLIDER_LEFT, SLIDER_RIGHT, 0, years - 1));
+		showYear(year);
 	}
 }
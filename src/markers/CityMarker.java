@@ -11,6 +11,16 @@ import processing.core.PGraphics;
  */
 public class CityMarker extends CommonMarker {
 	
+	// Fill color of the city triangle as ARGB
+	public static final int CITY_COLOR = 0xFFF76116;
+	// Corners of the triangle from the location of the city: above it, and left and right below it
+	public static final float TRIANGLE_TOP = 7;
+	public static final float TRIANGLE_HALF_WIDTH = 4;
+	public static final float TRIANGLE_BOTTOM = 3;
+	
+	// name-country-population, made once so showing the title does not build a string every frame
+	private String title;
+	
 	/**
 	 * Constructor with location information as parameter
 	 * @param loc is the location information with Location data type
@@ -25,6 +35,7 @@ public class CityMarker extends CommonMarker {
 	 */
 	public CityMarker(PointFeature feature) {
 		super(feature);
+		title = feature.getProperty("name") + "-" + feature.getProperty("country") + "-" + feature.getProperty("population");
 	}
 	
 	/*
@@ -37,12 +48,25 @@ public class CityMarker extends CommonMarker {
 		pg.pushStyle();
 
 		// Set color and draw triangle
-		pg.fill(247, 97, 22);
-		pg.triangle(x, y - 7, x - 4, y + 3, x + 4, y + 3);
+		pg.fill(CITY_COLOR);
+		drawTriangle(pg, x, y, 1);
 
 		// Restore previous drawing style
 		pg.popStyle();
 	}
+	
+	/**
+	 * This method draws the city triangle without a marker, e.g. for a vector tile or the legend,
+	 * with the fill and stroke of the graph
+	 * @param pg is processing graph object
+	 * @param x is the x location of the city
+	 * @param y is the y location of the city
+	 * @param scale is 1 for the size of the marker
+	 */
+	public static void drawTriangle(PGraphics pg, float x, float y, float scale) {
+		pg.triangle(x, y - TRIANGLE_TOP * scale, x - TRIANGLE_HALF_WIDTH * scale, y + TRIANGLE_BOTTOM * scale,
+				x + TRIANGLE_HALF_WIDTH * scale, y + TRIANGLE_BOTTOM * scale);
+	}
 
 	/*
 	 * Implement the showTitle method, show name + country + population of the city marker
@@ -50,11 +74,10 @@ public class CityMarker extends CommonMarker {
 	 */
 	@Override
 	public void showTitle(PGraphics pg, float x, float y) {
-		if(this.isSelected()) {
-			String cityInfo = this.getProperty("name").toString() + "-" + this.getProperty("country").toString() +  "-" + this.getProperty("population").toString();
+		if(this.isSelected() && title != null) {
 			pg.fill(0,0,0);
-			pg.text(cityInfo,x + 15, y);
-			pg.line(x + 15, y + 4, x + 15 + cityInfo.length()*6, y + 4);
+			pg.text(title,x + 15, y);
+			pg.line(x + 15, y + 4, x + 15 + title.length()*6, y + 4);
 		}
 	}
 }
@@ -1,5 +1,7 @@
 package markers;
 
+import java.util.HashMap;
+
 import de.fhpotsdam.unfolding.data.PointFeature;
 import de.fhpotsdam.unfolding.geo.Location;
 import processing.core.PGraphics;
@@ -16,9 +18,30 @@ public abstract class EarthQuakeMarker extends CommonMarker implements Comparabl
 	public static final float BASE_RADIUS = 10;
 	public static final float EARTHQUAKE_SHALLOW = 70;
 	public static final float EARTHQUAKE_DEEP = 300;
+	// Number of style groups, see getStyleGroup()
+	public static final int STYLE_GROUPS = 36;
+	// Shapes of the land and the ocean quakes, see getShape()
+	public static final int SHAPE_ELLIPSE = 0;
+	public static final int SHAPE_SQUARE = 1;
+	// Fill colors of the shallow, intermediate and deep quakes as ARGB, by depth class
+	private static final int[] DEPTH_COLORS = { 0xFFFFFF00, 0xFF0000FF, 0xFFFF0000 };
+	
+	// The store and row this marker is a view on, null for markers made from a feature
+	protected EarthquakeStore store;
+	protected int row;
+	// Markers made from a feature decode its properties once, so drawing never parses them
+	private float magnitude;
+	private float depth;
+	private boolean pastHour;
+	private String title;
+	// Worked out by the first getStyleGroup(), -1 before
+	private int styleGroup = -1;
 	
 	public abstract void drawEarthquakeMarker(PGraphics pg, float x, float y);
 	
+	// Return the shape drawn by drawEarthquakeMarker, SHAPE_ELLIPSE or SHAPE_SQUARE
+	protected abstract int getShape();
+	
 	/**
 	 * Constructor with location information as parameter
 	 * @param loc is the location information with Location data type
@@ -33,14 +56,232 @@ public abstract class EarthQuakeMarker extends CommonMarker implements Comparabl
 	 */
 	public EarthQuakeMarker(PointFeature feature) {
 		super(feature);
-		float magnitude = Float.parseFloat(feature.getProperty("magnitude").toString());
+		magnitude = Float.parseFloat(feature.getProperty("magnitude").toString());
+		depth = Float.parseFloat(feature.getProperty("depth").toString());
+		pastHour = "Past Hour".equals(feature.getProperty("age"));
+		title = feature.getProperty("title") == null ? null : feature.getProperty("title").toString();
+		setRadiusByMagnitude(magnitude);
+	}
+	
+	/**
+	 * Constructor of a light marker which reads everything from a row of the earthquake store
+	 * instead of keeping its own properties
+	 * @param store contains the earthquakes
+	 * @param row is the row of this earthquake in the store
+	 */
+	public EarthQuakeMarker(EarthquakeStore store, int row) {
+		super(new Location(store.getLatitude(row), store.getLongitude(row)));
+		this.store = store;
+		this.row = row;
+		setRadiusByMagnitude(getMagnitude());
+	}
+	
+	/*
+	 * Set the size of the marker according to the magnitude
+	 */
+	private void setRadiusByMagnitude(float magnitude) {
+		radius = sizeRadius(sizeClass(magnitude));
+	}
+	
+	// Return the magnitude of the earthquake
+	public float getMagnitude() {
+		if(store != null) {
+			return store.getMagnitude(row);
+		}
+		return magnitude;
+	}
+	
+	// Return the depth of the earthquake in km
+	public float getDepth() {
+		if(store != null) {
+			return store.getDepth(row);
+		}
+		return depth;
+	}
+	
+	// Return whether the earthquake happened within the past hour
+	public boolean isPastHour() {
+		if(store != null) {
+			return store.isPastHour(row);
+		}
+		return pastHour;
+	}
+	
+	/**
+	 * This method makes a feature of the earthquake, e.g. to store it in a snapshot
+	 * @return the feature, with the id of the marker
+	 */
+	public PointFeature toFeature() {
+		if(store != null) {
+			return store.toFeature(row);
+		}
+		PointFeature feature = new PointFeature(getLocation());
+		feature.setId(getId());
+		if(getProperties() != null) {
+			feature.setProperties(new HashMap<String, Object>(getProperties()));
+		}
+		return feature;
+	}
+	
+	/**
+	 * This method frees the store row of a removed earthquake, the marker is not used afterwards
+	 */
+	public void release() {
+		if(store != null) {
+			store.remove(row);
+			store = null;
+		}
+	}
+	
+	/**
+	 * This method sets the age of the earthquake, the feed moves it on without changing the quake
+	 * @param age is the new age category, e.g. "Past Day", or null
+	 */
+	public void setAge(String age) {
+		if(store != null) {
+			store.setAge(row, age);
+		} else {
+			pastHour = "Past Hour".equals(age);
+			if(getProperties() != null) {
+				setProperty("age", age);
+			}
+		}
+		// the cross may come or go
+		styleGroup = -1;
+	}
+	
+	// Return the title of the earthquake
+	public String getTitle() {
+		if(store != null) {
+			return store.getTitle(row);
+		}
+		return title;
+	}
+	
+	// Return 0 for a shallow, 1 for an intermediate and 2 for a deep earthquake
+	public int getDepthClass() {
+		return depthClass(getDepth());
+	}
+	
+	// Return 0 for a shallow, 1 for an intermediate and 2 for a deep earthquake of this depth in km
+	public static int depthClass(float depth) {
+		if(depth > EARTHQUAKE_DEEP) {
+			return 2;
+		} else if(depth < EARTHQUAKE_SHALLOW) {
+			return 0;
+		}
+		return 1;
+	}
+	
+	// Return 0 for the small, 1 for the medium and 2 for the large marker of this magnitude
+	public static int sizeClass(float magnitude) {
 		if(magnitude > EARTHQUAKE_SEVERE) {
-			radius = (float) (BASE_RADIUS * 2);
+			return 2;
 		} else if(magnitude < EARTHQUAKE_MEDIUM) {
-			radius = BASE_RADIUS;
+			return 0;
+		}
+		return 1;
+	}
+	
+	// Return the marker size of a size class: BASE_RADIUS, one and a half and twice of it
+	public static float sizeRadius(int size) {
+		return BASE_RADIUS * (1 + size * 0.5f);
+	}
+	
+	// Return the fill color of a depth class as ARGB
+	public static int depthColor(int depthClass) {
+		return DEPTH_COLORS[depthClass];
+	}
+	
+	/**
+	 * This method returns the style group of the marker. Markers of the same group are drawn with the
+	 * same shape, color, size and cross, so they can be drawn one after another with one style setup.
+	 * @return a number from 0 to STYLE_GROUPS - 1
+	 */
+	public int getStyleGroup() {
+		if(styleGroup < 0) {
+			styleGroup = styleGroup(getShape(), getDepthClass(), sizeClass(getMagnitude()), isPastHour());
+		}
+		return styleGroup;
+	}
+	
+	/**
+	 * This method works out the style group of an earthquake without a marker, e.g. for a vector tile
+	 * @param shape is SHAPE_ELLIPSE or SHAPE_SQUARE
+	 * @param depthClass is the depth class, as depthClass()
+	 * @param size is the size class, as sizeClass()
+	 * @param pastHour is true for a quake of the past hour
+	 * @return a number from 0 to STYLE_GROUPS - 1
+	 */
+	public static int styleGroup(int shape, int depthClass, int size, boolean pastHour) {
+		return ((shape * 3 + depthClass) * 3 + size) * 2 + (pastHour ? 1 : 0);
+	}
+	
+	// Return the shape of a style group, SHAPE_ELLIPSE or SHAPE_SQUARE
+	public static int styleShape(int styleGroup) {
+		return styleGroup / 18;
+	}
+	
+	// Return the depth class of a style group
+	public static int styleDepthClass(int styleGroup) {
+		return styleGroup / 6 % 3;
+	}
+	
+	// Return the size class of a style group
+	public static int styleSize(int styleGroup) {
+		return styleGroup / 2 % 3;
+	}
+	
+	// Return whether the quakes of a style group have the cross of the past hour
+	public static boolean stylePastHour(int styleGroup) {
+		return styleGroup % 2 == 1;
+	}
+	
+	/**
+	 * This method draws an earthquake of a style group without a marker, e.g. from a vector tile,
+	 * with the shape, color, size and cross the land and ocean quake markers have
+	 * @param pg is processing graph object, its stroke is used for the outline and the cross
+	 * @param styleGroup is the style group, as styleGroup()
+	 * @param x is the x location on the graph
+	 * @param y is the y location on the graph
+	 */
+	public static void drawStyleGroup(PGraphics pg, int styleGroup, float x, float y) {
+		float size = sizeRadius(styleSize(styleGroup));
+		pg.fill(depthColor(styleDepthClass(styleGroup)));
+		if(styleShape(styleGroup) == SHAPE_ELLIPSE) {
+			pg.ellipse(x, y, size, size);
 		} else {
-			radius = (float) (BASE_RADIUS * 1.5);
+			pg.rect(x - size/2, y - size/2, size, size);
+		}
+		if(stylePastHour(styleGroup)) {
+			pg.line(x - size/2, y - size/2, x + size/2, y + size/2);
+			pg.line(x - size/2, y + size/2, x + size/2, y - size/2);
+		}
+	}
+	
+	/*
+	 * Markers which are views on the store answer the earthquake properties from the store,
+	 * so code reading the properties by name keeps working.
+	 * @see de.fhpotsdam.unfolding.marker.AbstractMarker#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String key) {
+		if(store != null) {
+			if("magnitude".equals(key)) {
+				return store.getMagnitude(row);
+			} else if("depth".equals(key)) {
+				return store.getDepth(row);
+			} else if("age".equals(key)) {
+				return store.getAge(row);
+			} else if("title".equals(key)) {
+				return store.getTitle(row);
+			} else if("country".equals(key)) {
+				return store.getCountry(row);
+			} else if(properties == null) {
+				return null;
+			}
 		}
+		return super.getProperty(key);
 	}
 	
 	/*
@@ -58,7 +299,7 @@ public abstract class EarthQuakeMarker extends CommonMarker implements Comparabl
 		drawEarthquakeMarker(pg, x, y);
 		
 		// If the earthquake happens within 1 hour, draw a cross on the marker
-		if(super.getProperty("age").equals("Past Hour")) {
+		if(isPastHour()) {
 			drawCross(pg, x, y);
 		}
 		
@@ -80,14 +321,7 @@ public abstract class EarthQuakeMarker extends CommonMarker implements Comparabl
 	 * @param pg is processing graph object
 	 */
 	public void determineColor(PGraphics pg) {
-		float depth = Float.parseFloat(getProperty("depth").toString());
-		if(depth > EARTHQUAKE_DEEP) {
-			pg.fill(255, 0, 0);
-		} else if(depth < EARTHQUAKE_SHALLOW) {
-			pg.fill(255, 255, 0);
-		} else {
-			pg.fill(0, 0, 255);
-		}
+		pg.fill(depthColor(getDepthClass()));
 	}
 	
 	/*
@@ -96,7 +330,7 @@ public abstract class EarthQuakeMarker extends CommonMarker implements Comparabl
 	 */
 	@Override
 	public void showTitle(PGraphics pg, float x, float y) {
-		String earthquakeInfo = this.getProperty("title").toString();
+		String earthquakeInfo = getTitle();
 		pg.fill(0,0,0);
 		pg.text(earthquakeInfo, x + 15, y);	
 		pg.line(x + 15,  y + 4, x + 15 + earthquakeInfo.length()*6, y + 4);
@@ -107,16 +341,19 @@ public abstract class EarthQuakeMarker extends CommonMarker implements Comparabl
 	 * @return
 	 */
 	public double getImpactDistance() {
-		double impDist = 0;
+		return impactDistance(getMagnitude());
+	}
+	
+	// Return the impact distance in kilometer of an earthquake of this magnitude
+	public static double impactDistance(float magnitude) {
 		// Equation according to the website online
-		impDist = 1.6 * 2 * 20.0f * Math.pow(1.8, 2*Float.parseFloat(this.getProperty("magnitude").toString())-5);
-		return impDist;
+		return 1.6 * 2 * 20.0f * Math.pow(1.8, 2*magnitude-5);
 	}
 	
 	/**
 	 * This method is call when want to print out the information of the earthquake.
 	 */
 	public String toString() {
-		return this.getStringProperty("title");
+		return getTitle();
 	}
 }
@@ -0,0 +1,110 @@
+package markers;
+
+import java.util.Arrays;
+
+import processing.core.PGraphics;
+
+/**
+ * This class draws many earthquake markers with few style changes. Instead of every marker saving the
+ * style, setting its color, drawing and restoring the style, the markers of a frame are collected first
+ * and sorted by their style group (shape, color, size and cross). Every group then sets the style once
+ * and draws all its markers. Selected and clicked markers still go through their own draw(), after all
+ * the others, so they are on top and show their title.
+ * Markers of the same group overlap in the order they were added, and the crosses of a group are drawn
+ * over all of its shapes.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class EarthquakeBatchRenderer {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int size;
+	private EarthQuakeMarker[] markers = new EarthQuakeMarker[INITIAL_CAPACITY];
+	private float[] xs = new float[INITIAL_CAPACITY];
+	private float[] ys = new float[INITIAL_CAPACITY];
+	private int[] groups = new int[INITIAL_CAPACITY];
+	// The markers sorted by group, and where every group starts
+	private int[] order = new int[INITIAL_CAPACITY];
+	private final int[] groupStart = new int[EarthQuakeMarker.STYLE_GROUPS + 1];
+	private final int[] groupNext = new int[EarthQuakeMarker.STYLE_GROUPS];
+
+	/**
+	 * This method adds a marker to draw in the next flush(). Hidden markers are left out.
+	 * @param marker is the marker
+	 * @param x is the screen x of the marker
+	 * @param y is the screen y of the marker
+	 */
+	public void add(EarthQuakeMarker marker, float x, float y) {
+		if (marker.isHidden()) {
+			return;
+		}
+		if (size == markers.length) {
+			int capacity = size * 2;
+			markers = Arrays.copyOf(markers, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			groups = Arrays.copyOf(groups, capacity);
+			order = new int[capacity];
+		}
+		markers[size] = marker;
+		xs[size] = x;
+		ys[size] = y;
+		groups[size] = marker.isSelected() || marker.getClicked() ? -1 : marker.getStyleGroup();
+		size++;
+	}
+
+	/**
+	 * This method draws the markers added since the last flush, group by group, then the selected
+	 * and clicked ones on their own
+	 * @param pg is the graphics to draw on
+	 */
+	public void flush(PGraphics pg) {
+		// Counting sort by group, the markers of a group stay in the order they were added
+		Arrays.fill(groupStart, 0);
+		for (int i = 0; i < size; i++) {
+			if (groups[i] >= 0) {
+				groupStart[groups[i] + 1]++;
+			}
+		}
+		for (int group = 0; group < EarthQuakeMarker.STYLE_GROUPS; group++) {
+			groupStart[group + 1] += groupStart[group];
+		}
+		System.arraycopy(groupStart, 0, groupNext, 0, EarthQuakeMarker.STYLE_GROUPS);
+		for (int i = 0; i < size; i++) {
+			if (groups[i] >= 0) {
+				order[groupNext[groups[i]]++] = i;
+			}
+		}
+
+		for (int group = 0; group < EarthQuakeMarker.STYLE_GROUPS; group++) {
+			int start = groupStart[group];
+			int end = groupStart[group + 1];
+			if (start == end) {
+				continue;
+			}
+			pg.pushStyle();
+			markers[order[start]].determineColor(pg);
+			for (int k = start; k < end; k++) {
+				int i = order[k];
+				markers[i].drawEarthquakeMarker(pg, xs[i], ys[i]);
+			}
+			// the last bit of the group is the cross of the past hour quakes
+			if ((group & 1) == 1) {
+				for (int k = start; k < end; k++) {
+					int i = order[k];
+					markers[i].drawCross(pg, xs[i], ys[i]);
+				}
+			}
+			pg.popStyle();
+		}
+
+		for (int i = 0; i < size; i++) {
+			if (groups[i] < 0) {
+				markers[i].draw(pg, xs[i], ys[i]);
+			}
+		}
+		Arrays.fill(markers, 0, size, null);
+		size = 0;
+	}
+}
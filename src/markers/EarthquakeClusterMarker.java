@@ -0,0 +1,82 @@
+package markers;
+
+import de.fhpotsdam.unfolding.geo.Location;
+import processing.core.PGraphics;
+import spatial.QuakeClusterIndex;
+
+/**
+ * This class defines the marker of a cluster of earthquakes: a circle whose size grows with the
+ * number of quakes, colored by the depth class most of them have, with a thick red ring when the
+ * largest quake is severe. One marker is reused for drawing every cluster, set() gives it the
+ * values of the cluster before it is drawn. The clusters in view also get a marker at their
+ * location each, for finding the cluster under the mouse and showing its title.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class EarthquakeClusterMarker extends CommonMarker {
+
+	private int count;
+	private float maxMagnitude;
+	private byte depthClass;
+
+	/**
+	 * Constructor of an empty cluster marker
+	 */
+	public EarthquakeClusterMarker() {
+		super(new Location(0, 0));
+	}
+
+	/**
+	 * Constructor of a cluster marker at the location of its cluster
+	 * @param location is the center of the cluster
+	 */
+	public EarthquakeClusterMarker(Location location) {
+		super(location);
+	}
+
+	/**
+	 * This method sets the cluster this marker draws
+	 * @param count is the number of quakes in the cluster
+	 * @param maxMagnitude is the largest magnitude in the cluster
+	 * @param depthClass is QuakeClusterIndex.SHALLOW, INTERMEDIATE or DEEP
+	 */
+	public void set(int count, float maxMagnitude, byte depthClass) {
+		this.count = count;
+		this.maxMagnitude = maxMagnitude;
+		this.depthClass = depthClass;
+		radius = EarthQuakeMarker.BASE_RADIUS * 2 + 8 * (float) Math.log10(count);
+	}
+
+	/*
+	 * Draw a circle with the number of quakes in it
+	 * @see markers.CommonMarker#drawMarker(processing.core.PGraphics, float, float)
+	 */
+	@Override
+	public void drawMarker(PGraphics pg, float x, float y) {
+		pg.pushStyle();
+		// Same colors as the depth of a single earthquake marker
+		pg.fill(EarthQuakeMarker.depthColor(depthClass), 200);
+		if(maxMagnitude > EarthQuakeMarker.EARTHQUAKE_SEVERE) {
+			pg.stroke(255, 0, 0);
+			pg.strokeWeight(3);
+		}
+		pg.ellipse(x, y, radius, radius);
+
+		pg.fill(0, 0, 0);
+		pg.textAlign(PGraphics.CENTER, PGraphics.CENTER);
+		pg.text(count, x, y);
+		pg.popStyle();
+	}
+
+	/*
+	 * Show the number of quakes and the largest magnitude
+	 * @see markers.CommonMarker#showTitle(processing.core.PGraphics, float, float)
+	 */
+	@Override
+	public void showTitle(PGraphics pg, float x, float y) {
+		String clusterInfo = count + " earthquakes, largest M " + maxMagnitude;
+		pg.fill(0, 0, 0);
+		pg.text(clusterInfo, x + 15, y);
+		pg.line(x + 15, y + 4, x + 15 + clusterInfo.length()*6, y + 4);
+	}
+}
@@ -0,0 +1,127 @@
+package markers;
+
+import processing.core.PGraphics;
+
+/**
+ * This class holds the layout of the key of the earthquake map: the panel, and for every line of the
+ * key its shape, color and label. The map draws it with Processing and the snapshots with Java2D,
+ * both read it from here so the two keys stay the same.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class EarthquakeLegend {
+
+	// Size of the image the key fits in
+	public static final int WIDTH = 171;
+	public static final int HEIGHT = 351;
+	public static final int PANEL_LEFT = 20;
+	public static final int PANEL_TOP = 10;
+	public static final int PANEL_WIDTH = 150;
+	public static final int PANEL_HEIGHT = 340;
+	public static final int PANEL_COLOR = 0xFFFFFFC8;
+
+	// Shapes of the lines of the key, a text line has no shape
+	public static final int KEY_TEXT = 0;
+	public static final int KEY_CITY = 1;
+	public static final int KEY_ELLIPSE = 2;
+	public static final int KEY_SQUARE = 3;
+	public static final int KEY_PAST_HOUR = 4;
+
+	// The city triangle of the key is a bit larger than the one on the map
+	public static final float CITY_SCALE = 1.2f;
+	// Half the length of the cross of the past hour, it reaches over the circle
+	public static final float PAST_HOUR_CROSS = 10;
+
+	private static final int[] SHAPES = { KEY_TEXT, KEY_CITY, KEY_ELLIPSE, KEY_SQUARE, KEY_TEXT,
+			KEY_ELLIPSE, KEY_ELLIPSE, KEY_ELLIPSE, KEY_PAST_HOUR };
+	// Centers and sizes of the shapes
+	private static final float[] SHAPE_X = { 0, 44, 44, 45, 0, 46, 46, 46, 46 };
+	private static final float[] SHAPE_Y = { 0, 91.4f, 126, 158, 0, 230, 260, 290, 320 };
+	private static final float[] SHAPE_SIZES = { 0, 0, 12, 10, 0, 15, 15, 15, 15 };
+	private static final int[] COLORS = { 0, 0xFFFF0000, 0xFFFFFFFF, 0xFFFFFFFF, 0,
+			EarthQuakeMarker.depthColor(0), EarthQuakeMarker.depthColor(1), EarthQuakeMarker.depthColor(2), 0xFFFFFFFF };
+	private static final String[] LABELS = { "Earthquake Key", "City Marker", "Land Quake", "Ocean Quake",
+			"Size - Magnitude", "Shallow", "Intermediate", "Deep", "Past Hour" };
+	private static final float[] LABEL_X = { 42, 60, 60, 60, 40, 63, 63, 63, 63 };
+	private static final float[] LABEL_Y = { 50, 93, 129, 162, 200, 233, 263, 293, 323 };
+
+	// Return the number of lines of the key
+	public static int getKeyCount() {
+		return SHAPES.length;
+	}
+
+	// Return the shape of a line of the key, one of the KEY_ constants
+	public static int getShape(int key) {
+		return SHAPES[key];
+	}
+
+	// Return the x location of the center of the shape
+	public static float getShapeX(int key) {
+		return SHAPE_X[key];
+	}
+
+	// Return the y location of the center of the shape
+	public static float getShapeY(int key) {
+		return SHAPE_Y[key];
+	}
+
+	// Return the width and height of an ellipse or a square
+	public static float getShapeSize(int key) {
+		return SHAPE_SIZES[key];
+	}
+
+	// Return the fill color of the shape as ARGB
+	public static int getColor(int key) {
+		return COLORS[key];
+	}
+
+	// Return the text of a line of the key
+	public static String getLabel(int key) {
+		return LABELS[key];
+	}
+
+	// Return the x location of the text
+	public static float getLabelX(int key) {
+		return LABEL_X[key];
+	}
+
+	// Return the y location of the text
+	public static float getLabelY(int key) {
+		return LABEL_Y[key];
+	}
+
+	/**
+	 * This method draws the key with Processing, the outlines and crosses with the stroke of the graph
+	 * @param pg is processing graph object
+	 */
+	public static void draw(PGraphics pg) {
+		pg.fill(PANEL_COLOR);
+		pg.rect(PANEL_LEFT, PANEL_TOP, PANEL_WIDTH, PANEL_HEIGHT);
+		for (int key = 0; key < getKeyCount(); key++) {
+			float x = SHAPE_X[key];
+			float y = SHAPE_Y[key];
+			float size = SHAPE_SIZES[key];
+			pg.fill(COLORS[key]);
+			switch (SHAPES[key]) {
+			case KEY_CITY:
+				CityMarker.drawTriangle(pg, x, y, CITY_SCALE);
+				break;
+			case KEY_ELLIPSE:
+				pg.ellipse(x, y, size, size);
+				break;
+			case KEY_SQUARE:
+				pg.rect(x - size / 2, y - size / 2, size, size);
+				break;
+			case KEY_PAST_HOUR:
+				pg.ellipse(x, y, size, size);
+				pg.line(x - PAST_HOUR_CROSS, y - PAST_HOUR_CROSS, x + PAST_HOUR_CROSS, y + PAST_HOUR_CROSS);
+				pg.line(x - PAST_HOUR_CROSS, y + PAST_HOUR_CROSS, x + PAST_HOUR_CROSS, y - PAST_HOUR_CROSS);
+				break;
+			default:
+				break;
+			}
+			pg.fill(0, 0, 0);
+			pg.text(LABELS[key], LABEL_X[key], LABEL_Y[key]);
+		}
+	}
+}
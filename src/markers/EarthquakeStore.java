@@ -0,0 +1,254 @@
+package markers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+import de.fhpotsdam.unfolding.geo.Location;
+
+/**
+ * This class keeps the earthquakes in columns of primitive arrays instead of one feature and one
+ * property map per quake. Location, magnitude and depth are floats, the age and the country are
+ * small codes into a dictionary. The earthquake markers are light views on a row of the store.
+ * The row of a removed quake is freed and given to the next quake added, so a store which is
+ * patched on every refresh of the feed does not grow beyond the most quakes it held at once.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class EarthquakeStore {
+
+	// Code of a quake which is not in any country
+	public static final short NO_COUNTRY = -1;
+	// Code of a quake without age
+	public static final byte NO_AGE = -1;
+	private static final String PAST_HOUR = "Past Hour";
+	private static final int INITIAL_CAPACITY = 256;
+
+	private int size;
+	// Rows of removed quakes, used again before the columns grow
+	private int[] freeRows = new int[INITIAL_CAPACITY];
+	private int freeCount;
+	private float[] latitudes = new float[INITIAL_CAPACITY];
+	private float[] longitudes = new float[INITIAL_CAPACITY];
+	private float[] magnitudes = new float[INITIAL_CAPACITY];
+	private float[] depths = new float[INITIAL_CAPACITY];
+	private byte[] ages = new byte[INITIAL_CAPACITY];
+	private short[] countries = new short[INITIAL_CAPACITY];
+	private boolean[] onLand = new boolean[INITIAL_CAPACITY];
+	private String[] titles = new String[INITIAL_CAPACITY];
+	private String[] ids = new String[INITIAL_CAPACITY];
+
+	// Dictionaries of the coded columns
+	private final List<String> ageNames = new ArrayList<String>();
+	private final HashMap<String, Byte> ageCodes = new HashMap<String, Byte>();
+	private final List<String> countryNames = new ArrayList<String>();
+	private final HashMap<String, Short> countryCodes = new HashMap<String, Short>();
+	private byte pastHourCode = NO_AGE;
+
+	/**
+	 * This method adds an earthquake from its parsed feature.
+	 * @param feature contains the location, title, magnitude, depth, age and, for land quakes, the country
+	 * @param land is true if the quake is in a country
+	 * @return the row of the earthquake
+	 */
+	public int add(PointFeature feature, boolean land) {
+		int row;
+		if (freeCount > 0) {
+			row = freeRows[--freeCount];
+		} else {
+			if (size == latitudes.length) {
+				grow();
+			}
+			row = size++;
+		}
+		latitudes[row] = feature.getLocation().getLat();
+		longitudes[row] = feature.getLocation().getLon();
+		magnitudes[row] = toFloat(feature.getProperty("magnitude"));
+		depths[row] = toFloat(feature.getProperty("depth"));
+		ages[row] = ageCode(feature.getProperty("age"));
+		countries[row] = countryCode(feature.getProperty("country"));
+		onLand[row] = land;
+		titles[row] = feature.getProperty("title") == null ? null : feature.getProperty("title").toString();
+		ids[row] = feature.getId();
+		return row;
+	}
+
+	/**
+	 * This method sets the age of an earthquake, the feed moves it on e.g. from "Past Hour" to "Past Day".
+	 * @param row is the row of the earthquake
+	 * @param age is the new age, or null
+	 */
+	public void setAge(int row, String age) {
+		ages[row] = ageCode(age);
+	}
+
+	/**
+	 * This method makes a feature of a row again, with the properties add() reads, e.g. to store it.
+	 * @param row is the row of the earthquake
+	 * @return the feature with the id of the row
+	 */
+	public PointFeature toFeature(int row) {
+		PointFeature feature = new PointFeature(new Location(latitudes[row], longitudes[row]));
+		feature.setId(ids[row]);
+		if (titles[row] != null) {
+			feature.putProperty("title", titles[row]);
+		}
+		if (!Float.isNaN(magnitudes[row])) {
+			feature.putProperty("magnitude", magnitudes[row]);
+		}
+		if (!Float.isNaN(depths[row])) {
+			feature.putProperty("depth", depths[row]);
+		}
+		if (getAge(row) != null) {
+			feature.putProperty("age", getAge(row));
+		}
+		if (getCountry(row) != null) {
+			feature.putProperty("country", getCountry(row));
+		}
+		return feature;
+	}
+
+	/**
+	 * This method frees the row of a removed earthquake, its title and id are dropped and the row is
+	 * given to a later add(). A marker on the row must not be used any more.
+	 * @param row is the row of the earthquake
+	 */
+	public void remove(int row) {
+		titles[row] = null;
+		ids[row] = null;
+		ages[row] = NO_AGE;
+		countries[row] = NO_COUNTRY;
+		if (freeCount == freeRows.length) {
+			freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+		}
+		freeRows[freeCount++] = row;
+	}
+
+	// Return the number of rows, including the free ones
+	public int size() {
+		return size;
+	}
+
+	// Return the number of earthquakes in the store
+	public int getEarthquakeCount() {
+		return size - freeCount;
+	}
+
+	public float getLatitude(int row) {
+		return latitudes[row];
+	}
+
+	public float getLongitude(int row) {
+		return longitudes[row];
+	}
+
+	public float getMagnitude(int row) {
+		return magnitudes[row];
+	}
+
+	public float getDepth(int row) {
+		return depths[row];
+	}
+
+	public boolean isOnLand(int row) {
+		return onLand[row];
+	}
+
+	public boolean isPastHour(int row) {
+		return ages[row] != NO_AGE && ages[row] == pastHourCode;
+	}
+
+	public String getAge(int row) {
+		return ages[row] == NO_AGE ? null : ageNames.get(ages[row]);
+	}
+
+	public short getCountryCode(int row) {
+		return countries[row];
+	}
+
+	public String getCountry(int row) {
+		return countries[row] == NO_COUNTRY ? null : countryNames.get(countries[row]);
+	}
+
+	public String getTitle(int row) {
+		return titles[row];
+	}
+
+	public String getId(int row) {
+		return ids[row];
+	}
+
+	/*
+	 * Doubles the capacity of every column.
+	 */
+	private void grow() {
+		int capacity = latitudes.length * 2;
+		latitudes = Arrays.copyOf(latitudes, capacity);
+		longitudes = Arrays.copyOf(longitudes, capacity);
+		magnitudes = Arrays.copyOf(magnitudes, capacity);
+		depths = Arrays.copyOf(depths, capacity);
+		ages = Arrays.copyOf(ages, capacity);
+		countries = Arrays.copyOf(countries, capacity);
+		onLand = Arrays.copyOf(onLand, capacity);
+		titles = Arrays.copyOf(titles, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+	}
+
+	/*
+	 * Returns the code of the age, adding it to the dictionary if it is new.
+	 */
+	private byte ageCode(Object age) {
+		if (age == null) {
+			return NO_AGE;
+		}
+		String name = age.toString();
+		Byte code = ageCodes.get(name);
+		if (code == null) {
+			if (ageNames.size() == Byte.MAX_VALUE) {
+				throw new IllegalStateException("Too many different earthquake ages");
+			}
+			code = (byte) ageNames.size();
+			ageNames.add(name);
+			ageCodes.put(name, code);
+			if (PAST_HOUR.equals(name)) {
+				pastHourCode = code;
+			}
+		}
+		return code;
+	}
+
+	/*
+	 * Returns the code of the country, adding it to the dictionary if it is new.
+	 */
+	private short countryCode(Object country) {
+		if (country == null) {
+			return NO_COUNTRY;
+		}
+		String name = country.toString();
+		Short code = countryCodes.get(name);
+		if (code == null) {
+			if (countryNames.size() == Short.MAX_VALUE) {
+				throw new IllegalStateException("Too many different countries");
+			}
+			code = (short) countryNames.size();
+			countryNames.add(name);
+			countryCodes.put(name, code);
+		}
+		return code;
+	}
+
+	/*
+	 * Converts a Float or text property into a float, NaN if missing.
+	 */
+	private static float toFloat(Object value) {
+		if (value == null) {
+			return Float.NaN;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).floatValue();
+		}
+		return Float.parseFloat(value.toString());
+	}
+}
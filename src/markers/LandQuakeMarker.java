@@ -26,6 +26,15 @@ public class LandQuakeMarker extends EarthQuakeMarker {
 	public LandQuakeMarker(PointFeature feature) {
 		super(feature);
 	}
+	
+	/**
+	 * Constructor of a light marker on a row of the earthquake store
+	 * @param store contains the earthquakes
+	 * @param row is the row of this earthquake in the store
+	 */
+	public LandQuakeMarker(EarthquakeStore store, int row) {
+		super(store, row);
+	}
 
 	/*
 	 * Draw a cross on the ellipse
@@ -47,6 +56,15 @@ public class LandQuakeMarker extends EarthQuakeMarker {
 		pg.ellipse(x, y, radius, radius);
 	}
 
+	/*
+	 * The marker is an ellipse
+	 * @see markers.EarthQuakeMarker#getShape()
+	 */
+	@Override
+	protected int getShape() {
+		return SHAPE_ELLIPSE;
+	}
+
 	/*
 	 * This method compare the magnitude of the earthquake maker and output the reverse result
 	 * If the magnitude of this earthquake is larger than the feed-in earthquake, than output -1, when 
@@ -55,9 +73,9 @@ public class LandQuakeMarker extends EarthQuakeMarker {
 	 */
 	@Override
 	public int compareTo(EarthQuakeMarker o) {
-		if(Float.parseFloat(this.getProperty("magnitude").toString()) > Float.parseFloat(o.getProperty("magnitude").toString())) {
+		if(this.getMagnitude() > o.getMagnitude()) {
 			return -1;
-		} else if(Float.parseFloat(this.getProperty("magnitude").toString()) < Float.parseFloat(o.getProperty("magnitude").toString())) {
+		} else if(this.getMagnitude() < o.getMagnitude()) {
 			return 1;
 		}
 		return 0;
@@ -26,6 +26,15 @@ public class OceanQuakeMarker extends EarthQuakeMarker {
 	public OceanQuakeMarker(PointFeature feature) {
 		super(feature);
 	}
+	
+	/**
+	 * Constructor of a light marker on a row of the earthquake store
+	 * @param store contains the earthquakes
+	 * @param row is the row of this earthquake in the store
+	 */
+	public OceanQuakeMarker(EarthquakeStore store, int row) {
+		super(store, row);
+	}
 
 	/*
 	 * Draw a cross on the rectangle
@@ -48,6 +57,15 @@ public class OceanQuakeMarker extends EarthQuakeMarker {
 		pg.rect(x - radius/2, y - radius/2, radius, radius);
 	}
 
+	/*
+	 * The marker is a square
+	 * @see markers.EarthQuakeMarker#getShape()
+	 */
+	@Override
+	protected int getShape() {
+		return SHAPE_SQUARE;
+	}
+
 	/*
 	 * This method compare the magnitude of the earthquake maker and output the reverse result
 	 * If the magnitude of this earthquake is larger than the feed-in earthquake, than output -1, when 
@@ -56,9 +74,9 @@ public class OceanQuakeMarker extends EarthQuakeMarker {
 	 */
 	@Override
 	public int compareTo(EarthQuakeMarker o) {
-		if(Float.parseFloat(this.getProperty("magnitude").toString()) > Float.parseFloat(o.getProperty("magnitude").toString())) {
+		if(this.getMagnitude() > o.getMagnitude()) {
 			return -1;
-		} else if(Float.parseFloat(this.getProperty("magnitude").toString()) < Float.parseFloat(o.getProperty("magnitude").toString())) {
+		} else if(this.getMagnitude() < o.getMagnitude()) {
 			return 1;
 		}
 		return 0;
@@ -0,0 +1,116 @@
+package markers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import de.fhpotsdam.unfolding.UnfoldingMap;
+import de.fhpotsdam.unfolding.geo.Location;
+import de.fhpotsdam.unfolding.marker.Marker;
+import de.fhpotsdam.unfolding.marker.MultiMarker;
+import de.fhpotsdam.unfolding.marker.SimplePolygonMarker;
+import spatial.PolygonSimplifier;
+
+/**
+ * This class defines a polygon marker which draws a simplified outline at low zoom levels.
+ * The outline of every zoom level is given by PolygonSimplifier, levels above the last one draw
+ * the full outline. Only the drawing changes, getLocations() and the inside tests always use the
+ * full outline.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class SimplifiedPolygonMarker extends SimplePolygonMarker {
+
+	private final List<Location> fullLocations;
+	// The outline to draw at every zoom level, zoomLocations[zoom]
+	private final List<List<Location>> zoomLocations;
+
+	/**
+	 * Constructor of the marker
+	 * @param locations is the full outline
+	 * @param zoomLocations is the outline of every zoom level from 0 on
+	 * @param properties are the properties of the marker
+	 */
+	public SimplifiedPolygonMarker(List<Location> locations, List<List<Location>> zoomLocations, HashMap<String, Object> properties) {
+		super(locations, properties);
+		this.fullLocations = locations;
+		this.zoomLocations = zoomLocations;
+	}
+
+	/**
+	 * This method replaces the polygon markers, also the ones inside multi markers, by simplified polygon
+	 * markers with the same properties and ids. All polygons are simplified together so neighbouring
+	 * countries keep a common border. Other markers are kept as they are.
+	 * @param markers are the markers, e.g. from FlatFeatureCollection.createMarkers()
+	 * @param maxZoom is the last zoom level with a simplified outline
+	 * @return the new list of markers
+	 */
+	public static List<Marker> simplify(List<Marker> markers, int maxZoom) {
+		List<List<Location>> rings = new ArrayList<List<Location>>();
+		for (Marker marker : markers) {
+			if (marker instanceof SimplePolygonMarker) {
+				rings.add(((SimplePolygonMarker) marker).getLocations());
+			} else if (marker instanceof MultiMarker) {
+				for (Marker part : ((MultiMarker) marker).getMarkers()) {
+					if (part instanceof SimplePolygonMarker) {
+						rings.add(((SimplePolygonMarker) part).getLocations());
+					}
+				}
+			}
+		}
+		List<List<List<Location>>> levels = PolygonSimplifier.simplify(rings, maxZoom);
+
+		// Rebuild the markers in the same order the rings were collected
+		int ring = 0;
+		List<Marker> simplified = new ArrayList<Marker>(markers.size());
+		for (Marker marker : markers) {
+			if (marker instanceof SimplePolygonMarker) {
+				SimplePolygonMarker polygon = (SimplePolygonMarker) marker;
+				Marker replacement = new SimplifiedPolygonMarker(polygon.getLocations(), levels.get(ring++), polygon.getProperties());
+				replacement.setId(polygon.getId());
+				simplified.add(replacement);
+			} else if (marker instanceof MultiMarker) {
+				MultiMarker replacement = new MultiMarker();
+				for (Marker part : ((MultiMarker) marker).getMarkers()) {
+					if (part instanceof SimplePolygonMarker) {
+						SimplePolygonMarker polygon = (SimplePolygonMarker) part;
+						part = new SimplifiedPolygonMarker(polygon.getLocations(), levels.get(ring++), polygon.getProperties());
+					}
+					replacement.addMarkers(part);
+				}
+				replacement.setProperties(marker.getProperties());
+				replacement.setId(marker.getId());
+				simplified.add(replacement);
+			} else {
+				simplified.add(marker);
+			}
+		}
+		return simplified;
+	}
+
+	/**
+	 * This method returns the outline drawn at a zoom level
+	 * @param zoom is the zoom level
+	 * @return the simplified outline, or the full outline above the simplified levels
+	 */
+	public List<Location> getLocations(int zoom) {
+		if (zoom < zoomLocations.size()) {
+			return zoomLocations.get(Math.max(0, zoom));
+		}
+		return fullLocations;
+	}
+
+	/*
+	 * Draw the outline of the current zoom level, then go back to the full outline
+	 * @see de.fhpotsdam.unfolding.marker.AbstractShapeMarker#draw(de.fhpotsdam.unfolding.UnfoldingMap)
+	 */
+	@Override
+	public void draw(UnfoldingMap map) {
+		locations = getLocations(map.getZoomLevel());
+		try {
+			super.draw(map);
+		} finally {
+			locations = fullLocations;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import processing.core.PApplet;
+
+/**
+ * This class splits CSV files into columns with a single state machine instead of a regular expression.
+ * Quoted columns may contain commas and doubled quotes, the quotes are removed from the result.
+ * Local files are memory mapped and, when they are large, cut into line-aligned chunks that are
+ * tokenized on all cores. The rows are always returned in file order.
+ * A quoted column must not contain a line break.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class CsvTokenizer {
+
+	// Files smaller than this are tokenized on the calling thread
+	private static final int PARALLEL_THRESHOLD = 1 << 20;
+	// Number of chunks per core, a few more than one keeps all cores busy till the end
+	private static final int CHUNKS_PER_CORE = 4;
+
+	/**
+	 * This interface turns the columns of one row into a result.
+	 * It is called from several threads at the same time, so it must not keep state.
+	 */
+	public interface RowMapper<T> {
+		/**
+		 * @param columns are the columns of the row, without quotes
+		 * @return the result for the row, or null to skip the row
+		 */
+		public T mapRow(String[] columns);
+	}
+
+	/**
+	 * This method reads the file and maps every non empty row.
+	 * @param p is the PApplet used to find files that are not on the disk, null to read only files on the disk
+	 * @param fileName is the file name, data folder file name or URL
+	 * @param mapper turns the columns of a row into the result
+	 * @return the results of all rows, in file order
+	 */
+	public static <T> List<T> parse(PApplet p, String fileName, final RowMapper<T> mapper) {
+		ByteBuffer data = load(p, fileName);
+		if (data == null) {
+			System.err.println("Could not open CSV file " + fileName);
+			return new ArrayList<T>();
+		}
+
+		int[] bounds = chunkBounds(data, data.limit() < PARALLEL_THRESHOLD ? 1
+				: Runtime.getRuntime().availableProcessors() * CHUNKS_PER_CORE);
+		if (bounds.length == 2) {
+			return tokenizeChunk(data, bounds[0], bounds[1], mapper);
+		}
+
+		// Tokenize the chunks in parallel, then join the results in order
+		List<Callable<List<T>>> tasks = new ArrayList<Callable<List<T>>>();
+		for (int i = 0; i + 1 < bounds.length; i++) {
+			final ByteBuffer chunkData = data.duplicate();
+			final int start = bounds[i];
+			final int end = bounds[i + 1];
+			tasks.add(new Callable<List<T>>() {
+				@Override
+				public List<T> call() {
+					return tokenizeChunk(chunkData, start, end, mapper);
+				}
+			});
+		}
+
+		List<T> results = new ArrayList<T>();
+		try {
+			for (Future<List<T>> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+				results.addAll(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error while tokenizing " + fileName, e.getCause());
+		}
+		return results;
+	}
+
+	/**
+	 * This method reads all non empty rows of the file.
+	 * @param p is the PApplet used to find files that are not on the disk, null to read only files on the disk
+	 * @param fileName is the file name, data folder file name or URL
+	 * @return the columns of every row, in file order
+	 */
+	public static List<String[]> readRows(PApplet p, String fileName) {
+		return parse(p, fileName, new RowMapper<String[]>() {
+			@Override
+			public String[] mapRow(String[] columns) {
+				return columns;
+			}
+		});
+	}
+
+	/*
+	 * Memory maps the file if it is on the disk, otherwise loads its bytes through the PApplet.
+	 */
+	private static ByteBuffer load(PApplet p, String fileName) {
+		File file = findFile(p, fileName);
+		if (file != null && file.length() < Integer.MAX_VALUE) {
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+					FileChannel channel = raf.getChannel()) {
+				// the mapping stays valid after the channel is closed
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} catch (IOException e) {
+				System.err.println("Could not map " + file + ", reading it instead: " + e.getMessage());
+			}
+		}
+		if (p == null) {
+			// headless, there is no sketch to load from
+			return null;
+		}
+		byte[] bytes = p.loadBytes(fileName);
+		return bytes == null ? null : ByteBuffer.wrap(bytes);
+	}
+
+	/*
+	 * Looks for the file the same places Processing does: as given, in the data folder and in the sketch folder.
+	 */
+	private static File findFile(PApplet p, String fileName) {
+		if (fileName.contains(":/")) {
+			// URL
+			return null;
+		}
+		File file = new File(fileName);
+		if (file.isFile()) {
+			return file;
+		}
+		if (!file.isAbsolute() && p != null) {
+			file = new File(p.dataPath(fileName));
+			if (file.isFile()) {
+				return file;
+			}
+			file = new File(p.sketchPath(fileName));
+			if (file.isFile()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Cuts the data into about the given number of chunks which all end just after a line break.
+	 * Returns the chunk start offsets followed by the end of the data.
+	 */
+	private static int[] chunkBounds(ByteBuffer data, int chunks) {
+		int length = data.limit();
+		List<Integer> bounds = new ArrayList<Integer>();
+		bounds.add(0);
+		int step = Math.max(1, length / Math.max(1, chunks));
+		int pos = step;
+		while (pos < length) {
+			// move forward to the start of the next line
+			while (pos < length && data.get(pos - 1) != '\n') {
+				pos++;
+			}
+			if (pos < length) {
+				bounds.add(pos);
+			}
+			pos += step;
+		}
+		bounds.add(length);
+
+		int[] result = new int[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	/*
+	 * Runs the CSV state machine over one chunk and maps every non empty row.
+	 */
+	private static <T> List<T> tokenizeChunk(ByteBuffer data, int start, int end, RowMapper<T> mapper) {
+		// copy the chunk once, indexing a byte array is much faster than the buffer
+		byte[] bytes = new byte[end - start];
+		ByteBuffer chunk = data.duplicate();
+		chunk.position(start);
+		chunk.get(bytes);
+
+		List<T> results = new ArrayList<T>();
+		List<String> columns = new ArrayList<String>();
+		int length = bytes.length;
+		int i = 0;
+
+		while (i < length) {
+			// skip empty lines between rows
+			if (columns.isEmpty() && (bytes[i] == '\r' || bytes[i] == '\n')) {
+				i++;
+				continue;
+			}
+
+			// start of a column
+			String column;
+			if (bytes[i] == '"') {
+				// quoted column, runs till the closing quote, "" is an escaped quote
+				int from = i + 1;
+				boolean escaped = false;
+				i = from;
+				while (i < length) {
+					if (bytes[i] == '"') {
+						if (i + 1 < length && bytes[i + 1] == '"') {
+							escaped = true;
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				column = escaped ? unescape(bytes, from, i) : new String(bytes, from, i - from, StandardCharsets.UTF_8);
+				// skip the closing quote and anything up to the separator
+				while (i < length && bytes[i] != ',' && bytes[i] != '\n') {
+					i++;
+				}
+			} else {
+				int from = i;
+				while (i < length && bytes[i] != ',' && bytes[i] != '\n') {
+					i++;
+				}
+				int to = i;
+				if (to > from && bytes[to - 1] == '\r') {
+					to--;
+				}
+				column = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+			}
+			columns.add(column);
+
+			if (i < length && bytes[i] == ',') {
+				i++;
+				if (i == length || bytes[i] == '\n' || bytes[i] == '\r') {
+					// separator right before the end of the row, the last column is empty
+					columns.add("");
+				}
+				else {
+					continue;
+				}
+			}
+
+			// end of row, skip the line break
+			while (i < length && (bytes[i] == '\r' || bytes[i] == '\n')) {
+				if (bytes[i] == '\n') {
+					i++;
+					break;
+				}
+				i++;
+			}
+			emitRow(columns, mapper, results);
+		}
+		return results;
+	}
+
+	/*
+	 * Hands the collected columns to the mapper and clears them for the next row.
+	 */
+	private static <T> void emitRow(List<String> columns, RowMapper<T> mapper, List<T> results) {
+		T result = mapper.mapRow(columns.toArray(new String[columns.size()]));
+		if (result != null) {
+			results.add(result);
+		}
+		columns.clear();
+	}
+
+	/*
+	 * Decodes a quoted column which contains doubled quotes.
+	 */
+	private static String unescape(byte[] bytes, int from, int to) {
+		byte[] out = new byte[to - from];
+		int n = 0;
+		for (int i = from; i < to; i++) {
+			out[n++] = bytes[i];
+			if (bytes[i] == '"' && i + 1 < to && bytes[i + 1] == '"') {
+				i++;
+			}
+		}
+		return new String(out, 0, n, StandardCharsets.UTF_8);
+	}
+}
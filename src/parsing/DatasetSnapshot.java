@@ -0,0 +1,323 @@
+package parsing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fhpotsdam.unfolding.data.Feature;
+import de.fhpotsdam.unfolding.data.PointFeature;
+import de.fhpotsdam.unfolding.geo.Location;
+
+/**
+ * This class stores the parsed and classified datasets of the earthquake map in a binary file, so the
+ * next start with the same input files can skip parsing and the point in polygon classification.
+ * The file is keyed by a SHA-256 hash of the input files and is read back through a memory mapping.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class DatasetSnapshot {
+
+	private static final int MAGIC = 0x45515331; // "EQS1"
+	private static final int VERSION = 1;
+
+	// Type tags of the property values
+	private static final byte TYPE_NULL = 0;
+	private static final byte TYPE_STRING = 1;
+	private static final byte TYPE_FLOAT = 2;
+	private static final byte TYPE_INTEGER = 3;
+	private static final byte TYPE_DOUBLE = 4;
+	private static final byte TYPE_BOOLEAN = 5;
+
+	private final List<PointFeature> earthquakeFeatures;
+	private final boolean[] onLand;
+	private final List<Feature> cityFeatures;
+	private final HashMap<String, Integer> earthquakeCounts;
+	private final HashMap<String, String> knownEntries;
+
+	/**
+	 * Constructor with the datasets to store
+	 * @param earthquakeFeatures are the parsed earthquakes, with the "country" property of land quakes
+	 * @param onLand tells for every earthquake whether it is a land quake
+	 * @param cityFeatures are the parsed cities, all of them PointFeatures
+	 * @param earthquakeCounts is the number of earthquakes by country name
+	 * @param knownEntries is the <updated> of every feed entry by entry <id>
+	 */
+	public DatasetSnapshot(List<PointFeature> earthquakeFeatures, boolean[] onLand, List<Feature> cityFeatures,
+			HashMap<String, Integer> earthquakeCounts, HashMap<String, String> knownEntries) {
+		this.earthquakeFeatures = earthquakeFeatures;
+		this.onLand = onLand;
+		this.cityFeatures = cityFeatures;
+		this.earthquakeCounts = earthquakeCounts;
+		this.knownEntries = knownEntries;
+	}
+
+	public List<PointFeature> getEarthquakeFeatures() {
+		return earthquakeFeatures;
+	}
+
+	public boolean isOnLand(int index) {
+		return onLand[index];
+	}
+
+	public List<Feature> getCityFeatures() {
+		return cityFeatures;
+	}
+
+	public HashMap<String, Integer> getEarthquakeCounts() {
+		return earthquakeCounts;
+	}
+
+	public HashMap<String, String> getKnownEntries() {
+		return knownEntries;
+	}
+
+	/**
+	 * This method computes the key of a snapshot from the content of its input files.
+	 * @param inputs are the bytes of every input file, in a fixed order
+	 * @return the SHA-256 hash of all inputs
+	 */
+	public static byte[] contentKey(byte[]... inputs) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (byte[] input : inputs) {
+				// the length keeps ("ab", "c") and ("a", "bc") apart
+				int length = input == null ? -1 : input.length;
+				digest.update(ByteBuffer.allocate(4).putInt(length).array());
+				if (input != null) {
+					digest.update(input);
+				}
+			}
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * This method writes the snapshot, the parent folders are created if needed.
+	 * @param file is the snapshot file
+	 * @param key is the content key of the input files
+	 * @throws IOException if the file can not be written
+	 */
+	public void save(File file, byte[] key) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		// write to a temporary file first so a crash never leaves half a snapshot
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(key.length);
+			out.write(key);
+
+			out.writeInt(earthquakeFeatures.size());
+			for (int i = 0; i < earthquakeFeatures.size(); i++) {
+				out.writeBoolean(onLand[i]);
+				writeFeature(out, earthquakeFeatures.get(i));
+			}
+
+			out.writeInt(cityFeatures.size());
+			for (Feature city : cityFeatures) {
+				writeFeature(out, (PointFeature) city);
+			}
+
+			out.writeInt(earthquakeCounts.size());
+			for (Map.Entry<String, Integer> entry : earthquakeCounts.entrySet()) {
+				writeString(out, entry.getKey());
+				out.writeInt(entry.getValue());
+			}
+
+			out.writeInt(knownEntries.size());
+			for (Map.Entry<String, String> entry : knownEntries.entrySet()) {
+				writeString(out, entry.getKey());
+				writeString(out, entry.getValue());
+			}
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Could not replace " + file);
+		}
+		if (!temp.renameTo(file)) {
+			throw new IOException("Could not rename " + temp + " to " + file);
+		}
+	}
+
+	/**
+	 * This method reads a snapshot if it exists and was made from the same input files.
+	 * @param file is the snapshot file
+	 * @param key is the content key of the current input files
+	 * @return the snapshot, or null if there is none, it is outdated or it can not be read
+	 */
+	public static DatasetSnapshot load(File file, byte[] key) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+				return null;
+			}
+			if (in.getInt() != key.length) {
+				return null;
+			}
+			byte[] storedKey = new byte[key.length];
+			in.get(storedKey);
+			if (!Arrays.equals(storedKey, key)) {
+				return null;
+			}
+
+			int quakeCount = in.getInt();
+			List<PointFeature> earthquakeFeatures = new ArrayList<PointFeature>(quakeCount);
+			boolean[] onLand = new boolean[quakeCount];
+			for (int i = 0; i < quakeCount; i++) {
+				onLand[i] = in.get() != 0;
+				earthquakeFeatures.add(readFeature(in));
+			}
+
+			int cityCount = in.getInt();
+			List<Feature> cityFeatures = new ArrayList<Feature>(cityCount);
+			for (int i = 0; i < cityCount; i++) {
+				cityFeatures.add(readFeature(in));
+			}
+
+			int countryCount = in.getInt();
+			HashMap<String, Integer> earthquakeCounts = new HashMap<String, Integer>();
+			for (int i = 0; i < countryCount; i++) {
+				String name = readString(in);
+				earthquakeCounts.put(name, in.getInt());
+			}
+
+			int entryCount = in.getInt();
+			HashMap<String, String> knownEntries = new HashMap<String, String>();
+			for (int i = 0; i < entryCount; i++) {
+				String id = readString(in);
+				knownEntries.put(id, readString(in));
+			}
+
+			return new DatasetSnapshot(earthquakeFeatures, onLand, cityFeatures, earthquakeCounts, knownEntries);
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			System.err.println("Ignoring unreadable snapshot " + file + ": " + e);
+			return null;
+		}
+	}
+
+	/*
+	 * Writes the id, location and properties of a point feature.
+	 */
+	private static void writeFeature(DataOutputStream out, PointFeature feature) throws IOException {
+		writeString(out, feature.getId());
+		out.writeFloat(feature.getLocation().getLat());
+		out.writeFloat(feature.getLocation().getLon());
+
+		HashMap<String, Object> properties = feature.getProperties();
+		out.writeInt(properties.size());
+		for (Map.Entry<String, Object> entry : properties.entrySet()) {
+			writeString(out, entry.getKey());
+			Object value = entry.getValue();
+			if (value == null) {
+				out.writeByte(TYPE_NULL);
+			} else if (value instanceof Float) {
+				out.writeByte(TYPE_FLOAT);
+				out.writeFloat((Float) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(TYPE_INTEGER);
+				out.writeInt((Integer) value);
+			} else if (value instanceof Double) {
+				out.writeByte(TYPE_DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof Boolean) {
+				out.writeByte(TYPE_BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			} else {
+				// everything else is kept by its text, like the JSON reader gives it
+				out.writeByte(TYPE_STRING);
+				writeString(out, value.toString());
+			}
+		}
+	}
+
+	/*
+	 * Reads a point feature written by writeFeature.
+	 */
+	private static PointFeature readFeature(ByteBuffer in) {
+		String id = readString(in);
+		float lat = in.getFloat();
+		float lon = in.getFloat();
+		PointFeature feature = new PointFeature(new Location(lat, lon));
+		feature.setId(id);
+
+		int propertyCount = in.getInt();
+		for (int i = 0; i < propertyCount; i++) {
+			String name = readString(in);
+			byte type = in.get();
+			switch (type) {
+			case TYPE_NULL:
+				feature.putProperty(name, null);
+				break;
+			case TYPE_FLOAT:
+				feature.putProperty(name, in.getFloat());
+				break;
+			case TYPE_INTEGER:
+				feature.putProperty(name, in.getInt());
+				break;
+			case TYPE_DOUBLE:
+				feature.putProperty(name, in.getDouble());
+				break;
+			case TYPE_BOOLEAN:
+				feature.putProperty(name, in.get() != 0);
+				break;
+			case TYPE_STRING:
+				feature.putProperty(name, readString(in));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown property type " + type);
+			}
+		}
+		return feature;
+	}
+
+	/*
+	 * Writes a nullable String as its UTF-8 length and bytes, -1 for null.
+	 */
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		if (str == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/*
+	 * Reads a String written by writeString.
+	 */
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		if (length > in.remaining()) {
+			throw new IllegalArgumentException("String longer than the snapshot");
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,250 @@
+package parsing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+import processing.core.PApplet;
+
+/**
+ * This class keeps track of an earthquake feed between refreshes. HTTP feeds are fetched with
+ * If-None-Match/If-Modified-Since so an unchanged feed is not downloaded again, and only the
+ * entries whose <id> is new or whose <updated> changed are parsed. Of the other entries only the
+ * age category is read, it moves on without a change of <updated>. Every refresh returns the
+ * difference to the previous one, so the caller can patch its markers instead of rebuilding them.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class EarthquakeFeedUpdater {
+
+	// Timeouts for the HTTP request in milliseconds
+	private static final int CONNECT_TIMEOUT = 10000;
+	private static final int READ_TIMEOUT = 30000;
+
+	private final PApplet p;
+	private final String source;
+	// Validators sent back to the server on the next request
+	private String eTag;
+	private String lastModified;
+	// <updated> of every entry currently in the feed, by entry <id>
+	private final Map<String, String> updatedById = new HashMap<String, String>();
+	// Age category of every entry currently in the feed, by entry <id>
+	private final Map<String, String> ageById = new HashMap<String, String>();
+
+	/**
+	 * This class holds the difference between two refreshes of the feed.
+	 */
+	public static class FeedUpdate {
+		private final List<PointFeature> addedFeatures = new ArrayList<PointFeature>();
+		private final List<PointFeature> changedFeatures = new ArrayList<PointFeature>();
+		private final List<String> removedIds = new ArrayList<String>();
+		private final Map<String, String> ageChanges = new HashMap<String, String>();
+
+		private FeedUpdate() {
+		}
+
+		// Return the features of entries which were not in the feed before
+		public List<PointFeature> getAddedFeatures() {
+			return addedFeatures;
+		}
+
+		// Return the features of entries whose <updated> changed, they replace the ones with the same id
+		public List<PointFeature> getChangedFeatures() {
+			return changedFeatures;
+		}
+
+		// Return the ids of entries which are no longer in the feed
+		public List<String> getRemovedIds() {
+			return removedIds;
+		}
+
+		// Return the new age category of unchanged entries by entry <id>, the age may be null
+		public Map<String, String> getAgeChanges() {
+			return ageChanges;
+		}
+
+		// Return whether anything has to be patched
+		public boolean isEmpty() {
+			return addedFeatures.isEmpty() && changedFeatures.isEmpty() && removedIds.isEmpty() && ageChanges.isEmpty();
+		}
+	}
+
+	/**
+	 * Constructor with the feed source
+	 * @param p is the PApplet used to open sources which are not HTTP URLs
+	 * @param source is the URL or file name of the feed
+	 */
+	public EarthquakeFeedUpdater(PApplet p, String source) {
+		this.p = p;
+		this.source = source;
+	}
+
+	/**
+	 * This method fetches the feed and returns what changed since the previous call.
+	 * The first call returns every entry as added.
+	 * If the feed can not be fetched or parsed, an empty update is returned and the
+	 * known state is kept, so the next refresh is compared with the last good one.
+	 * @return the difference to the previous refresh
+	 */
+	public synchronized FeedUpdate refresh() {
+		InputStream input = null;
+		HttpURLConnection connection = null;
+		try {
+			if (source.startsWith("http://") || source.startsWith("https://")) {
+				connection = (HttpURLConnection) new URL(source).openConnection();
+				connection.setConnectTimeout(CONNECT_TIMEOUT);
+				connection.setReadTimeout(READ_TIMEOUT);
+				if (eTag != null) {
+					connection.setRequestProperty("If-None-Match", eTag);
+				}
+				if (lastModified != null) {
+					connection.setRequestProperty("If-Modified-Since", lastModified);
+				}
+
+				int status = connection.getResponseCode();
+				if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					return new FeedUpdate();
+				}
+				if (status != HttpURLConnection.HTTP_OK) {
+					System.err.println("Earthquake feed " + source + " answered " + status);
+					return new FeedUpdate();
+				}
+				input = connection.getInputStream();
+			} else {
+				input = p.createInput(source);
+				if (input == null) {
+					System.err.println("Could not open earthquake feed " + source);
+					return new FeedUpdate();
+				}
+			}
+
+			FeedUpdate update = parseChanges(input);
+
+			// Only remember the validators once the body was parsed completely
+			if (connection != null) {
+				eTag = connection.getHeaderField("ETag");
+				lastModified = connection.getHeaderField("Last-Modified");
+			}
+			return update;
+		} catch (IOException e) {
+			System.err.println("Could not fetch earthquake feed " + source + ": " + e.getMessage());
+		} catch (XMLStreamException e) {
+			System.err.println("Error while streaming earthquake feed " + source + ": " + e.getMessage());
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+		return new FeedUpdate();
+	}
+
+	/**
+	 * This method returns the <updated> of every known entry by entry <id>, e.g. to store it with the features.
+	 * @return a copy of the known entries
+	 */
+	public synchronized HashMap<String, String> getKnownEntries() {
+		return new HashMap<String, String>(updatedById);
+	}
+
+	/**
+	 * This method sets the known entries, e.g. after the features were restored from a snapshot,
+	 * so the next refresh only parses the entries which changed since.
+	 * @param knownEntries are the <updated> of every entry by entry <id>
+	 */
+	public synchronized void setKnownEntries(Map<String, String> knownEntries) {
+		updatedById.clear();
+		updatedById.putAll(knownEntries);
+		// the ages are learned on the next refresh
+		ageById.clear();
+	}
+
+	/*
+	 * Streams the feed, parses only new or changed entries and works out the removed ones.
+	 * The known state is only changed if the whole feed was read.
+	 */
+	private FeedUpdate parseChanges(InputStream input) throws XMLStreamException {
+		final FeedUpdate update = new FeedUpdate();
+		// ids which are still in the feed, unchanged or parsed again
+		final Set<String> seenIds = new HashSet<String>();
+		final Map<String, String> newUpdatedById = new HashMap<String, String>();
+		final Map<String, String> newAgeById = new HashMap<String, String>();
+
+		ParseFeed.parseEarthquakeStreaming(input, new EntryFilter() {
+			@Override
+			public boolean acceptEntry(String id, String updated) {
+				if (updated != null && updated.equals(updatedById.get(id))) {
+					// unchanged, the existing feature stays
+					seenIds.add(id);
+					return false;
+				}
+				newUpdatedById.put(id, updated);
+				return true;
+			}
+
+			@Override
+			public void keptEntry(String id, String age) {
+				newAgeById.put(id, age);
+				// the age of entries known from a snapshot is not known, the caller compares it
+				if (!ageById.containsKey(id) || !equal(age, ageById.get(id))) {
+					update.ageChanges.put(id, age);
+				}
+			}
+		}, new PointFeatureHandler() {
+			@Override
+			public void handleFeature(PointFeature feature) {
+				String id = feature.getId();
+				if (id == null) {
+					// an entry without id can not be matched with later refreshes
+					return;
+				}
+				seenIds.add(id);
+				newAgeById.put(id, feature.getProperty("age") == null ? null : feature.getProperty("age").toString());
+				if (!newUpdatedById.containsKey(id)) {
+					// entry without <updated>, it is parsed again on every refresh
+					newUpdatedById.put(id, null);
+				}
+				if (updatedById.containsKey(id)) {
+					update.changedFeatures.add(feature);
+				} else {
+					update.addedFeatures.add(feature);
+				}
+			}
+		});
+
+		// The whole feed was read, so every known id not seen this time was removed
+		Iterator<String> it = updatedById.keySet().iterator();
+		while (it.hasNext()) {
+			String id = it.next();
+			if (!seenIds.contains(id)) {
+				update.removedIds.add(id);
+				it.remove();
+				ageById.remove(id);
+			}
+		}
+		ageById.putAll(newAgeById);
+		for (Map.Entry<String, String> entry : newUpdatedById.entrySet()) {
+			if (seenIds.contains(entry.getKey())) {
+				updatedById.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return update;
+	}
+
+	/*
+	 * Compares two values which may be null.
+	 */
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
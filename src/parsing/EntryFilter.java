@@ -0,0 +1,26 @@
+package parsing;
+
+/**
+ * This interface decides, from the id and the update time of a feed entry, whether the rest
+ * of the entry is worth parsing. Entries it rejects are skipped without being decoded.
+ * @author Yuming
+ * 10/17/2026
+ */
+public interface EntryFilter {
+	
+	/**
+	 * This method is called once for every entry as soon as its <id> and <updated> have been read
+	 * @param id is the unique id of the entry
+	 * @param updated is the update time of the entry as written in the feed
+	 * @return true if the entry should be parsed into a feature
+	 */
+	public boolean acceptEntry(String id, String updated);
+	
+	/**
+	 * This method is called at the end of every entry which acceptEntry() rejected, with its age.
+	 * The age category of a quake moves on, e.g. from "Past Hour" to "Past Day", while its <updated> stays.
+	 * @param id is the unique id of the entry
+	 * @param age is the term of the age category of the entry, or null if it has none
+	 */
+	public void keptEntry(String id, String age);
+}
@@ -0,0 +1,252 @@
+package parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+import de.fhpotsdam.unfolding.geo.Location;
+import de.fhpotsdam.unfolding.marker.Marker;
+import de.fhpotsdam.unfolding.marker.MultiMarker;
+import de.fhpotsdam.unfolding.marker.SimpleLinesMarker;
+import de.fhpotsdam.unfolding.marker.SimplePointMarker;
+import de.fhpotsdam.unfolding.marker.SimplePolygonMarker;
+
+/**
+ * This class holds the features of a GeoJSON file with all coordinates in one flat float array instead
+ * of one Location object per vertex. Every feature has one or more parts (the polygons of a MultiPolygon),
+ * every part has one or more rings (the outer ring first, then the holes) and every ring is a range of
+ * coordinates. The bounding box of every part and every feature is computed while reading.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class FlatFeatureCollection {
+
+	// Geometry types, as written in the file
+	public static final String POINT = "Point";
+	public static final String LINE_STRING = "LineString";
+	public static final String POLYGON = "Polygon";
+	public static final String MULTI_POLYGON = "MultiPolygon";
+
+	final List<String> ids = new ArrayList<String>();
+	final List<String> types = new ArrayList<String>();
+	final List<HashMap<String, Object>> properties = new ArrayList<HashMap<String, Object>>();
+	// Feature f has the parts featureParts[f] to featureParts[f + 1]
+	final IntList featureParts = new IntList();
+	// Part p has the rings partRings[p] to partRings[p + 1]
+	final IntList partRings = new IntList();
+	// Ring r has the coordinates ringCoordinates[r] to ringCoordinates[r + 1]
+	final IntList ringCoordinates = new IntList();
+	// Latitude and longitude of every coordinate, one after the other
+	final FloatList coordinates = new FloatList();
+	// Min latitude, min longitude, max latitude, max longitude of every part and every feature
+	final FloatList partBounds = new FloatList();
+	final FloatList featureBounds = new FloatList();
+
+	FlatFeatureCollection() {
+		featureParts.add(0);
+		partRings.add(0);
+		ringCoordinates.add(0);
+	}
+
+	// Return the number of features
+	public int getFeatureCount() {
+		return ids.size();
+	}
+
+	public String getId(int feature) {
+		return ids.get(feature);
+	}
+
+	public String getType(int feature) {
+		return types.get(feature);
+	}
+
+	public HashMap<String, Object> getProperties(int feature) {
+		return properties.get(feature);
+	}
+
+	public int getFirstPart(int feature) {
+		return featureParts.get(feature);
+	}
+
+	public int getPartEnd(int feature) {
+		return featureParts.get(feature + 1);
+	}
+
+	public int getFirstRing(int part) {
+		return partRings.get(part);
+	}
+
+	public int getRingEnd(int part) {
+		return partRings.get(part + 1);
+	}
+
+	public int getFirstCoordinate(int ring) {
+		return ringCoordinates.get(ring);
+	}
+
+	public int getCoordinateEnd(int ring) {
+		return ringCoordinates.get(ring + 1);
+	}
+
+	// Return the total number of parts, rings and coordinates
+	public int getPartCount() {
+		return partRings.size() - 1;
+	}
+
+	public int getRingCount() {
+		return ringCoordinates.size() - 1;
+	}
+
+	public int getCoordinateCount() {
+		return coordinates.size() / 2;
+	}
+
+	public float getLatitude(int coordinate) {
+		return coordinates.get(2 * coordinate);
+	}
+
+	public float getLongitude(int coordinate) {
+		return coordinates.get(2 * coordinate + 1);
+	}
+
+	/**
+	 * This method returns one value of the bounding box of a part
+	 * @param part is the index of the part
+	 * @param which is 0 for min latitude, 1 for min longitude, 2 for max latitude and 3 for max longitude
+	 * @return the value
+	 */
+	public float getPartBound(int part, int which) {
+		return partBounds.get(4 * part + which);
+	}
+
+	/**
+	 * This method returns one value of the bounding box of a feature
+	 * @param feature is the index of the feature
+	 * @param which is 0 for min latitude, 1 for min longitude, 2 for max latitude and 3 for max longitude
+	 * @return the value
+	 */
+	public float getFeatureBound(int feature, int which) {
+		return featureBounds.get(4 * feature + which);
+	}
+
+	/**
+	 * This method creates a PointFeature for every point feature, e.g. for the city markers.
+	 * @return the point features, in file order
+	 */
+	public List<PointFeature> createPointFeatures() {
+		List<PointFeature> points = new ArrayList<PointFeature>();
+		for (int f = 0; f < getFeatureCount(); f++) {
+			if (POINT.equals(types.get(f)) && getPartEnd(f) > getFirstPart(f)) {
+				int coordinate = getFirstCoordinate(getFirstRing(getFirstPart(f)));
+				PointFeature point = new PointFeature(new Location(getLatitude(coordinate), getLongitude(coordinate)));
+				point.setId(ids.get(f));
+				point.setProperties(properties.get(f));
+				points.add(point);
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * This method creates the same markers as MapUtils.createSimpleMarkers does for the features of
+	 * GeoJSONReader: a point, lines or polygon marker per feature, and a MultiMarker for a MultiPolygon.
+	 * As with GeoJSONReader, only the outer ring of every polygon is used. Features without geometry are skipped.
+	 * @return the markers, in file order
+	 */
+	public List<Marker> createMarkers() {
+		List<Marker> markers = new ArrayList<Marker>();
+		for (int f = 0; f < getFeatureCount(); f++) {
+			if (getPartEnd(f) == getFirstPart(f)) {
+				// no geometry
+				continue;
+			}
+			Marker marker;
+			String type = types.get(f);
+			if (POINT.equals(type)) {
+				int coordinate = getFirstCoordinate(getFirstRing(getFirstPart(f)));
+				marker = new SimplePointMarker(new Location(getLatitude(coordinate), getLongitude(coordinate)), properties.get(f));
+			} else if (LINE_STRING.equals(type)) {
+				marker = new SimpleLinesMarker(ringLocations(getFirstRing(getFirstPart(f))), properties.get(f));
+			} else if (POLYGON.equals(type)) {
+				marker = new SimplePolygonMarker(ringLocations(getFirstRing(getFirstPart(f))), properties.get(f));
+			} else if (MULTI_POLYGON.equals(type)) {
+				MultiMarker multiMarker = new MultiMarker();
+				for (int part = getFirstPart(f); part < getPartEnd(f); part++) {
+					multiMarker.addMarkers(new SimplePolygonMarker(ringLocations(getFirstRing(part)), properties.get(f)));
+				}
+				multiMarker.setProperties(properties.get(f));
+				marker = multiMarker;
+			} else {
+				System.err.println("Skipping feature " + ids.get(f) + " of unsupported type " + type);
+				continue;
+			}
+			marker.setId(ids.get(f));
+			markers.add(marker);
+		}
+		return markers;
+	}
+
+	/*
+	 * Creates the Locations of one ring, for the marker classes which need them.
+	 */
+	private List<Location> ringLocations(int ring) {
+		List<Location> locations = new ArrayList<Location>(getCoordinateEnd(ring) - getFirstCoordinate(ring));
+		for (int c = getFirstCoordinate(ring); c < getCoordinateEnd(ring); c++) {
+			locations.add(new Location(getLatitude(c), getLongitude(c)));
+		}
+		return locations;
+	}
+
+	/*
+	 * Growable list of primitive ints.
+	 */
+	static class IntList {
+		private int[] values = new int[64];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int get(int index) {
+			return values[index];
+		}
+
+		int size() {
+			return size;
+		}
+	}
+
+	/*
+	 * Growable list of primitive floats.
+	 */
+	static class FloatList {
+		private float[] values = new float[256];
+		private int size;
+
+		void add(float value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		float get(int index) {
+			return values[index];
+		}
+
+		void set(int index, float value) {
+			values[index] = value;
+		}
+
+		int size() {
+			return size;
+		}
+	}
+}
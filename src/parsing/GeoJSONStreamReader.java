@@ -0,0 +1,601 @@
+package parsing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import processing.core.PApplet;
+
+/**
+ * This class reads a GeoJSON file in one pass over its characters into a FlatFeatureCollection,
+ * without building a JSON object tree or one Location per vertex first. The members of an object
+ * may come in any order, e.g. "coordinates" before "type". Property names and String values are
+ * interned, so the many repeated values of a large boundary file share one String.
+ * Nested objects and arrays in the properties are skipped.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class GeoJSONStreamReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final Reader reader;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	// Text of the last String or number token
+	private final StringBuilder token = new StringBuilder();
+	// One shared instance of every property name and String value
+	private final HashMap<String, String> stringPool = new HashMap<String, String>();
+	private final FlatFeatureCollection collection = new FlatFeatureCollection();
+
+	private GeoJSONStreamReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * This method reads a GeoJSON file, a FeatureCollection or a single Feature.
+	 * @param p - PApplet being used
+	 * @param fileName - file name or URL for data source
+	 * @return the features of the file, an empty collection if it can not be read
+	 */
+	public static FlatFeatureCollection load(PApplet p, String fileName) {
+		InputStream input = p.createInput(fileName);
+		if (input == null) {
+			System.err.println("Could not open GeoJSON file " + fileName);
+			return new FlatFeatureCollection();
+		}
+		try {
+			return read(input);
+		} catch (IOException e) {
+			System.err.println("Error while reading GeoJSON file " + fileName + ": " + e.getMessage());
+			return new FlatFeatureCollection();
+		}
+	}
+
+	/**
+	 * This method reads a GeoJSON stream, a FeatureCollection or a single Feature.
+	 * @param input is the UTF-8 stream of the file, it is closed at the end
+	 * @return the features of the stream
+	 * @throws IOException if the stream can not be read or is not valid GeoJSON
+	 */
+	public static FlatFeatureCollection read(InputStream input) throws IOException {
+		try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+			GeoJSONStreamReader geoJSONReader = new GeoJSONStreamReader(reader);
+			geoJSONReader.readRoot();
+			return geoJSONReader.collection;
+		}
+	}
+
+	/*
+	 * Reads the outer object, which is either a FeatureCollection or a Feature.
+	 */
+	private void readRoot() throws IOException {
+		expect('{');
+		if (nextNonSpace() == '}') {
+			return;
+		}
+		position--;
+		// a Feature at the root has its members here, read them as one feature
+		FeatureState feature = new FeatureState();
+		do {
+			String name = readName();
+			if ("features".equals(name)) {
+				readFeatures();
+			} else if (!readFeatureMember(name, feature)) {
+				skipValue();
+			}
+		} while (nextMember());
+		if (feature.started) {
+			endFeature(feature);
+		}
+	}
+
+	/*
+	 * Reads the array of features.
+	 */
+	private void readFeatures() throws IOException {
+		expect('[');
+		if (nextNonSpace() == ']') {
+			return;
+		}
+		position--;
+		do {
+			if (peekNonSpace() == 'n') {
+				skipValue();
+				continue;
+			}
+			expect('{');
+			FeatureState feature = new FeatureState();
+			if (nextNonSpace() != '}') {
+				position--;
+				do {
+					String name = readName();
+					if (!readFeatureMember(name, feature)) {
+						skipValue();
+					}
+				} while (nextMember());
+			}
+			endFeature(feature);
+		} while (nextElement());
+	}
+
+	/*
+	 * Reads the value of a member of a feature, returns false if the member is not one of a feature.
+	 */
+	private boolean readFeatureMember(String name, FeatureState feature) throws IOException {
+		if ("id".equals(name)) {
+			feature.id = readScalarText();
+		} else if ("properties".equals(name)) {
+			feature.properties = readProperties();
+		} else if ("geometry".equals(name)) {
+			readGeometry(feature);
+		} else {
+			return false;
+		}
+		feature.started = true;
+		return true;
+	}
+
+	/*
+	 * Reads the properties object, null gives an empty map like GeoJSONReader.
+	 */
+	private HashMap<String, Object> readProperties() throws IOException {
+		HashMap<String, Object> properties = new HashMap<String, Object>();
+		if (peekNonSpace() == 'n') {
+			skipValue();
+			return properties;
+		}
+		expect('{');
+		if (nextNonSpace() == '}') {
+			return properties;
+		}
+		position--;
+		do {
+			String name = intern(readName());
+			char c = peekNonSpace();
+			if (c == '"') {
+				readString();
+				properties.put(name, intern(token.toString()));
+			} else if (c == '-' || (c >= '0' && c <= '9')) {
+				properties.put(name, readNumber());
+			} else if (c == 't' || c == 'f') {
+				properties.put(name, readLiteral() == 't');
+			} else if (c == 'n') {
+				readLiteral();
+				properties.put(name, null);
+			} else {
+				skipValue();
+			}
+		} while (nextMember());
+		return properties;
+	}
+
+	/*
+	 * Reads the geometry object, the coordinates go straight into the flat arrays.
+	 */
+	private void readGeometry(FeatureState feature) throws IOException {
+		if (peekNonSpace() == 'n') {
+			skipValue();
+			return;
+		}
+		expect('{');
+		if (nextNonSpace() == '}') {
+			return;
+		}
+		position--;
+		do {
+			String name = readName();
+			if ("type".equals(name)) {
+				readString();
+				feature.type = geometryType(token);
+			} else if ("coordinates".equals(name)) {
+				int coordinateCount = collection.getCoordinateCount();
+				int level = readCoordinates();
+				// a single position or line is still stored as one ring of one part, an empty array as nothing
+				if (level == 0) {
+					endRing();
+				}
+				if (level <= 1 && collection.getCoordinateCount() > coordinateCount) {
+					endPart();
+				}
+			} else {
+				skipValue();
+			}
+		} while (nextMember());
+	}
+
+	/*
+	 * Reads a coordinates array of any depth and returns its depth: 0 for a position,
+	 * 1 for a ring or line, 2 for a polygon and 3 for a multi polygon.
+	 * Rings and parts are closed as their arrays end.
+	 */
+	private int readCoordinates() throws IOException {
+		expect('[');
+		char c = peekNonSpace();
+		if (c == '-' || (c >= '0' && c <= '9')) {
+			// a position is longitude, latitude and maybe an altitude which is dropped
+			float lon = readCoordinate();
+			expect(',');
+			float lat = readCoordinate();
+			while (nextElement()) {
+				skipValue();
+			}
+			collection.coordinates.add(lat);
+			collection.coordinates.add(lon);
+			return 0;
+		}
+		if (nextNonSpace() == ']') {
+			return 1;
+		}
+		position--;
+		int level = 0;
+		do {
+			level = readCoordinates() + 1;
+		} while (nextElement());
+		if (level == 1) {
+			endRing();
+		} else if (level == 2) {
+			endPart();
+		}
+		return level;
+	}
+
+	/*
+	 * Closes the ring made of the coordinates added since the last ring.
+	 */
+	private void endRing() {
+		collection.ringCoordinates.add(collection.getCoordinateCount());
+	}
+
+	/*
+	 * Closes the part made of the rings added since the last part and computes its bounding box.
+	 */
+	private void endPart() {
+		int part = collection.getPartCount();
+		collection.partRings.add(collection.getRingCount());
+		int first = collection.getFirstCoordinate(collection.getFirstRing(part));
+		int end = collection.getCoordinateCount();
+		float minLat = Float.POSITIVE_INFINITY;
+		float minLon = Float.POSITIVE_INFINITY;
+		float maxLat = Float.NEGATIVE_INFINITY;
+		float maxLon = Float.NEGATIVE_INFINITY;
+		for (int i = first; i < end; i++) {
+			float lat = collection.getLatitude(i);
+			float lon = collection.getLongitude(i);
+			minLat = Math.min(minLat, lat);
+			minLon = Math.min(minLon, lon);
+			maxLat = Math.max(maxLat, lat);
+			maxLon = Math.max(maxLon, lon);
+		}
+		collection.partBounds.add(minLat);
+		collection.partBounds.add(minLon);
+		collection.partBounds.add(maxLat);
+		collection.partBounds.add(maxLon);
+	}
+
+	/*
+	 * Adds a feature with the parts added since the last feature, its bounding box is the union of theirs.
+	 */
+	private void endFeature(FeatureState state) {
+		int feature = collection.getFeatureCount();
+		collection.featureParts.add(collection.getPartCount());
+		float minLat = Float.NaN;
+		float minLon = Float.NaN;
+		float maxLat = Float.NaN;
+		float maxLon = Float.NaN;
+		for (int part = collection.getFirstPart(feature); part < collection.getPartEnd(feature); part++) {
+			if (Float.isNaN(minLat)) {
+				minLat = collection.getPartBound(part, 0);
+				minLon = collection.getPartBound(part, 1);
+				maxLat = collection.getPartBound(part, 2);
+				maxLon = collection.getPartBound(part, 3);
+			} else {
+				minLat = Math.min(minLat, collection.getPartBound(part, 0));
+				minLon = Math.min(minLon, collection.getPartBound(part, 1));
+				maxLat = Math.max(maxLat, collection.getPartBound(part, 2));
+				maxLon = Math.max(maxLon, collection.getPartBound(part, 3));
+			}
+		}
+		collection.featureBounds.add(minLat);
+		collection.featureBounds.add(minLon);
+		collection.featureBounds.add(maxLat);
+		collection.featureBounds.add(maxLon);
+		collection.ids.add(state.id);
+		collection.types.add(state.type);
+		collection.properties.add(state.properties == null ? new HashMap<String, Object>() : state.properties);
+	}
+
+	/*
+	 * Returns the shared constant of a geometry type.
+	 */
+	private String geometryType(CharSequence type) {
+		String name = type.toString();
+		if (FlatFeatureCollection.POINT.equals(name)) {
+			return FlatFeatureCollection.POINT;
+		} else if (FlatFeatureCollection.LINE_STRING.equals(name)) {
+			return FlatFeatureCollection.LINE_STRING;
+		} else if (FlatFeatureCollection.POLYGON.equals(name)) {
+			return FlatFeatureCollection.POLYGON;
+		} else if (FlatFeatureCollection.MULTI_POLYGON.equals(name)) {
+			return FlatFeatureCollection.MULTI_POLYGON;
+		}
+		return intern(name);
+	}
+
+	/*
+	 * Returns the shared instance of a String.
+	 */
+	private String intern(String str) {
+		String shared = stringPool.get(str);
+		if (shared == null) {
+			stringPool.put(str, str);
+			shared = str;
+		}
+		return shared;
+	}
+
+	/*
+	 * Reads a member name and the colon after it.
+	 */
+	private String readName() throws IOException {
+		if (nextNonSpace() != '"') {
+			throw error("Expected a member name");
+		}
+		position--;
+		readString();
+		expect(':');
+		return token.toString();
+	}
+
+	/*
+	 * Reads a String, number or literal as text, e.g. an id which may be "AFG" or 4.
+	 */
+	private String readScalarText() throws IOException {
+		char c = peekNonSpace();
+		if (c == '"') {
+			readString();
+		} else if (c == 'n') {
+			readLiteral();
+			return null;
+		} else {
+			readNumberToken();
+		}
+		return token.toString();
+	}
+
+	/*
+	 * Reads a String into the token, decoding the escapes.
+	 */
+	private void readString() throws IOException {
+		expect('"');
+		token.setLength(0);
+		while (true) {
+			char c = next();
+			if (c == '"') {
+				return;
+			}
+			if (c != '\\') {
+				token.append(c);
+				continue;
+			}
+			c = next();
+			switch (c) {
+			case 'n':
+				token.append('\n');
+				break;
+			case 't':
+				token.append('\t');
+				break;
+			case 'r':
+				token.append('\r');
+				break;
+			case 'b':
+				token.append('\b');
+				break;
+			case 'f':
+				token.append('\f');
+				break;
+			case 'u':
+				int code = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(next(), 16);
+					if (digit < 0) {
+						throw error("Invalid unicode escape");
+					}
+					code = code * 16 + digit;
+				}
+				token.append((char) code);
+				break;
+			default:
+				// \" \\ and \/ stand for the character itself
+				token.append(c);
+			}
+		}
+	}
+
+	/*
+	 * Reads the characters of a number into the token.
+	 */
+	private void readNumberToken() throws IOException {
+		nextNonSpace();
+		position--;
+		token.setLength(0);
+		while (true) {
+			if (position == limit && !fill()) {
+				break;
+			}
+			char c = buffer[position];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				token.append(c);
+				position++;
+			} else {
+				break;
+			}
+		}
+		if (token.length() == 0) {
+			throw error("Expected a number");
+		}
+	}
+
+	/*
+	 * Reads one coordinate value.
+	 */
+	private float readCoordinate() throws IOException {
+		readNumberToken();
+		float value = NumberDecoder.parseFloat(token, 0, token.length());
+		if (Float.isNaN(value)) {
+			throw error("Invalid coordinate " + token);
+		}
+		return value;
+	}
+
+	/*
+	 * Reads a property number, as an Integer if it has no fraction and fits, otherwise as a Double.
+	 */
+	private Object readNumber() throws IOException {
+		readNumberToken();
+		String text = token.toString();
+		try {
+			if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0 && text.length() < 10) {
+				return Integer.valueOf(text);
+			}
+			return Double.valueOf(text);
+		} catch (NumberFormatException e) {
+			throw error("Invalid number " + text);
+		}
+	}
+
+	/*
+	 * Reads true, false or null and returns its first character.
+	 */
+	private char readLiteral() throws IOException {
+		char first = nextNonSpace();
+		String literal = first == 't' ? "true" : first == 'f' ? "false" : "null";
+		for (int i = 1; i < literal.length(); i++) {
+			if (next() != literal.charAt(i)) {
+				throw error("Invalid literal");
+			}
+		}
+		return first;
+	}
+
+	/*
+	 * Skips any value, including nested objects and arrays.
+	 */
+	private void skipValue() throws IOException {
+		char c = peekNonSpace();
+		if (c == '"') {
+			readString();
+		} else if (c == 't' || c == 'f' || c == 'n') {
+			readLiteral();
+		} else if (c == '{') {
+			position++;
+			if (nextNonSpace() != '}') {
+				position--;
+				do {
+					readName();
+					skipValue();
+				} while (nextMember());
+			}
+		} else if (c == '[') {
+			position++;
+			if (nextNonSpace() != ']') {
+				position--;
+				do {
+					skipValue();
+				} while (nextElement());
+			}
+		} else {
+			readNumberToken();
+		}
+	}
+
+	/*
+	 * Reads the comma or closing brace after a member, returns true if another member follows.
+	 */
+	private boolean nextMember() throws IOException {
+		char c = nextNonSpace();
+		if (c == ',') {
+			return true;
+		}
+		if (c == '}') {
+			return false;
+		}
+		throw error("Expected ',' or '}'");
+	}
+
+	/*
+	 * Reads the comma or closing bracket after an element, returns true if another element follows.
+	 */
+	private boolean nextElement() throws IOException {
+		char c = nextNonSpace();
+		if (c == ',') {
+			return true;
+		}
+		if (c == ']') {
+			return false;
+		}
+		throw error("Expected ',' or ']'");
+	}
+
+	private void expect(char expected) throws IOException {
+		if (nextNonSpace() != expected) {
+			throw error("Expected '" + expected + "'");
+		}
+	}
+
+	/*
+	 * Returns the next character which is not white space without consuming it.
+	 */
+	private char peekNonSpace() throws IOException {
+		char c = nextNonSpace();
+		position--;
+		return c;
+	}
+
+	private char nextNonSpace() throws IOException {
+		char c = next();
+		while (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\uFEFF') {
+			c = next();
+		}
+		return c;
+	}
+
+	private char next() throws IOException {
+		if (position == limit && !fill()) {
+			throw error("Unexpected end of file");
+		}
+		return buffer[position++];
+	}
+
+	/*
+	 * Reads the next block of characters, returns false at the end of the stream.
+	 */
+	private boolean fill() throws IOException {
+		int read = reader.read(buffer, 0, buffer.length);
+		if (read <= 0) {
+			return false;
+		}
+		position = 0;
+		limit = read;
+		return true;
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " near character " + position);
+	}
+
+	/*
+	 * Members of the feature being read, they may come in any order.
+	 */
+	private static class FeatureState {
+		private boolean started;
+		private String id;
+		private String type;
+		private HashMap<String, Object> properties;
+	}
+}
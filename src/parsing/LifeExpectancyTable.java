@@ -0,0 +1,145 @@
+package parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import processing.core.PApplet;
+
+/**
+ * This class holds the life expectancy of every country for every year of a World Bank CSV file
+ * in one float matrix, one row per country and one column per year. Missing values ("..") are NaN.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class LifeExpectancyTable {
+
+	// The first columns are series name, series code, country name and country code
+	private static final int FIRST_YEAR_COLUMN = 4;
+
+	private final String[] countryCodes;
+	private final HashMap<String, Integer> rowByCode;
+	private final int firstYear;
+	private final int yearCount;
+	private final float[] values;
+
+	private LifeExpectancyTable(String[] countryCodes, int firstYear, int yearCount, float[] values) {
+		this.countryCodes = countryCodes;
+		this.firstYear = firstYear;
+		this.yearCount = yearCount;
+		this.values = values;
+		rowByCode = new HashMap<String, Integer>(countryCodes.length * 2);
+		for (int i = 0; i < countryCodes.length; i++) {
+			rowByCode.put(countryCodes[i], i);
+		}
+	}
+
+	/**
+	 * This method reads every year of a World Bank life expectancy CSV file.
+	 * If the file has a header row like "Country Code,2013 [YR2013]" the years are taken from it,
+	 * otherwise the year columns are numbered from firstYear.
+	 * @param p - PApplet being used, or null to read a file on the disk without one
+	 * @param fileName - file name or URL for data source
+	 * @param firstYear - year of the first value column when the file has no header
+	 * @return the table of all countries and years
+	 */
+	public static LifeExpectancyTable load(PApplet p, String fileName, int firstYear) {
+		List<String[]> rows = CsvTokenizer.readRows(p, fileName);
+
+		// Find the header, if any, and the number of year columns
+		int yearCount = 0;
+		int headerYears = -1;
+		for (String[] columns : rows) {
+			if (columns.length > FIRST_YEAR_COLUMN && "Country Code".equals(columns[3])) {
+				headerYears = 0;
+				while (FIRST_YEAR_COLUMN + headerYears < columns.length
+						&& leadingYear(columns[FIRST_YEAR_COLUMN + headerYears]) > 0) {
+					headerYears++;
+				}
+				if (headerYears > 0) {
+					firstYear = leadingYear(columns[FIRST_YEAR_COLUMN]);
+				}
+			}
+			yearCount = Math.max(yearCount, columns.length - FIRST_YEAR_COLUMN);
+		}
+		if (headerYears >= 0) {
+			// columns after the years in the header are not values
+			yearCount = headerYears;
+		}
+
+		// Keep only rows of countries, i.e. rows with a code and at least one value
+		List<String> codes = new ArrayList<String>();
+		List<float[]> series = new ArrayList<float[]>();
+		for (String[] columns : rows) {
+			if (columns.length <= FIRST_YEAR_COLUMN || "Country Code".equals(columns[3])) {
+				continue;
+			}
+			float[] row = new float[yearCount];
+			Arrays.fill(row, Float.NaN);
+			boolean anyValue = false;
+			for (int year = 0; year < yearCount && year + FIRST_YEAR_COLUMN < columns.length; year++) {
+				row[year] = NumberDecoder.parseFloat(columns[year + FIRST_YEAR_COLUMN]);
+				anyValue |= !Float.isNaN(row[year]);
+			}
+			if (anyValue) {
+				codes.add(columns[3]);
+				series.add(row);
+			}
+		}
+
+		float[] values = new float[codes.size() * yearCount];
+		for (int i = 0; i < series.size(); i++) {
+			System.arraycopy(series.get(i), 0, values, i * yearCount, yearCount);
+		}
+		return new LifeExpectancyTable(codes.toArray(new String[codes.size()]), firstYear, yearCount, values);
+	}
+
+	// Return the first year of the table
+	public int getFirstYear() {
+		return firstYear;
+	}
+
+	// Return the number of years in the table
+	public int getYearCount() {
+		return yearCount;
+	}
+
+	// Return the number of countries in the table
+	public int getCountryCount() {
+		return countryCodes.length;
+	}
+
+	/**
+	 * This method returns the row of a country
+	 * @param countryCode is the three letter code of the country
+	 * @return the row, or -1 if the country is not in the table
+	 */
+	public int rowOf(String countryCode) {
+		Integer row = rowByCode.get(countryCode);
+		return row == null ? -1 : row;
+	}
+
+	/**
+	 * This method returns the life expectancy of a country in a year
+	 * @param row is the row of the country
+	 * @param yearIndex is the year minus the first year
+	 * @return the life expectancy, or NaN if it is missing
+	 */
+	public float getValue(int row, int yearIndex) {
+		return values[row * yearCount + yearIndex];
+	}
+
+	/*
+	 * Returns the year at the start of a header like "2013 [YR2013]", or -1.
+	 */
+	private static int leadingYear(String header) {
+		int year = 0;
+		int i = 0;
+		while (i < header.length() && Character.isDigit(header.charAt(i))) {
+			year = year * 10 + (header.charAt(i) - '0');
+			i++;
+		}
+		return i == 4 ? year : -1;
+	}
+}
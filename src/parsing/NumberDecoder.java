@@ -0,0 +1,192 @@
+package parsing;
+
+/**
+ * This class decodes the numbers of the earthquake feed straight from the characters,
+ * so no intermediate Strings or arrays are created for every entry.
+ * Every method returns Float.NaN when the text is not a valid number.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class NumberDecoder {
+
+	// Exact powers of ten a double can hold
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	// More digits than this can not be kept exactly in a long, so the rest only moves the exponent
+	private static final int MAX_DIGITS = 18;
+
+	/**
+	 * This method decodes a decimal number such as "-226110", "2.5395" or "1.5e3" from the range of text.
+	 * Spaces around the number are ignored.
+	 * @param text is the characters containing the number
+	 * @param start is the index of the first character (inclusive)
+	 * @param end is the index of the last character (exclusive)
+	 * @return the number, or Float.NaN if the range is not a number
+	 */
+	public static float parseFloat(CharSequence text, int start, int end) {
+		start = skipSpaces(text, start, end);
+		end = trimSpaces(text, start, end);
+		if (start >= end) {
+			return Float.NaN;
+		}
+
+		int i = start;
+		boolean negative = false;
+		char c = text.charAt(i);
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+		boolean afterPoint = false;
+
+		for (; i < end; i++) {
+			c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				anyDigit = true;
+				if (digits < MAX_DIGITS) {
+					if (mantissa != 0 || c != '0') {
+						digits++;
+					}
+					mantissa = mantissa * 10 + (c - '0');
+					if (afterPoint) {
+						exponent--;
+					}
+				} else if (!afterPoint) {
+					// digit that does not fit, only its position matters
+					exponent++;
+				}
+			} else if (c == '.' && !afterPoint) {
+				afterPoint = true;
+			} else {
+				break;
+			}
+		}
+		if (!anyDigit) {
+			return Float.NaN;
+		}
+
+		// Optional exponent part
+		if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExp = false;
+			if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+				negativeExp = text.charAt(i) == '-';
+				i++;
+			}
+			int exp = 0;
+			boolean anyExpDigit = false;
+			for (; i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+				anyExpDigit = true;
+				if (exp < 1000) {
+					exp = exp * 10 + (text.charAt(i) - '0');
+				}
+			}
+			if (!anyExpDigit) {
+				return Float.NaN;
+			}
+			exponent += negativeExp ? -exp : exp;
+		}
+
+		// Anything left over means the text is not a single number
+		if (i != end) {
+			return Float.NaN;
+		}
+
+		double value = mantissa;
+		if (exponent < 0) {
+			value = -exponent < POWERS_OF_TEN.length ? value / POWERS_OF_TEN[-exponent] : value * Math.pow(10, exponent);
+		} else if (exponent > 0) {
+			value = exponent < POWERS_OF_TEN.length ? value * POWERS_OF_TEN[exponent] : value * Math.pow(10, exponent);
+		}
+		return (float) (negative ? -value : value);
+	}
+
+	/**
+	 * This method decodes the whole text as one number.
+	 * @param text is the characters containing the number
+	 * @return the number, or Float.NaN if the text is not a number
+	 */
+	public static float parseFloat(CharSequence text) {
+		return parseFloat(text, 0, text.length());
+	}
+
+	/**
+	 * This method decodes the magnitude from an earthquake title such as "M 4.4 - 106km NNE of Tobelo".
+	 * Unlike taking characters 2 to 5 it also works for "M 10 - ..." and negative magnitudes.
+	 * @param title is the title of the entry
+	 * @return the magnitude, or Float.NaN if the title does not start with one
+	 */
+	public static float parseMagnitude(CharSequence title) {
+		int end = title.length();
+		int start = skipSpaces(title, 0, end);
+		if (start >= end || (title.charAt(start) != 'M' && title.charAt(start) != 'm')) {
+			return Float.NaN;
+		}
+		start = skipSpaces(title, start + 1, end);
+		return parseFloat(title, start, nextSpace(title, start, end));
+	}
+
+	/**
+	 * This method decodes the latitude of a georss:point text such as "2.5395 128.5252".
+	 * @param point is the text of the point
+	 * @return the latitude, or Float.NaN if it is malformed
+	 */
+	public static float parseLatitude(CharSequence point) {
+		int end = point.length();
+		int start = skipSpaces(point, 0, end);
+		return parseFloat(point, start, nextSpace(point, start, end));
+	}
+
+	/**
+	 * This method decodes the longitude of a georss:point text such as "2.5395 128.5252".
+	 * @param point is the text of the point
+	 * @return the longitude, or Float.NaN if it is malformed
+	 */
+	public static float parseLongitude(CharSequence point) {
+		int end = point.length();
+		int start = skipSpaces(point, 0, end);
+		start = skipSpaces(point, nextSpace(point, start, end), end);
+		if (start >= end) {
+			return Float.NaN;
+		}
+		return parseFloat(point, start, end);
+	}
+
+	/*
+	 * Returns the index of the first non space character from start.
+	 */
+	private static int skipSpaces(CharSequence text, int start, int end) {
+		while (start < end && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	/*
+	 * Returns the end index without the trailing spaces.
+	 */
+	private static int trimSpaces(CharSequence text, int start, int end) {
+		while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+
+	/*
+	 * Returns the index of the next space character from start, or end if there is none.
+	 */
+	private static int nextSpace(CharSequence text, int start, int end) {
+		while (start < end && !Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+}
@@ -1,10 +1,17 @@
 package parsing;
 
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import de.fhpotsdam.unfolding.data.Feature;
 import de.fhpotsdam.unfolding.data.PointFeature;
 import de.fhpotsdam.unfolding.data.ShapeFeature;
@@ -49,17 +56,17 @@ public class ParseFeed {
 				if (titleStr != null) {
 					point.putProperty("title", titleStr);
 					// get magnitude from title
-					point.putProperty("magnitude", Float.parseFloat(titleStr.substring(2, 5)));
+					point.putProperty("magnitude", NumberDecoder.parseMagnitude(titleStr));
 				}
 
 				// Sets depth(elevation) if existing
 				float depthVal = getFloatVal(itemXML[i], "georss:elev");
 				
-				// NOT SURE ABOUT CHECKING ERR CONDITION BECAUSE 0 COULD BE VALID?
-				// get one decimal place when converting to km
-				int interVal = (int)(depthVal/100);
-				depthVal = (float) interVal/10;
-				point.putProperty("depth", Math.abs((depthVal)));
+				// 0 is a valid elevation, a missing or malformed one is NaN
+				if (!Float.isNaN(depthVal)) {
+					// get one decimal place when converting to km
+					point.putProperty("depth", elevationToDepth(depthVal));
+				}
 				
 
 				// Sets age if existing
@@ -78,7 +85,205 @@ public class ParseFeed {
 			return features;
 		}
 
-	
+	/*
+	 * This method streams the GeoRSS earthquake feed from an already opened stream, which
+	 * is closed at the end. Every feature gets the entry <id> as its id.
+	 * If a filter is given, it sees the <id> and <updated> of every entry and the entries it
+	 * rejects are skipped without decoding the rest of them.
+	 *
+	 * @param input - stream of the feed
+	 * @param filter - decides which entries are parsed, or null to parse all of them
+	 * @param handler - receives every parsed feature
+	 * @return number of features handed to the handler
+	 * @throws XMLStreamException if the feed is not well formed, features already handed
+	 * to the handler stay valid
+	 */
+	public static int parseEarthquakeStreaming(InputStream input, EntryFilter filter,
+			PointFeatureHandler handler) throws XMLStreamException {
+		int count = 0;
+		XMLStreamReader reader = null;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			reader = factory.createXMLStreamReader(input);
+
+			// values of the entry currently being read, numbers are decoded
+			// from the reused text buffer so they never become Strings
+			StringBuilder text = new StringBuilder(64);
+			boolean inEntry = false;
+			// the filter rejected the entry, only its age is read
+			boolean skipEntry = false;
+			String idStr = null;
+			String titleStr = null;
+			float lat = Float.NaN;
+			float lon = Float.NaN;
+			float elev = Float.NaN;
+			String ageStr = null;
+
+			while (reader.hasNext()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("entry".equals(name)) {
+						inEntry = true;
+						skipEntry = false;
+						idStr = null;
+						titleStr = null;
+						lat = Float.NaN;
+						lon = Float.NaN;
+						elev = Float.NaN;
+						ageStr = null;
+					}
+					else if (!inEntry) {
+						continue;
+					}
+					else if (skipEntry && !"category".equals(name)) {
+						skipElement(reader);
+					}
+					else if ("summary".equals(name)) {
+						skipElement(reader);
+					}
+					else if ("id".equals(name)) {
+						idStr = reader.getElementText();
+					}
+					else if ("updated".equals(name)) {
+						String updatedStr = reader.getElementText();
+						if (filter != null && idStr != null && !filter.acceptEntry(idStr, updatedStr)) {
+							// unchanged entry, the rest is skipped without decoding except for the age,
+							// which the feed changes without changing <updated>
+							skipEntry = true;
+						}
+					}
+					else if ("title".equals(name)) {
+						titleStr = reader.getElementText();
+					}
+					else if ("point".equals(name)) {
+						readElementText(reader, text);
+						lat = NumberDecoder.parseLatitude(text);
+						lon = NumberDecoder.parseLongitude(text);
+					}
+					else if ("elev".equals(name)) {
+						readElementText(reader, text);
+						elev = NumberDecoder.parseFloat(text);
+					}
+					else if ("category".equals(name)) {
+						if ("Age".equals(reader.getAttributeValue(null, "label"))) {
+							ageStr = reader.getAttributeValue(null, "term");
+						}
+					}
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT && "entry".equals(reader.getLocalName())) {
+					inEntry = false;
+					if (skipEntry) {
+						filter.keptEntry(idStr, ageStr);
+						continue;
+					}
+					PointFeature point = createEarthquakeFeature(titleStr, lat, lon, elev, ageStr);
+					if (point != null) {
+						point.setId(idStr);
+						handler.handleFeature(point);
+						count++;
+					}
+				}
+			}
+		}
+		finally {
+			closeQuietly(reader, input);
+		}
+
+		return count;
+	}
+
+	/*
+	 * Builds an earthquake feature from the decoded values of one entry,
+	 * with the same properties the DOM parser sets.
+	 *
+	 * @return the feature, or null if the entry has no valid location
+	 */
+	private static PointFeature createEarthquakeFeature(String titleStr, float lat, float lon, float elev, String ageStr) {
+		if (Float.isNaN(lat) || Float.isNaN(lon)) {
+			return null;
+		}
+		PointFeature point = new PointFeature(new Location(lat, lon));
+
+		if (titleStr != null) {
+			point.putProperty("title", titleStr);
+			point.putProperty("magnitude", NumberDecoder.parseMagnitude(titleStr));
+		}
+
+		if (!Float.isNaN(elev)) {
+			point.putProperty("depth", elevationToDepth(elev));
+		}
+
+		if (ageStr != null) {
+			point.putProperty("age", ageStr);
+		}
+
+		return point;
+	}
+
+	/*
+	 * Converts the georss:elev value in meters into a positive depth in km
+	 * with one decimal place.
+	 */
+	private static float elevationToDepth(float elev) {
+		int interVal = (int)(elev/100);
+		return Math.abs((float) interVal/10);
+	}
+
+	/*
+	 * Reads the text of the current element into the buffer, which is cleared first,
+	 * and leaves the reader on the end of the element.
+	 */
+	private static void readElementText(XMLStreamReader reader, StringBuilder text) throws XMLStreamException {
+		text.setLength(0);
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Moves the reader past the end of the current element without reading its text.
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/*
+	 * Closes the StAX reader and its stream, ignoring errors on close.
+	 */
+	private static void closeQuietly(XMLStreamReader reader, InputStream input) {
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+			input.close();
+		}
+		catch (XMLStreamException | IOException e) {
+			// nothing left to do with a stream we are done with
+		}
+	}
+
+
 	/*
 	 * Gets location from georss:point tag
 	 * 
@@ -94,11 +299,12 @@ public class ParseFeed {
 		// set location if existing
 		if (pointXML != null && pointXML.getContent() != null) {
 			String pointStr = pointXML.getContent();
-			String[] latLon = pointStr.split(" ");
-			float lat = Float.valueOf(latLon[0]);
-			float lon = Float.valueOf(latLon[1]);
+			float lat = NumberDecoder.parseLatitude(pointStr);
+			float lon = NumberDecoder.parseLongitude(pointStr);
 
-			loc = new Location(lat, lon);
+			if (!Float.isNaN(lat) && !Float.isNaN(lon)) {
+				loc = new Location(lat, lon);
+			}
 		}
 		
 		return loc;
@@ -121,10 +327,11 @@ public class ParseFeed {
 	}
 	
 	/*
-	 * Get float value from child node
+	 * Get float value from child node, NaN if missing or malformed
 	 */
 	private static float getFloatVal(XML itemXML, String tagName) {
-		return Float.parseFloat(getStringVal(itemXML, tagName));
+		String str = getStringVal(itemXML, tagName);
+		return str == null ? Float.NaN : NumberDecoder.parseFloat(str);
 	}
 	
 
@@ -139,49 +346,44 @@ public class ParseFeed {
 	 * @param fileName - file name or URL for data source
 	 */
 	public static List<PointFeature> parseAirports(PApplet p, String fileName) {
-		List<PointFeature> features = new ArrayList<PointFeature>();
-
-		String[] rows = p.loadStrings(fileName);
-		for (String row : rows) {
-			
-			// hot-fix for altitude when lat lon out of place
-			int i = 0;
-			
-			// split row by commas not in quotations
-			String[] columns = row.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-			
-			// get location and create feature
-			//System.out.println(columns[6]);
-			float lat = Float.parseFloat(columns[6]);
-			float lon = Float.parseFloat(columns[7]);
-			
-			Location loc = new Location(lat, lon);
-			PointFeature point = new PointFeature(loc);
-			
-			// set ID to OpenFlights unique identifier
-			point.setId(columns[0]);
-			
-			// get other fields from csv
-			point.addProperty("name", columns[1]);
-			point.putProperty("city", columns[2]);
-			point.putProperty("country", columns[3]);
-			
-			// pretty sure IATA/FAA is used in routes.dat
-			// get airport IATA/FAA code
-			if(!columns[4].equals("")) {
-				point.putProperty("code", columns[4]);
-			}
-			// get airport ICAO code if no IATA
-			else if(!columns[5].equals("")) {
-				point.putProperty("code", columns[5]);
+		// split rows by commas not in quotations, rows are mapped in parallel for large files
+		return CsvTokenizer.parse(p, fileName, new CsvTokenizer.RowMapper<PointFeature>() {
+			@Override
+			public PointFeature mapRow(String[] columns) {
+				
+				// hot-fix for altitude when lat lon out of place
+				int i = 0;
+				
+				// get location and create feature
+				float lat = Float.parseFloat(columns[6]);
+				float lon = Float.parseFloat(columns[7]);
+				
+				Location loc = new Location(lat, lon);
+				PointFeature point = new PointFeature(loc);
+				
+				// set ID to OpenFlights unique identifier
+				point.setId(columns[0]);
+				
+				// get other fields from csv
+				point.addProperty("name", columns[1]);
+				point.putProperty("city", columns[2]);
+				point.putProperty("country", columns[3]);
+				
+				// pretty sure IATA/FAA is used in routes.dat
+				// get airport IATA/FAA code
+				if(!columns[4].equals("")) {
+					point.putProperty("code", columns[4]);
+				}
+				// get airport ICAO code if no IATA
+				else if(!columns[5].equals("")) {
+					point.putProperty("code", columns[5]);
+				}
+				
+				point.putProperty("altitude", columns[8 + i]);
+				
+				return point;
 			}
-			
-			point.putProperty("altitude", columns[8 + i]);
-			
-			features.add(point);
-		}
-
-		return features;
+		});
 		
 	}
 	
@@ -198,32 +400,23 @@ public class ParseFeed {
 	 * @param fileName - file name or URL for data source
 	 */
 	public static List<ShapeFeature> parseRoutes(PApplet p, String fileName) {
-		List<ShapeFeature> routes = new ArrayList<ShapeFeature>();
-		
-		String[] rows = p.loadStrings(fileName);
-		
-		for(String row : rows) {
-			String[] columns = row.split(",");
-			
-			ShapeFeature route = new ShapeFeature(Feature.FeatureType.LINES);
-			
-			// set id to be OpenFlights identifier for source airport
-			
-			// check that both airports on route have OpenFlights Identifier
-			if(!columns[3].equals("\\N") && !columns[5].equals("\\N")){
+		return CsvTokenizer.parse(p, fileName, new CsvTokenizer.RowMapper<ShapeFeature>() {
+			@Override
+			public ShapeFeature mapRow(String[] columns) {
+				// check that both airports on route have OpenFlights Identifier
+				if(columns.length < 6 || columns[3].equals("\\N") || columns[5].equals("\\N")) {
+					return null;
+				}
+				
+				ShapeFeature route = new ShapeFeature(Feature.FeatureType.LINES);
 				// set "source" property to be OpenFlights identifier for source airport
 				route.putProperty("source", columns[3]);
 				// "destination property" -- OpenFlights identifier
 				route.putProperty("destination", columns[5]);
 				
-				routes.add(route);
+				return route;
 			}
-		}
-			
-		
-		return routes;
-		
-		
+		});
 		
 	}
 	
@@ -246,13 +439,11 @@ public class ParseFeed {
 		// HashMap key: country ID and  data: lifeExp at birth
 		HashMap<String, Float> lifeExpMap = new HashMap<String, Float>();
 
-		// get lines of csv file
-		String[] rows = p.loadStrings(fileName);
+		// get rows of csv file, split by commas not in quotations
+		List<String[]> rows = CsvTokenizer.readRows(p, fileName);
 		
 		// Reads country name and population density value from CSV row
-		for (String row : rows) {
-			// split row by commas not in quotations
-			String[] columns = row.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
+		for (String[] columns : rows) {
 			
 			// check if there is any life expectancy data from any year, get most recent
 			/*
@@ -263,9 +454,10 @@ public class ParseFeed {
 			//
 			for(int i = columns.length - 1; i > 3; i--) {
 				
-				// check if value exists for year
-				if(!columns[i].equals("..")) {
-					lifeExpMap.put(columns[3], Float.parseFloat(columns[i]));
+				// check if value exists for year, ".." and empty columns are missing values
+				float lifeExp = NumberDecoder.parseFloat(columns[i]);
+				if(!Float.isNaN(lifeExp)) {
+					lifeExpMap.put(columns[3], lifeExp);
 					
 					// break once most recent data is found
 					break;
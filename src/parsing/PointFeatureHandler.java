@@ -0,0 +1,18 @@
+package parsing;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+
+/**
+ * This interface receives the point features one by one while a feed is being streamed,
+ * so the caller decides whether to keep them or not.
+ * @author Yuming
+ * 10/17/2026
+ */
+public interface PointFeatureHandler {
+	
+	/**
+	 * This method is called once for every entry parsed from the feed
+	 * @param feature is the feature created from the entry
+	 */
+	public void handleFeature(PointFeature feature);
+}
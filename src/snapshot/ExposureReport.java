@@ -0,0 +1,79 @@
+package snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+import markers.EarthQuakeMarker;
+import markers.EarthquakeStore;
+import spatial.PopulationExposure;
+import spatial.SphereKdTree;
+
+/**
+ * This class prints the earthquakes whose impact circle holds the most people, with the number of
+ * cities in the circle and their population in millions. It runs from the command line on the same
+ * datasets as the snapshots, so the map does not compute the report every time it starts.
+ * Usage: ExposureReport [number of quakes] [data folder] [earthquake feed]
+ * @author Yuming
+ * 10/17/2026
+ */
+public class ExposureReport {
+
+	public static final int DEFAULT_QUAKES = 10;
+
+	/**
+	 * This method computes the exposure of every earthquake of the datasets.
+	 * @param data is the datasets
+	 * @return the exposure of every row of the earthquake store
+	 */
+	public static PopulationExposure compute(SnapshotData data) {
+		EarthquakeStore quakes = data.getEarthquakes();
+		int count = quakes.size();
+		float[] latitudes = new float[count];
+		float[] longitudes = new float[count];
+		double[] impactDistances = new double[count];
+		for (int row = 0; row < count; row++) {
+			latitudes[row] = quakes.getLatitude(row);
+			longitudes[row] = quakes.getLongitude(row);
+			impactDistances[row] = EarthQuakeMarker.impactDistance(quakes.getMagnitude(row));
+		}
+
+		List<PointFeature> cities = data.getCities();
+		float[] cityLatitudes = new float[cities.size()];
+		float[] cityLongitudes = new float[cities.size()];
+		// The population of a city is given in millions
+		double[] populations = new double[cities.size()];
+		for (int i = 0; i < cities.size(); i++) {
+			cityLatitudes[i] = cities.get(i).getLocation().getLat();
+			cityLongitudes[i] = cities.get(i).getLocation().getLon();
+			Object population = cities.get(i).getProperty("population");
+			populations[i] = population == null ? 0 : Double.parseDouble(population.toString());
+		}
+		SphereKdTree cityIndex = SphereKdTree.build(cityLatitudes, cityLongitudes, cities.size());
+
+		return PopulationExposure.compute(latitudes, longitudes, impactDistances, count, cityIndex, populations,
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * This method prints the report from the command line.
+	 * @param args are the number of quakes to print, the data folder and the earthquake feed, all optional
+	 */
+	public static void main(String[] args) throws IOException {
+		int quakeCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_QUAKES;
+		File dataFolder = new File(args.length > 1 ? args[1] : SnapshotBatch.DEFAULT_DATA_FOLDER);
+		String earthquakeFeed = args.length > 2 ? args[2] : SnapshotData.EARTHQUAKE_FILE;
+
+		SnapshotData data = SnapshotData.load(dataFolder, earthquakeFeed);
+		PopulationExposure exposure = compute(data);
+		int[] ranked = exposure.rank();
+		EarthquakeStore quakes = data.getEarthquakes();
+		for (int i = 0; i < Math.min(quakeCount, ranked.length); i++) {
+			int row = ranked[i];
+			System.out.println(quakes.getTitle(row) + " - " + exposure.getCityCount(row) + " cities, "
+					+ exposure.getExposure(row) + " million people");
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package snapshot;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+/**
+ * This class renders snapshot images of the maps in a batch, without a window, e.g. for a daily
+ * job. The datasets are parsed once and shared; the images are drawn and encoded to PNG by a pool
+ * of threads, one image per task.
+ * Usage: SnapshotBatch [jobs.csv or - for the default jobs] [output folder] [threads] [data folder] [earthquake feed]
+ * @author Yuming
+ * 10/17/2026
+ */
+public class SnapshotBatch {
+
+	public static final String DEFAULT_OUTPUT_FOLDER = "snapshots";
+	public static final String DEFAULT_DATA_FOLDER = "data";
+	// Years of life expectancy drawn by the default jobs
+	public static final int DEFAULT_YEARS = 10;
+
+	private final SnapshotRenderer renderer;
+	private final File outputFolder;
+	private final int threads;
+
+	// Time spent drawing and encoding, summed over all threads, in nanoseconds
+	private long renderNanos;
+	private long encodeNanos;
+
+	/**
+	 * Constructor of the batch
+	 * @param data is the datasets shared by all images
+	 * @param outputFolder is the folder the PNG files are written to
+	 * @param threads is the number of images drawn at the same time
+	 */
+	public SnapshotBatch(SnapshotData data, File outputFolder, int threads) {
+		this.renderer = new SnapshotRenderer(data);
+		this.outputFolder = outputFolder;
+		this.threads = threads;
+	}
+
+	/**
+	 * This method draws and writes the images of the jobs. A job which fails is reported and the
+	 * others go on.
+	 * @param jobs are the images to make
+	 * @return the number of images written
+	 * @throws InterruptedException if the thread is interrupted while waiting for the images
+	 */
+	public int run(List<SnapshotJob> jobs) throws InterruptedException {
+		outputFolder.mkdirs();
+		List<Callable<File>> tasks = new ArrayList<Callable<File>>();
+		for (final SnapshotJob job : jobs) {
+			tasks.add(new Callable<File>() {
+				@Override
+				public File call() throws IOException {
+					return write(job);
+				}
+			});
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		int written = 0;
+		try {
+			List<Future<File>> results = pool.invokeAll(tasks);
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					results.get(i).get();
+					written++;
+				} catch (ExecutionException e) {
+					System.err.println("Could not make snapshot " + jobs.get(i).getName() + ": " + e.getCause());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return written;
+	}
+
+	// Return the time spent drawing, summed over all threads, in milliseconds
+	public synchronized double getRenderMillis() {
+		return renderNanos / 1e6;
+	}
+
+	// Return the time spent encoding and writing, summed over all threads, in milliseconds
+	public synchronized double getEncodeMillis() {
+		return encodeNanos / 1e6;
+	}
+
+	/*
+	 * Draws the image of one job and writes it as a PNG file, on a thread of the pool.
+	 */
+	private File write(SnapshotJob job) throws IOException {
+		long start = System.nanoTime();
+		BufferedImage image = renderer.render(job);
+		long drawn = System.nanoTime();
+		File file = new File(outputFolder, job.getName() + ".png");
+		if (!ImageIO.write(image, "png", file)) {
+			throw new IOException("No PNG writer");
+		}
+		long end = System.nanoTime();
+		synchronized (this) {
+			renderNanos += drawn - start;
+			encodeNanos += end - drawn;
+		}
+		return file;
+	}
+
+	/**
+	 * This method runs a batch from the command line and prints how many images per second it made.
+	 * @param args are the job file, the output folder, the number of threads, the data folder and the
+	 *        earthquake feed, all optional
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		String jobFile = args.length > 0 ? args[0] : "-";
+		File outputFolder = new File(args.length > 1 ? args[1] : DEFAULT_OUTPUT_FOLDER);
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		File dataFolder = new File(args.length > 3 ? args[3] : DEFAULT_DATA_FOLDER);
+		String earthquakeFeed = args.length > 4 ? args[4] : SnapshotData.EARTHQUAKE_FILE;
+
+		long start = System.nanoTime();
+		SnapshotData data = SnapshotData.load(dataFolder, earthquakeFeed);
+		long loaded = System.nanoTime();
+		List<SnapshotJob> jobs;
+		if ("-".equals(jobFile)) {
+			int yearCount = Math.min(DEFAULT_YEARS, data.getLifeExpectancyTable().getYearCount());
+			int firstYear = data.getLifeExpectancyTable().getFirstYear() + data.getLifeExpectancyTable().getYearCount() - yearCount;
+			jobs = SnapshotJob.defaultJobs(firstYear, yearCount);
+		} else {
+			jobs = SnapshotJob.readJobs(jobFile);
+		}
+
+		SnapshotBatch batch = new SnapshotBatch(data, outputFolder, threads);
+		int written = batch.run(jobs);
+		long end = System.nanoTime();
+		double seconds = (end - loaded) / 1e9;
+		System.out.println(String.format("Loaded the data in %.2f s", (loaded - start) / 1e9));
+		System.out.println(String.format("Wrote %d of %d images to %s in %.2f s with %d threads, %.1f images/s",
+				written, jobs.size(), outputFolder, seconds, threads, written / seconds));
+		if (written > 0) {
+			System.out.println(String.format("Per image: %.1f ms drawing, %.1f ms encoding",
+					batch.getRenderMillis() / written, batch.getEncodeMillis() / written));
+		}
+	}
+}
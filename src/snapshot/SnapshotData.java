@@ -0,0 +1,205 @@
+package snapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.xml.stream.XMLStreamException;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+import de.fhpotsdam.unfolding.marker.Marker;
+import markers.EarthquakeStore;
+import parsing.FlatFeatureCollection;
+import parsing.GeoJSONStreamReader;
+import parsing.LifeExpectancyTable;
+import parsing.ParseFeed;
+import parsing.PointFeatureHandler;
+import spatial.CountryLocator;
+import spatial.ParallelCountryClassifier;
+import spatial.PolygonSimplifier;
+
+/**
+ * This class holds the datasets the snapshots are drawn from, parsed once and shared by every
+ * rendering thread. Nothing changes after load(), so the threads read it without locks.
+ * Every location is kept in Web Mercator from 0 to 1 over the world, so drawing an image only scales
+ * and moves the coordinates of its zoom level and center.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class SnapshotData {
+
+	public static final String COUNTRY_FILE = "countries.geo.json";
+	public static final String CITY_FILE = "city-data.json";
+	public static final String EARTHQUAKE_FILE = "2.5_week.atom";
+	public static final String LIFE_EXPECTANCY_FILE = "LifeExpectancyWorldBank.csv";
+	// Year of the first value column of a life expectancy file without a header, as in LifeExpectancyMap
+	public static final int FIRST_YEAR = 2000;
+
+	private final FlatFeatureCollection countries;
+	// Web Mercator x and y of every coordinate of the countries
+	private final float[] countryXs;
+	private final float[] countryYs;
+	// Table row of every country feature, -1 if it has no life expectancy
+	private final int[] countryRows;
+	private final LifeExpectancyTable lifeExpectancy;
+	private final EarthquakeStore earthquakes;
+	private final float[] earthquakeXs;
+	private final float[] earthquakeYs;
+	private final List<PointFeature> cities;
+	private final float[] cityXs;
+	private final float[] cityYs;
+
+	private SnapshotData(FlatFeatureCollection countries, LifeExpectancyTable lifeExpectancy, EarthquakeStore earthquakes,
+			List<PointFeature> cities) {
+		this.countries = countries;
+		this.lifeExpectancy = lifeExpectancy;
+		this.earthquakes = earthquakes;
+		this.cities = cities;
+
+		countryXs = new float[countries.getCoordinateCount()];
+		countryYs = new float[countries.getCoordinateCount()];
+		for (int c = 0; c < countryXs.length; c++) {
+			countryXs[c] = (float) PolygonSimplifier.mercatorX(countries.getLongitude(c));
+			countryYs[c] = (float) PolygonSimplifier.mercatorY(countries.getLatitude(c));
+		}
+		countryRows = new int[countries.getFeatureCount()];
+		for (int f = 0; f < countryRows.length; f++) {
+			countryRows[f] = lifeExpectancy.rowOf(countries.getId(f));
+		}
+
+		earthquakeXs = new float[earthquakes.size()];
+		earthquakeYs = new float[earthquakes.size()];
+		for (int row = 0; row < earthquakeXs.length; row++) {
+			earthquakeXs[row] = (float) PolygonSimplifier.mercatorX(earthquakes.getLongitude(row));
+			earthquakeYs[row] = (float) PolygonSimplifier.mercatorY(earthquakes.getLatitude(row));
+		}
+		cityXs = new float[cities.size()];
+		cityYs = new float[cities.size()];
+		for (int i = 0; i < cityXs.length; i++) {
+			cityXs[i] = (float) PolygonSimplifier.mercatorX(cities.get(i).getLocation().getLon());
+			cityYs[i] = (float) PolygonSimplifier.mercatorY(cities.get(i).getLocation().getLat());
+		}
+	}
+
+	/**
+	 * This method reads and prepares the datasets. The earthquakes are classified as land or ocean
+	 * quakes the same way the earthquake map does.
+	 * @param dataFolder is the folder with the country, city and life expectancy files
+	 * @param earthquakeFeed is the earthquake feed, a file name, a name in the data folder or a URL
+	 * @return the datasets
+	 * @throws IOException if a file can not be read
+	 */
+	public static SnapshotData load(File dataFolder, String earthquakeFeed) throws IOException {
+		FlatFeatureCollection countries = GeoJSONStreamReader.read(new FileInputStream(new File(dataFolder, COUNTRY_FILE)));
+		List<PointFeature> cities = GeoJSONStreamReader.read(new FileInputStream(new File(dataFolder, CITY_FILE))).createPointFeatures();
+		LifeExpectancyTable lifeExpectancy = LifeExpectancyTable.load(null, new File(dataFolder, LIFE_EXPECTANCY_FILE).getPath(), FIRST_YEAR);
+
+		final List<PointFeature> quakes = new ArrayList<PointFeature>();
+		try (InputStream input = openFeed(dataFolder, earthquakeFeed)) {
+			ParseFeed.parseEarthquakeStreaming(input, null, new PointFeatureHandler() {
+				@Override
+				public void handleFeature(PointFeature feature) {
+					quakes.add(feature);
+				}
+			});
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not parse the earthquake feed " + earthquakeFeed, e);
+		}
+		List<Marker> countryMarkers = countries.createMarkers();
+		int[] countryOf = ParallelCountryClassifier.classify(quakes, new CountryLocator(countryMarkers),
+				new int[countryMarkers.size()], ForkJoinPool.commonPool());
+		EarthquakeStore earthquakes = new EarthquakeStore();
+		for (int i = 0; i < quakes.size(); i++) {
+			earthquakes.add(quakes.get(i), countryOf[i] != CountryLocator.NO_COUNTRY);
+		}
+		return new SnapshotData(countries, lifeExpectancy, earthquakes, cities);
+	}
+
+	// Return the country features
+	public FlatFeatureCollection getCountries() {
+		return countries;
+	}
+
+	// Return the Web Mercator x of a coordinate of the countries
+	public float getCountryX(int coordinate) {
+		return countryXs[coordinate];
+	}
+
+	// Return the Web Mercator y of a coordinate of the countries
+	public float getCountryY(int coordinate) {
+		return countryYs[coordinate];
+	}
+
+	/**
+	 * This method returns the life expectancy of a country
+	 * @param feature is the index of the country feature
+	 * @param year is the year
+	 * @return the life expectancy, NaN if it is not known
+	 */
+	public float getLifeExpectancy(int feature, int year) {
+		int yearIndex = year - lifeExpectancy.getFirstYear();
+		if (countryRows[feature] < 0 || yearIndex < 0 || yearIndex >= lifeExpectancy.getYearCount()) {
+			return Float.NaN;
+		}
+		return lifeExpectancy.getValue(countryRows[feature], yearIndex);
+	}
+
+	// Return the life expectancy table
+	public LifeExpectancyTable getLifeExpectancyTable() {
+		return lifeExpectancy;
+	}
+
+	// Return the earthquakes
+	public EarthquakeStore getEarthquakes() {
+		return earthquakes;
+	}
+
+	// Return the Web Mercator x of an earthquake
+	public float getEarthquakeX(int row) {
+		return earthquakeXs[row];
+	}
+
+	// Return the Web Mercator y of an earthquake
+	public float getEarthquakeY(int row) {
+		return earthquakeYs[row];
+	}
+
+	// Return the city features, with their location and population
+	public List<PointFeature> getCities() {
+		return cities;
+	}
+
+	// Return the number of cities
+	public int getCityCount() {
+		return cityXs.length;
+	}
+
+	// Return the Web Mercator x of a city
+	public float getCityX(int city) {
+		return cityXs[city];
+	}
+
+	// Return the Web Mercator y of a city
+	public float getCityY(int city) {
+		return cityYs[city];
+	}
+
+	/*
+	 * Opens the feed as a URL, a file, or a file in the data folder.
+	 */
+	private static InputStream openFeed(File dataFolder, String earthquakeFeed) throws IOException {
+		if (earthquakeFeed.contains(":/")) {
+			return new URL(earthquakeFeed).openStream();
+		}
+		File file = new File(earthquakeFeed);
+		if (!file.isFile()) {
+			file = new File(dataFolder, earthquakeFeed);
+		}
+		return new FileInputStream(file);
+	}
+}
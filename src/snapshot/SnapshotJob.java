@@ -0,0 +1,159 @@
+package snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import parsing.CsvTokenizer;
+import parsing.NumberDecoder;
+
+/**
+ * This class describes one snapshot image: which map, where, how large and for which year.
+ * A list of jobs is read from a CSV file with one job per row:
+ * kind, name, latitude, longitude, zoom, width, height, year
+ * where kind is "earthquakes" or "lifeexpectancy" and the year is only used by the life expectancy map.
+ * Rows starting with # are comments.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class SnapshotJob {
+
+	// Kinds of map, as written in the job file
+	public static final String EARTHQUAKES = "earthquakes";
+	public static final String LIFE_EXPECTANCY = "lifeexpectancy";
+
+	// Regions of the default jobs: name, latitude, longitude and zoom of the center
+	private static final Object[][] REGIONS = {
+		{ "world", 20f, 0f, 2f },
+		{ "north-america", 45f, -100f, 3f },
+		{ "south-america", -20f, -60f, 3f },
+		{ "europe", 52f, 15f, 3.5f },
+		{ "africa", 3f, 20f, 3f },
+		{ "asia", 35f, 100f, 3f },
+		{ "oceania", -20f, 150f, 3f },
+	};
+	private static final int DEFAULT_WIDTH = 950;
+	private static final int DEFAULT_HEIGHT = 620;
+
+	private final String kind;
+	private final String name;
+	private final float latitude;
+	private final float longitude;
+	private final float zoom;
+	private final int width;
+	private final int height;
+	private final int year;
+
+	/**
+	 * Constructor of a job
+	 * @param kind is EARTHQUAKES or LIFE_EXPECTANCY
+	 * @param name is the name of the image file, without extension
+	 * @param latitude is the latitude of the center of the image
+	 * @param longitude is the longitude of the center of the image
+	 * @param zoom is the zoom level, fractions allowed
+	 * @param width is the width of the image in pixels
+	 * @param height is the height of the image in pixels
+	 * @param year is the year of the life expectancy map
+	 */
+	public SnapshotJob(String kind, String name, float latitude, float longitude, float zoom, int width, int height, int year) {
+		this.kind = kind;
+		this.name = name;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.zoom = zoom;
+		this.width = width;
+		this.height = height;
+		this.year = year;
+	}
+
+	/**
+	 * This method reads the jobs of a CSV file. Rows which are not valid are reported and skipped.
+	 * @param fileName is the job file
+	 * @return the jobs, in file order
+	 */
+	public static List<SnapshotJob> readJobs(String fileName) {
+		List<SnapshotJob> jobs = new ArrayList<SnapshotJob>();
+		for (String[] columns : CsvTokenizer.readRows(null, fileName)) {
+			if (columns.length == 0 || columns[0].trim().isEmpty() || columns[0].trim().startsWith("#")) {
+				continue;
+			}
+			String kind = columns[0].trim();
+			if (columns.length < 7 || !(EARTHQUAKES.equals(kind) || LIFE_EXPECTANCY.equals(kind))) {
+				System.err.println("Skipping snapshot job " + String.join(",", columns));
+				continue;
+			}
+			float latitude = NumberDecoder.parseFloat(columns[2].trim());
+			float longitude = NumberDecoder.parseFloat(columns[3].trim());
+			float zoom = NumberDecoder.parseFloat(columns[4].trim());
+			float width = NumberDecoder.parseFloat(columns[5].trim());
+			float height = NumberDecoder.parseFloat(columns[6].trim());
+			float year = columns.length > 7 ? NumberDecoder.parseFloat(columns[7].trim()) : 0;
+			if (Float.isNaN(latitude) || Float.isNaN(longitude) || Float.isNaN(zoom) || !(width >= 1) || !(height >= 1)
+					|| Float.isNaN(year)) {
+				System.err.println("Skipping snapshot job " + String.join(",", columns));
+				continue;
+			}
+			jobs.add(new SnapshotJob(kind, columns[1].trim(), latitude, longitude, zoom, (int) width, (int) height, (int) year));
+		}
+		return jobs;
+	}
+
+	/**
+	 * This method makes the daily jobs: the earthquake map of every region, and the life expectancy
+	 * map of every region for every year
+	 * @param firstYear is the first year of the life expectancy
+	 * @param yearCount is the number of years
+	 * @return the jobs
+	 */
+	public static List<SnapshotJob> defaultJobs(int firstYear, int yearCount) {
+		List<SnapshotJob> jobs = new ArrayList<SnapshotJob>();
+		for (Object[] region : REGIONS) {
+			jobs.add(new SnapshotJob(EARTHQUAKES, "earthquakes-" + region[0], (Float) region[1], (Float) region[2],
+					(Float) region[3], DEFAULT_WIDTH, DEFAULT_HEIGHT, 0));
+			for (int year = firstYear; year < firstYear + yearCount; year++) {
+				jobs.add(new SnapshotJob(LIFE_EXPECTANCY, "lifeexpectancy-" + region[0] + "-" + year, (Float) region[1],
+						(Float) region[2], (Float) region[3], DEFAULT_WIDTH, DEFAULT_HEIGHT, year));
+			}
+		}
+		return jobs;
+	}
+
+	// Return EARTHQUAKES or LIFE_EXPECTANCY
+	public String getKind() {
+		return kind;
+	}
+
+	// Return the name of the image file, without extension
+	public String getName() {
+		return name;
+	}
+
+	// Return the latitude of the center
+	public float getLatitude() {
+		return latitude;
+	}
+
+	// Return the longitude of the center
+	public float getLongitude() {
+		return longitude;
+	}
+
+	// Return the zoom level
+	public float getZoom() {
+		return zoom;
+	}
+
+	// Return the width in pixels
+	public int getWidth() {
+		return width;
+	}
+
+	// Return the height in pixels
+	public int getHeight() {
+		return height;
+	}
+
+	// Return the year of the life expectancy map
+	public int getYear() {
+		return year;
+	}
+}
@@ -0,0 +1,367 @@
+package snapshot;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import markers.CityMarker;
+import markers.EarthQuakeMarker;
+import markers.EarthquakeLegend;
+import markers.EarthquakeStore;
+import parsing.FlatFeatureCollection;
+import spatial.PolygonSimplifier;
+
+/**
+ * This class draws a snapshot image of the earthquake map or the life expectancy map without a
+ * window, with Java2D into an offscreen image. It draws the same colors, marker shapes and legend as
+ * the maps, on a plain background instead of map tiles.
+ * A renderer keeps no state of its own between images, so one renderer is shared by all threads.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class SnapshotRenderer {
+
+	// Size of a map tile, the world is this many pixels wide at zoom level 0
+	public static final int TILE_SIZE = 256;
+
+	private static final Color OCEAN = new Color(170, 211, 223);
+	private static final Color LAND = new Color(242, 239, 233);
+	private static final Color BORDER = new Color(180, 170, 160);
+	private static final Color LIFE_EXPECTANCY_BACKGROUND = new Color(150, 150, 150);
+	private static final Color UNKNOWN_LIFE_EXPECTANCY = new Color(100, 100, 100);
+	private static final Color LIFE_EXPECTANCY_BORDER = new Color(50, 50, 50);
+	private static final Color CITY = new Color(CityMarker.CITY_COLOR);
+	// Colors of the depth classes, the ones of the earthquake markers
+	private static final Color[] DEPTH_COLORS = { new Color(EarthQuakeMarker.depthColor(0)),
+			new Color(EarthQuakeMarker.depthColor(1)), new Color(EarthQuakeMarker.depthColor(2)) };
+	private static final Color PANEL = new Color(EarthquakeLegend.PANEL_COLOR);
+	private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+
+	private final SnapshotData data;
+	// Fill color of every life expectancy from 40 to 90 in tenths of a year
+	private final Color[] lifeExpectancyColors = new Color[501];
+
+	/**
+	 * Constructor of the renderer
+	 * @param data is the datasets to draw
+	 */
+	public SnapshotRenderer(SnapshotData data) {
+		this.data = data;
+		for (int i = 0; i < lifeExpectancyColors.length; i++) {
+			int level = 10 + i * 245 / (lifeExpectancyColors.length - 1);
+			lifeExpectancyColors[i] = new Color(255 - level, level, 100);
+		}
+	}
+
+	/**
+	 * This method draws the image of a job
+	 * @param job is the map, view, size and year of the image
+	 * @return the image
+	 */
+	public BufferedImage render(SnapshotJob job) {
+		BufferedImage image = new BufferedImage(job.getWidth(), job.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g.setFont(FONT);
+			View view = new View(job);
+			boolean earthquakes = SnapshotJob.EARTHQUAKES.equals(job.getKind());
+			g.setColor(earthquakes ? OCEAN : LIFE_EXPECTANCY_BACKGROUND);
+			g.fillRect(0, 0, job.getWidth(), job.getHeight());
+			drawCountries(g, view, earthquakes ? -1 : job.getYear());
+			if (earthquakes) {
+				// Cities over the quakes, like on the map
+				drawEarthquakes(g, view);
+				drawCities(g, view);
+				drawEarthquakeLegend(g);
+			} else {
+				drawLifeExpectancyLegend(g, job);
+			}
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/*
+	 * Fills and outlines the outer ring of every part of every country that is in the image.
+	 * The year is -1 for the land color of the earthquake map.
+	 */
+	private void drawCountries(Graphics2D g, View view, int year) {
+		FlatFeatureCollection countries = data.getCountries();
+		g.setStroke(new BasicStroke(year < 0 ? 0.5f : 1f));
+		Path2D.Float path = new Path2D.Float();
+		for (int feature = 0; feature < countries.getFeatureCount(); feature++) {
+			if (countries.getFirstPart(feature) == countries.getPartEnd(feature)) {
+				continue;
+			}
+			path.reset();
+			for (int part = countries.getFirstPart(feature); part < countries.getPartEnd(feature); part++) {
+				double left = PolygonSimplifier.mercatorX(countries.getPartBound(part, 1));
+				double right = PolygonSimplifier.mercatorX(countries.getPartBound(part, 3));
+				double top = PolygonSimplifier.mercatorY(countries.getPartBound(part, 2));
+				double bottom = PolygonSimplifier.mercatorY(countries.getPartBound(part, 0));
+				if (view.y(bottom) < 0 || view.y(top) > view.height) {
+					continue;
+				}
+				for (int copy = view.firstCopy; copy <= view.lastCopy; copy++) {
+					if (view.x(right, copy) < 0 || view.x(left, copy) > view.width) {
+						continue;
+					}
+					addRing(path, view, countries.getFirstRing(part), copy);
+				}
+			}
+			if (path.getCurrentPoint() == null) {
+				continue;
+			}
+			if (year < 0) {
+				g.setColor(LAND);
+				g.fill(path);
+				g.setColor(BORDER);
+			} else {
+				g.setColor(lifeExpectancyColor(data.getLifeExpectancy(feature, year)));
+				g.fill(path);
+				g.setColor(LIFE_EXPECTANCY_BORDER);
+			}
+			g.draw(path);
+		}
+	}
+
+	/*
+	 * Adds a ring to the path, leaving out the points that fall on the pixel of the point before.
+	 */
+	private void addRing(Path2D.Float path, View view, int ring, int copy) {
+		FlatFeatureCollection countries = data.getCountries();
+		int lastX = Integer.MIN_VALUE;
+		int lastY = Integer.MIN_VALUE;
+		boolean first = true;
+		for (int c = countries.getFirstCoordinate(ring); c < countries.getCoordinateEnd(ring); c++) {
+			float x = view.x(data.getCountryX(c), copy);
+			float y = view.y(data.getCountryY(c));
+			int pixelX = (int) Math.floor(x);
+			int pixelY = (int) Math.floor(y);
+			if (first) {
+				path.moveTo(x, y);
+				first = false;
+			} else if (pixelX != lastX || pixelY != lastY) {
+				path.lineTo(x, y);
+			} else {
+				continue;
+			}
+			lastX = pixelX;
+			lastY = pixelY;
+		}
+		path.closePath();
+	}
+
+	/*
+	 * Draws the city triangles of the city marker.
+	 */
+	private void drawCities(Graphics2D g, View view) {
+		g.setStroke(new BasicStroke(1f));
+		Path2D.Float triangle = new Path2D.Float();
+		for (int city = 0; city < data.getCityCount(); city++) {
+			float y = view.y(data.getCityY(city));
+			if (y < -10 || y > view.height + 10) {
+				continue;
+			}
+			for (int copy = view.firstCopy; copy <= view.lastCopy; copy++) {
+				float x = view.x(data.getCityX(city), copy);
+				if (x < -10 || x > view.width + 10) {
+					continue;
+				}
+				setCityTriangle(triangle, x, y, 1);
+				drawKeyShape(g, triangle, CITY);
+			}
+		}
+	}
+
+	/*
+	 * Draws the earthquakes as the land and ocean quake markers do: a circle on land, a square in the
+	 * ocean, the size by magnitude, the color by depth, and a cross for the past hour. All of it is
+	 * read from the style group of EarthQuakeMarker, so it follows the markers.
+	 */
+	private void drawEarthquakes(Graphics2D g, View view) {
+		EarthquakeStore quakes = data.getEarthquakes();
+		g.setStroke(new BasicStroke(1f));
+		Ellipse2D.Float circle = new Ellipse2D.Float();
+		Rectangle2D.Float square = new Rectangle2D.Float();
+		for (int row = 0; row < quakes.size(); row++) {
+			int style = EarthQuakeMarker.styleGroup(quakes.isOnLand(row) ? EarthQuakeMarker.SHAPE_ELLIPSE : EarthQuakeMarker.SHAPE_SQUARE,
+					EarthQuakeMarker.depthClass(quakes.getDepth(row)), EarthQuakeMarker.sizeClass(quakes.getMagnitude(row)),
+					quakes.isPastHour(row));
+			float radius = EarthQuakeMarker.sizeRadius(EarthQuakeMarker.styleSize(style));
+			float y = view.y(data.getEarthquakeY(row));
+			if (y < -radius || y > view.height + radius) {
+				continue;
+			}
+			for (int copy = view.firstCopy; copy <= view.lastCopy; copy++) {
+				float x = view.x(data.getEarthquakeX(row), copy);
+				if (x < -radius || x > view.width + radius) {
+					continue;
+				}
+				Shape shape;
+				if (EarthQuakeMarker.styleShape(style) == EarthQuakeMarker.SHAPE_ELLIPSE) {
+					circle.setFrame(x - radius / 2, y - radius / 2, radius, radius);
+					shape = circle;
+				} else {
+					square.setRect(x - radius / 2, y - radius / 2, radius, radius);
+					shape = square;
+				}
+				g.setColor(DEPTH_COLORS[EarthQuakeMarker.styleDepthClass(style)]);
+				g.fill(shape);
+				g.setColor(Color.BLACK);
+				g.draw(shape);
+				if (EarthQuakeMarker.stylePastHour(style)) {
+					drawCross(g, x, y, radius);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Draws the key of the earthquake map from the layout of EarthquakeLegend, like the map does.
+	 */
+	private void drawEarthquakeLegend(Graphics2D g) {
+		g.setStroke(new BasicStroke(1f));
+		g.setColor(PANEL);
+		g.fillRect(EarthquakeLegend.PANEL_LEFT, EarthquakeLegend.PANEL_TOP, EarthquakeLegend.PANEL_WIDTH, EarthquakeLegend.PANEL_HEIGHT);
+		g.setColor(Color.BLACK);
+		g.drawRect(EarthquakeLegend.PANEL_LEFT, EarthquakeLegend.PANEL_TOP, EarthquakeLegend.PANEL_WIDTH, EarthquakeLegend.PANEL_HEIGHT);
+		Path2D.Float triangle = new Path2D.Float();
+		for (int key = 0; key < EarthquakeLegend.getKeyCount(); key++) {
+			float x = EarthquakeLegend.getShapeX(key);
+			float y = EarthquakeLegend.getShapeY(key);
+			float size = EarthquakeLegend.getShapeSize(key);
+			Color fill = new Color(EarthquakeLegend.getColor(key));
+			switch (EarthquakeLegend.getShape(key)) {
+			case EarthquakeLegend.KEY_CITY:
+				setCityTriangle(triangle, x, y, EarthquakeLegend.CITY_SCALE);
+				drawKeyShape(g, triangle, fill);
+				break;
+			case EarthquakeLegend.KEY_ELLIPSE:
+				drawKeyShape(g, new Ellipse2D.Float(x - size / 2, y - size / 2, size, size), fill);
+				break;
+			case EarthquakeLegend.KEY_SQUARE:
+				drawKeyShape(g, new Rectangle2D.Float(x - size / 2, y - size / 2, size, size), fill);
+				break;
+			case EarthquakeLegend.KEY_PAST_HOUR:
+				drawKeyShape(g, new Ellipse2D.Float(x - size / 2, y - size / 2, size, size), fill);
+				drawCross(g, x, y, EarthquakeLegend.PAST_HOUR_CROSS * 2);
+				break;
+			default:
+				break;
+			}
+			g.drawString(EarthquakeLegend.getLabel(key), EarthquakeLegend.getLabelX(key), EarthquakeLegend.getLabelY(key));
+		}
+	}
+
+	/*
+	 * Draws the year and the color scale of the life expectancy map.
+	 */
+	private void drawLifeExpectancyLegend(Graphics2D g, SnapshotJob job) {
+		g.setStroke(new BasicStroke(1f));
+		g.setColor(PANEL);
+		g.fillRect(20, 10, 150, 110);
+		g.setColor(Color.BLACK);
+		g.drawRect(20, 10, 150, 110);
+		g.drawString("Life Expectancy " + job.getYear(), 35, 35);
+		for (int i = 0; i < 120; i++) {
+			g.setColor(lifeExpectancyColor(40 + i * 50f / 119));
+			g.fillRect(35 + i, 50, 1, 20);
+		}
+		g.setColor(Color.BLACK);
+		g.drawRect(35, 50, 120, 20);
+		g.drawString("40", 35, 85);
+		g.drawString("90", 140, 85);
+		g.setColor(UNKNOWN_LIFE_EXPECTANCY);
+		g.fillRect(35, 95, 12, 12);
+		g.setColor(Color.BLACK);
+		g.drawString("Unknown", 55, 106);
+	}
+
+	/*
+	 * Fills a shape of the key and outlines it in black, leaving black as the color.
+	 */
+	private void drawKeyShape(Graphics2D g, Shape shape, Color fill) {
+		g.setColor(fill);
+		g.fill(shape);
+		g.setColor(Color.BLACK);
+		g.draw(shape);
+	}
+
+	/*
+	 * Sets the path to the city triangle of CityMarker around a city.
+	 */
+	private void setCityTriangle(Path2D.Float triangle, float x, float y, float scale) {
+		triangle.reset();
+		triangle.moveTo(x, y - CityMarker.TRIANGLE_TOP * scale);
+		triangle.lineTo(x - CityMarker.TRIANGLE_HALF_WIDTH * scale, y + CityMarker.TRIANGLE_BOTTOM * scale);
+		triangle.lineTo(x + CityMarker.TRIANGLE_HALF_WIDTH * scale, y + CityMarker.TRIANGLE_BOTTOM * scale);
+		triangle.closePath();
+	}
+
+	/*
+	 * Draws the cross of a quake of the past hour.
+	 */
+	private void drawCross(Graphics2D g, float x, float y, float radius) {
+		Path2D.Float cross = new Path2D.Float();
+		cross.moveTo(x - radius / 2, y - radius / 2);
+		cross.lineTo(x + radius / 2, y + radius / 2);
+		cross.moveTo(x - radius / 2, y + radius / 2);
+		cross.lineTo(x + radius / 2, y - radius / 2);
+		g.draw(cross);
+	}
+
+	/*
+	 * The color of the life expectancy map, clamped to the scale from 40 to 90 years.
+	 */
+	private Color lifeExpectancyColor(float lifeExpectancy) {
+		if (Float.isNaN(lifeExpectancy)) {
+			return UNKNOWN_LIFE_EXPECTANCY;
+		}
+		int i = Math.round((lifeExpectancy - 40) * 10);
+		return lifeExpectancyColors[Math.max(0, Math.min(lifeExpectancyColors.length - 1, i))];
+	}
+
+	/*
+	 * The pixel position of Web Mercator coordinates in an image. The world repeats left and right,
+	 * copies firstCopy to lastCopy are in the image.
+	 */
+	private static class View {
+
+		private final double world;
+		private final double left;
+		private final double top;
+		private final int width;
+		private final int height;
+		private final int firstCopy;
+		private final int lastCopy;
+
+		private View(SnapshotJob job) {
+			world = TILE_SIZE * Math.pow(2, job.getZoom());
+			width = job.getWidth();
+			height = job.getHeight();
+			left = PolygonSimplifier.mercatorX(job.getLongitude()) * world - width / 2.0;
+			top = PolygonSimplifier.mercatorY(job.getLatitude()) * world - height / 2.0;
+			firstCopy = (int) Math.floor(left / world);
+			lastCopy = (int) Math.floor((left + width) / world);
+		}
+
+		private float x(double mercatorX, int copy) {
+			return (float) ((mercatorX + copy) * world - left);
+		}
+
+		private float y(double mercatorY) {
+			return (float) (mercatorY * world - top);
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package spatial;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import de.fhpotsdam.unfolding.geo.Location;
+
+/**
+ * This class is a lat/lon raster of the countries for classifying many locations in constant time.
+ * Every cell is OCEAN, the index of the one country marker covering it, or BOUNDARY when a country
+ * border runs through it. Only locations in BOUNDARY cells need the exact test of the CountryLocator,
+ * so the result is always the same as CountryLocator.findCountry.
+ * The grid can be saved and loaded again, keyed by the content of the country file.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class CountryGrid implements CountryLookup {
+
+	public static final short OCEAN = -1;
+	public static final short BOUNDARY = -2;
+
+	private static final int MAGIC = 0x43475231; // "CGR1"
+	// Edges closer than this (in cells) to a cell are counted as running through it
+	private static final double EDGE_MARGIN = 1e-4;
+
+	private final CountryLocator locator;
+	private final int cellsPerDegree;
+	private final int rows;
+	private final int columns;
+	// Cell of row r (from latitude -90) and column c (from longitude -180) is cells[r * columns + c]
+	private final short[] cells;
+
+	private CountryGrid(CountryLocator locator, int cellsPerDegree, short[] cells) {
+		this.locator = locator;
+		this.cellsPerDegree = cellsPerDegree;
+		this.rows = 180 * cellsPerDegree;
+		this.columns = 360 * cellsPerDegree;
+		this.cells = cells;
+	}
+
+	/**
+	 * This method builds the grid. Every cell crossed by a polygon edge is a BOUNDARY cell, every
+	 * other cell gets the country of its center, which is the country of every location in it.
+	 * @param locator finds the country of a location and has the polygons
+	 * @param cellsPerDegree is the resolution, e.g. 4 for cells of a quarter degree
+	 * @return the grid
+	 */
+	public static CountryGrid build(CountryLocator locator, int cellsPerDegree) {
+		int rows = 180 * cellsPerDegree;
+		int columns = 360 * cellsPerDegree;
+		short[] cells = new short[rows * columns];
+		// 0 marks the cells which are not yet classified
+		for (int polygon = 0; polygon < locator.getPolygonCount(); polygon++) {
+			List<Location> ring = locator.getPolygonLocations(polygon);
+			// the ring is closed from the last location back to the first one, like the exact test does
+			for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+				markEdge(cells, columns, rows, cellsPerDegree, ring.get(j), ring.get(i));
+			}
+		}
+
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				int cell = r * columns + c;
+				if (cells[cell] == 0) {
+					Location center = new Location(-90 + (r + 0.5f) / cellsPerDegree, -180 + (c + 0.5f) / cellsPerDegree);
+					int country = locator.findCountry(center);
+					// store country + 1 for now so 0 still means not classified
+					cells[cell] = (short) (country == CountryLocator.NO_COUNTRY ? OCEAN : country + 1);
+				}
+			}
+		}
+		for (int cell = 0; cell < cells.length; cell++) {
+			if (cells[cell] > 0) {
+				cells[cell]--;
+			}
+		}
+		return new CountryGrid(locator, cellsPerDegree, cells);
+	}
+
+	/**
+	 * This method finds the country of a location, with the exact test only in boundary cells.
+	 * @param loc is the location
+	 * @return the index of the country marker, or CountryLocator.NO_COUNTRY if the location is in the ocean
+	 */
+	@Override
+	public int findCountry(Location loc) {
+		short cell = cells[cellOf(loc.getLat(), loc.getLon())];
+		if (cell == BOUNDARY) {
+			return locator.findCountry(loc);
+		}
+		return cell == OCEAN ? CountryLocator.NO_COUNTRY : cell;
+	}
+
+	/**
+	 * This method returns the raw cell of a location without any exact test.
+	 * @param lat is the latitude of the location
+	 * @param lon is the longitude of the location
+	 * @return OCEAN, BOUNDARY or the index of the country marker
+	 */
+	public short getCell(float lat, float lon) {
+		return cells[cellOf(lat, lon)];
+	}
+
+	// Return the number of cells in each degree
+	public int getCellsPerDegree() {
+		return cellsPerDegree;
+	}
+
+	// Return the number of bytes used by the cells
+	public int getByteSize() {
+		return 2 * cells.length;
+	}
+
+	// Return the number of BOUNDARY cells
+	public int getBoundaryCellCount() {
+		int count = 0;
+		for (short cell : cells) {
+			if (cell == BOUNDARY) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * This method writes the grid, the parent folders are created if needed.
+	 * @param file is the grid file
+	 * @param key is the content key of the country file
+	 * @throws IOException if the file can not be written
+	 */
+	public void save(File file, byte[] key) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(key.length);
+			out.write(key);
+			out.writeInt(cellsPerDegree);
+			for (short cell : cells) {
+				out.writeShort(cell);
+			}
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Could not replace " + file);
+		}
+		if (!temp.renameTo(file)) {
+			throw new IOException("Could not rename " + temp + " to " + file);
+		}
+	}
+
+	/**
+	 * This method reads a grid if it exists and was built from the same country file at the same resolution.
+	 * @param file is the grid file
+	 * @param key is the content key of the current country file
+	 * @param locator finds the country of locations in boundary cells, it must be made from the same file
+	 * @param cellsPerDegree is the resolution which is wanted
+	 * @return the grid, or null if there is none, it is outdated or it can not be read
+	 */
+	public static CountryGrid load(File file, byte[] key, CountryLocator locator, int cellsPerDegree) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.getInt() != MAGIC || in.getInt() != key.length) {
+				return null;
+			}
+			byte[] storedKey = new byte[key.length];
+			in.get(storedKey);
+			if (!Arrays.equals(storedKey, key) || in.getInt() != cellsPerDegree) {
+				return null;
+			}
+			short[] cells = new short[180 * cellsPerDegree * 360 * cellsPerDegree];
+			in.asShortBuffer().get(cells);
+			return new CountryGrid(locator, cellsPerDegree, cells);
+		} catch (IOException | BufferUnderflowException e) {
+			System.err.println("Ignoring unreadable country grid " + file + ": " + e);
+			return null;
+		}
+	}
+
+	/*
+	 * Returns the index of the cell of a location, the poles and the date line go to the last row and column.
+	 */
+	private int cellOf(float lat, float lon) {
+		int r = Math.min(rows - 1, Math.max(0, (int) Math.floor((lat + 90) * cellsPerDegree)));
+		int c = Math.min(columns - 1, Math.max(0, (int) Math.floor((lon + 180) * cellsPerDegree)));
+		return r * columns + c;
+	}
+
+	/*
+	 * Marks every cell an edge runs through as BOUNDARY, going column by column over the edge.
+	 */
+	private static void markEdge(short[] cells, int columns, int rows, int cellsPerDegree, Location from, Location to) {
+		// x goes with the longitude and y with the latitude, both in cells
+		double x0 = (from.getLon() + 180.0) * cellsPerDegree;
+		double y0 = (from.getLat() + 90.0) * cellsPerDegree;
+		double x1 = (to.getLon() + 180.0) * cellsPerDegree;
+		double y1 = (to.getLat() + 90.0) * cellsPerDegree;
+		if (x0 > x1) {
+			double t = x0; x0 = x1; x1 = t;
+			t = y0; y0 = y1; y1 = t;
+		}
+		int firstColumn = Math.max(0, (int) Math.floor(x0 - EDGE_MARGIN));
+		int lastColumn = Math.min(columns - 1, (int) Math.floor(x1 + EDGE_MARGIN));
+		for (int c = firstColumn; c <= lastColumn; c++) {
+			// part of the edge inside this column
+			double left = Math.max(x0, c);
+			double right = Math.min(x1, c + 1);
+			double yLeft = x1 == x0 ? y0 : y0 + (y1 - y0) * (left - x0) / (x1 - x0);
+			double yRight = x1 == x0 ? y1 : y0 + (y1 - y0) * (right - x0) / (x1 - x0);
+			int firstRow = Math.max(0, (int) Math.floor(Math.min(yLeft, yRight) - EDGE_MARGIN));
+			int lastRow = Math.min(rows - 1, (int) Math.floor(Math.max(yLeft, yRight) + EDGE_MARGIN));
+			for (int r = firstRow; r <= lastRow; r++) {
+				cells[r * columns + c] = BOUNDARY;
+			}
+		}
+	}
+}
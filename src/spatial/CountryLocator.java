@@ -0,0 +1,117 @@
+package spatial;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fhpotsdam.unfolding.geo.Location;
+import de.fhpotsdam.unfolding.marker.AbstractShapeMarker;
+import de.fhpotsdam.unfolding.marker.Marker;
+import de.fhpotsdam.unfolding.marker.MultiMarker;
+
+/**
+ * This class finds the country marker a location is in. The bounding box of every country polygon,
+ * one per sub marker of a MultiMarker, is put into an STRTree, so only the few polygons whose box
+ * contains the location get the exact isInsideByLocation test. The polygons are tested in the order
+ * of the country markers, so the result is the same as testing every marker in turn.
+ * It can be used from several threads at the same time.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class CountryLocator implements CountryLookup {
+
+	// Result for a location which is not in any country
+	public static final int NO_COUNTRY = -1;
+
+	private final AbstractShapeMarker[] polygons;
+	// Index of the country marker of every polygon
+	private final int[] polygonCountry;
+	private final float[] boxes;
+	private final STRTree index;
+	// Every thread gets its own buffer for the candidates
+	private final ThreadLocal<int[]> candidates = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[polygons.length];
+		}
+	};
+
+	/**
+	 * Constructor with the country markers
+	 * @param countryMarkers are the shape markers and MultiMarkers of the countries
+	 */
+	public CountryLocator(List<Marker> countryMarkers) {
+		List<AbstractShapeMarker> polygonList = new ArrayList<AbstractShapeMarker>();
+		List<Integer> countryList = new ArrayList<Integer>();
+		for (int i = 0; i < countryMarkers.size(); i++) {
+			Marker marker = countryMarkers.get(i);
+			if (marker.getClass() == MultiMarker.class) {
+				for (Marker subMultiMarker : ((MultiMarker) marker).getMarkers()) {
+					polygonList.add((AbstractShapeMarker) subMultiMarker);
+					countryList.add(i);
+				}
+			} else {
+				polygonList.add((AbstractShapeMarker) marker);
+				countryList.add(i);
+			}
+		}
+
+		polygons = polygonList.toArray(new AbstractShapeMarker[polygonList.size()]);
+		polygonCountry = new int[polygons.length];
+		boxes = new float[4 * polygons.length];
+		for (int i = 0; i < polygons.length; i++) {
+			polygonCountry[i] = countryList.get(i);
+			float minLat = Float.POSITIVE_INFINITY;
+			float minLon = Float.POSITIVE_INFINITY;
+			float maxLat = Float.NEGATIVE_INFINITY;
+			float maxLon = Float.NEGATIVE_INFINITY;
+			for (Location loc : polygons[i].getLocations()) {
+				minLat = Math.min(minLat, loc.getLat());
+				minLon = Math.min(minLon, loc.getLon());
+				maxLat = Math.max(maxLat, loc.getLat());
+				maxLon = Math.max(maxLon, loc.getLon());
+			}
+			boxes[4 * i] = minLat;
+			boxes[4 * i + 1] = minLon;
+			boxes[4 * i + 2] = maxLat;
+			boxes[4 * i + 3] = maxLon;
+		}
+		index = STRTree.build(boxes, polygons.length);
+	}
+
+	/**
+	 * This method finds the country of a location.
+	 * @param loc is the location
+	 * @return the index of the country marker, or NO_COUNTRY if the location is in the ocean
+	 */
+	@Override
+	public int findCountry(Location loc) {
+		int[] found = candidates.get();
+		int candidateCount = index.findContaining(loc.getLat(), loc.getLon(), found);
+		for (int i = 0; i < candidateCount; i++) {
+			if (polygons[found[i]].isInsideByLocation(loc)) {
+				return polygonCountry[found[i]];
+			}
+		}
+		return NO_COUNTRY;
+	}
+
+	// Return the number of polygons
+	public int getPolygonCount() {
+		return polygons.length;
+	}
+
+	// Return the outline of a polygon
+	public List<Location> getPolygonLocations(int polygon) {
+		return polygons[polygon].getLocations();
+	}
+
+	/**
+	 * This method returns one value of the bounding box of a polygon
+	 * @param polygon is the index of the polygon
+	 * @param which is 0 for min latitude, 1 for min longitude, 2 for max latitude and 3 for max longitude
+	 * @return the value
+	 */
+	public float getPolygonBound(int polygon, int which) {
+		return boxes[4 * polygon + which];
+	}
+}
@@ -0,0 +1,17 @@
+package spatial;
+
+import de.fhpotsdam.unfolding.geo.Location;
+
+/**
+ * This interface finds the country marker a location is in.
+ * Implementations can be used from several threads at the same time.
+ * @author Yuming
+ * 10/17/2026
+ */
+public interface CountryLookup {
+	/**
+	 * @param loc is the location
+	 * @return the index of the country marker, or CountryLocator.NO_COUNTRY if the location is in the ocean
+	 */
+	int findCountry(Location loc);
+}
@@ -0,0 +1,87 @@
+package spatial;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+
+/**
+ * This class finds the country of many earthquakes on a fork-join pool. The list is split in halves
+ * until the pieces are small, every piece writes the country of its quakes into its own range of the
+ * result, and the number of quakes per country is counted in striped counters which do not contend
+ * when many threads count quakes of the same country. Nothing else is changed, so the caller can apply
+ * the results in list order and gets the same markers and counts as with a sequential loop.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class ParallelCountryClassifier {
+
+	// Pieces with fewer quakes are classified on one thread
+	private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+	/**
+	 * This method classifies the quakes.
+	 * @param features are the earthquakes
+	 * @param lookup finds the country of a location, it is called from several threads
+	 * @param countryCounts receives the number of quakes in every country, it must have one entry per country marker
+	 * @param pool is the pool to run on, e.g. ForkJoinPool.commonPool()
+	 * @return the index of the country marker of every quake, or CountryLocator.NO_COUNTRY for an ocean quake
+	 */
+	public static int[] classify(List<PointFeature> features, CountryLookup lookup, int[] countryCounts, ForkJoinPool pool) {
+		PointFeature[] quakes = features.toArray(new PointFeature[features.size()]);
+		int[] countries = new int[quakes.length];
+		LongAdder[] counters = new LongAdder[countryCounts.length];
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+
+		pool.invoke(new ClassifyTask(quakes, lookup, countries, counters, 0, quakes.length));
+
+		for (int i = 0; i < counters.length; i++) {
+			countryCounts[i] = counters[i].intValue();
+		}
+		return countries;
+	}
+
+	/*
+	 * Classifies the quakes from start to end, splitting the range while it is large.
+	 */
+	private static class ClassifyTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final PointFeature[] quakes;
+		private final CountryLookup lookup;
+		private final int[] countries;
+		private final LongAdder[] counters;
+		private final int start;
+		private final int end;
+
+		ClassifyTask(PointFeature[] quakes, CountryLookup lookup, int[] countries, LongAdder[] counters, int start, int end) {
+			this.quakes = quakes;
+			this.lookup = lookup;
+			this.countries = countries;
+			this.counters = counters;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= SEQUENTIAL_THRESHOLD) {
+				for (int i = start; i < end; i++) {
+					int country = lookup.findCountry(quakes[i].getLocation());
+					countries[i] = country;
+					if (country != CountryLocator.NO_COUNTRY) {
+						counters[country].increment();
+					}
+				}
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new ClassifyTask(quakes, lookup, countries, counters, start, middle),
+					new ClassifyTask(quakes, lookup, countries, counters, middle, end));
+		}
+	}
+}
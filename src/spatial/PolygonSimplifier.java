@@ -0,0 +1,257 @@
+package spatial;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import de.fhpotsdam.unfolding.geo.Location;
+
+/**
+ * This class simplifies polygon rings for every zoom level with Douglas-Peucker, so a zoomed out map
+ * does not draw thousands of vertices on the same pixel. The tolerance of a zoom level is half a
+ * pixel in Web Mercator at that zoom.
+ * Borders shared by two countries are simplified the same way in both: a vertex where the set of rings
+ * using it changes, and the first vertex of every ring, is an anchor in every ring which has it, and
+ * the part of a ring between two anchors is always simplified in the same direction. So neighbouring
+ * countries keep the same simplified border, without gaps or overlaps between them.
+ * The simplified rings reuse the Location objects of the full rings.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class PolygonSimplifier {
+
+	// Tolerance in pixels
+	public static final double PIXEL_TOLERANCE = 0.5;
+
+	private static final int TILE_SIZE = 256;
+	private static final double MAX_LATITUDE = 85.0511;
+
+	/**
+	 * This method simplifies the rings for the zoom levels 0 to maxZoom. A level on which a ring
+	 * loses no vertex gets the full ring itself.
+	 * @param rings are the rings, closed or not
+	 * @param maxZoom is the last zoom level to simplify for
+	 * @return the rings of every level, result.get(ring).get(zoom)
+	 */
+	public static List<List<List<Location>>> simplify(List<List<Location>> rings, int maxZoom) {
+		// Every vertex gets a signature of the rings which use it, a closed ring uses its first vertex once
+		HashMap<Long, Long> users = new HashMap<Long, Long>();
+		for (int r = 0; r < rings.size(); r++) {
+			List<Location> ring = rings.get(r);
+			long ringSignature = mix(r);
+			for (int i = 0; i < openSize(ring); i++) {
+				Long key = key(ring.get(i));
+				Long signature = users.get(key);
+				users.put(key, signature == null ? ringSignature : signature + ringSignature);
+			}
+		}
+		// A vertex is an anchor where the rings using it change along a ring, so shared borders are cut
+		// at the same vertices in every ring which has them
+		HashSet<Long> anchors = new HashSet<Long>();
+		for (List<Location> ring : rings) {
+			int size = openSize(ring);
+			if (size == 0) {
+				continue;
+			}
+			anchors.add(key(ring.get(0)));
+			for (int i = 0; i < size; i++) {
+				long signature = users.get(key(ring.get(i)));
+				long previous = users.get(key(ring.get((i + size - 1) % size)));
+				long next = users.get(key(ring.get((i + 1) % size)));
+				if (signature != previous || signature != next) {
+					anchors.add(key(ring.get(i)));
+				}
+			}
+		}
+
+		List<List<List<Location>>> result = new ArrayList<List<List<Location>>>(rings.size());
+		for (List<Location> ring : rings) {
+			result.add(simplifyRing(ring, anchors, maxZoom));
+		}
+		return result;
+	}
+
+	/*
+	 * Simplifies one ring once, finding the first zoom level which draws every vertex,
+	 * then lists the vertices of every level.
+	 */
+	private static List<List<Location>> simplifyRing(List<Location> ring, HashSet<Long> anchors, int maxZoom) {
+		int size = openSize(ring);
+		boolean closed = size < ring.size();
+		double[] xs = new double[size];
+		double[] ys = new double[size];
+		long[] keys = new long[size];
+		boolean[] anchor = new boolean[size];
+		int anchorCount = 0;
+		for (int i = 0; i < size; i++) {
+			xs[i] = mercatorX(ring.get(i).getLon());
+			ys[i] = mercatorY(ring.get(i).getLat());
+			keys[i] = key(ring.get(i));
+			anchor[i] = anchors.contains(keys[i]);
+			if (anchor[i]) {
+				anchorCount++;
+			}
+		}
+
+		// The zoom level at which every vertex starts to be drawn, 0 for anchors
+		int[] firstZoom = new int[size];
+		for (int i = 0; i < size; i++) {
+			firstZoom[i] = anchor[i] ? 0 : Integer.MAX_VALUE;
+		}
+		if (anchorCount > 0) {
+			int first = 0;
+			while (!anchor[first]) {
+				first++;
+			}
+			int start = first;
+			do {
+				int end = (start + 1) % size;
+				while (!anchor[end]) {
+					end = (end + 1) % size;
+				}
+				// simplify from the smaller end so both rings of a shared border do the same
+				if (keys[start] <= keys[end]) {
+					simplifySection(xs, ys, start, end, size, false, maxZoom, firstZoom);
+				} else {
+					simplifySection(xs, ys, end, start, size, true, maxZoom, firstZoom);
+				}
+				start = end;
+			} while (start != first);
+		}
+
+		List<List<Location>> levels = new ArrayList<List<Location>>(maxZoom + 1);
+		for (int zoom = 0; zoom <= maxZoom; zoom++) {
+			List<Location> level = new ArrayList<Location>();
+			for (int i = 0; i < size; i++) {
+				if (firstZoom[i] <= zoom) {
+					level.add(ring.get(i));
+				}
+			}
+			if (level.size() == size) {
+				level = ring;
+			} else if (closed) {
+				level.add(level.get(0));
+			}
+			levels.add(level);
+		}
+		return levels;
+	}
+
+	/*
+	 * Douglas-Peucker on the vertices between from and to, walking forward through the ring or,
+	 * if backward is true, from to back to from. Sets the first zoom level of every vertex in between.
+	 */
+	private static void simplifySection(double[] xs, double[] ys, int from, int to, int size, boolean backward,
+			int maxZoom, int[] firstZoom) {
+		// The section as positions along the walk, pairs of first and last position are the work to do
+		int length = ((backward ? from - to : to - from) + size) % size;
+		if (length == 0) {
+			length = size;
+		}
+		int[] stack = new int[2 * (length + 1)];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = length;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			if (last - first < 2) {
+				continue;
+			}
+			int a = walk(from, first, size, backward);
+			int b = walk(from, last, size, backward);
+			double farthest = -1;
+			int split = -1;
+			for (int k = first + 1; k < last; k++) {
+				double distance = distance(xs, ys, walk(from, k, size, backward), a, b);
+				if (distance > farthest) {
+					farthest = distance;
+					split = k;
+				}
+			}
+			// the vertex is drawn from the first zoom whose tolerance is smaller than its distance,
+			// and never before the vertices which made the section
+			int zoom = zoomFor(farthest);
+			zoom = Math.max(zoom, Math.max(sectionZoom(firstZoom, a), sectionZoom(firstZoom, b)));
+			if (zoom > maxZoom) {
+				continue;
+			}
+			firstZoom[walk(from, split, size, backward)] = zoom;
+			stack[top++] = first;
+			stack[top++] = split;
+			stack[top++] = split;
+			stack[top++] = last;
+		}
+	}
+
+	private static int sectionZoom(int[] firstZoom, int i) {
+		return firstZoom[i] == Integer.MAX_VALUE ? 0 : firstZoom[i];
+	}
+
+	/*
+	 * Returns the first zoom level whose tolerance is smaller than a distance in Web Mercator.
+	 */
+	private static int zoomFor(double distance) {
+		if (distance <= 0) {
+			return Integer.MAX_VALUE;
+		}
+		double zoom = Math.log(PIXEL_TOLERANCE / (TILE_SIZE * distance)) / Math.log(2);
+		return Math.max(0, (int) Math.floor(zoom) + 1);
+	}
+
+	private static int walk(int from, int steps, int size, boolean backward) {
+		return ((backward ? from - steps : from + steps) % size + size) % size;
+	}
+
+	/*
+	 * Distance of vertex i from the segment from a to b.
+	 */
+	private static double distance(double[] xs, double[] ys, int i, int a, int b) {
+		double dx = xs[b] - xs[a];
+		double dy = ys[b] - ys[a];
+		double length = dx * dx + dy * dy;
+		double t = length == 0 ? 0 : ((xs[i] - xs[a]) * dx + (ys[i] - ys[a]) * dy) / length;
+		t = Math.max(0, Math.min(1, t));
+		double px = xs[a] + t * dx - xs[i];
+		double py = ys[a] + t * dy - ys[i];
+		return Math.sqrt(px * px + py * py);
+	}
+
+	/*
+	 * Number of distinct vertices of a ring, without the closing copy of the first one.
+	 */
+	private static int openSize(List<Location> ring) {
+		int size = ring.size();
+		if (size > 1 && ring.get(0).getLat() == ring.get(size - 1).getLat()
+				&& ring.get(0).getLon() == ring.get(size - 1).getLon()) {
+			size--;
+		}
+		return size;
+	}
+
+	/*
+	 * Spreads the bits of a ring number, so the sums of different sets of rings hardly ever collide.
+	 */
+	private static long mix(long ring) {
+		long h = (ring + 1) * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		return h ^ (h >>> 32);
+	}
+
+	private static long key(Location location) {
+		return ((long) Float.floatToIntBits(location.getLat()) << 32) | (Float.floatToIntBits(location.getLon()) & 0xffffffffL);
+	}
+
+	// Return the Web Mercator x of a longitude, from 0 to 1 over the world
+	public static double mercatorX(float lon) {
+		return (lon + 180.0) / 360;
+	}
+
+	// Return the Web Mercator y of a latitude, from 0 at the top to 1 at the bottom of the world
+	public static double mercatorY(float lat) {
+		double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat))));
+		return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+	}
+}
@@ -0,0 +1,137 @@
+package spatial;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class finds, for every earthquake, the cities within its impact distance and adds up their
+ * population. Instead of testing every quake against every city, each quake asks the k-d tree of the
+ * cities for the ones in its impact circle, and the quakes are split over a fork-join pool. Every piece
+ * writes only its own range of the results, so the report is the same on any number of threads.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class PopulationExposure {
+
+	// Pieces with fewer quakes are joined on one thread
+	private static final int SEQUENTIAL_THRESHOLD = 256;
+
+	private final double[] exposures;
+	private final int[] cityCounts;
+
+	private PopulationExposure(double[] exposures, int[] cityCounts) {
+		this.exposures = exposures;
+		this.cityCounts = cityCounts;
+	}
+
+	/**
+	 * This method joins the quakes with the cities.
+	 * @param latitudes is the latitude of every quake
+	 * @param longitudes is the longitude of every quake
+	 * @param impactDistances is the impact distance of every quake in km
+	 * @param count is the number of quakes
+	 * @param cities is the k-d tree of the city locations
+	 * @param populations is the population of every city, in the order the tree was built with
+	 * @param pool is the pool to run on, e.g. ForkJoinPool.commonPool()
+	 * @return the exposure of every quake
+	 */
+	public static PopulationExposure compute(float[] latitudes, float[] longitudes, double[] impactDistances, int count,
+			SphereKdTree cities, double[] populations, ForkJoinPool pool) {
+		double[] exposures = new double[count];
+		int[] cityCounts = new int[count];
+		pool.invoke(new JoinTask(latitudes, longitudes, impactDistances, cities, populations, exposures, cityCounts, 0, count));
+		return new PopulationExposure(exposures, cityCounts);
+	}
+
+	// Return the number of quakes
+	public int size() {
+		return exposures.length;
+	}
+
+	// Return the population of the cities in the impact circle of a quake
+	public double getExposure(int quake) {
+		return exposures[quake];
+	}
+
+	// Return the number of cities in the impact circle of a quake
+	public int getCityCount(int quake) {
+		return cityCounts[quake];
+	}
+
+	/**
+	 * This method ranks the quakes by exposure.
+	 * @return the quakes from the largest exposure to the smallest, equal exposures in quake order
+	 */
+	public int[] rank() {
+		int count = exposures.length;
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(exposures[b], exposures[a]);
+			}
+		});
+		int[] ranked = new int[count];
+		for (int i = 0; i < count; i++) {
+			ranked[i] = order[i];
+		}
+		return ranked;
+	}
+
+	/*
+	 * Joins the quakes from start to end, splitting the range while it is large.
+	 */
+	private static class JoinTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final float[] latitudes;
+		private final float[] longitudes;
+		private final double[] impactDistances;
+		private final SphereKdTree cities;
+		private final double[] populations;
+		private final double[] exposures;
+		private final int[] cityCounts;
+		private final int start;
+		private final int end;
+
+		JoinTask(float[] latitudes, float[] longitudes, double[] impactDistances, SphereKdTree cities, double[] populations,
+				double[] exposures, int[] cityCounts, int start, int end) {
+			this.latitudes = latitudes;
+			this.longitudes = longitudes;
+			this.impactDistances = impactDistances;
+			this.cities = cities;
+			this.populations = populations;
+			this.exposures = exposures;
+			this.cityCounts = cityCounts;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= SEQUENTIAL_THRESHOLD) {
+				int[] found = new int[cities.size()];
+				for (int i = start; i < end; i++) {
+					int count = cities.findWithin(latitudes[i], longitudes[i], impactDistances[i], found);
+					// add in city order so the sum does not depend on the tree layout
+					Arrays.sort(found, 0, count);
+					double exposure = 0;
+					for (int k = 0; k < count; k++) {
+						exposure += populations[found[k]];
+					}
+					exposures[i] = exposure;
+					cityCounts[i] = count;
+				}
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new JoinTask(latitudes, longitudes, impactDistances, cities, populations, exposures, cityCounts, start, middle),
+					new JoinTask(latitudes, longitudes, impactDistances, cities, populations, exposures, cityCounts, middle, end));
+		}
+	}
+}
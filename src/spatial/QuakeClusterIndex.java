@@ -0,0 +1,273 @@
+package spatial;
+
+import java.util.Arrays;
+
+/**
+ * This class groups earthquakes into clusters for every zoom level, so a zoomed out map draws
+ * a few cluster markers instead of every quake on top of each other. The clusters of a zoom level
+ * are made by putting the clusters of the next finer level into a grid of screen cells of
+ * CLUSTER_RADIUS pixels at that zoom, so they split up as the user zooms in. Every cluster keeps
+ * its number of quakes, the largest magnitude and the depth class most of its quakes have.
+ * Positions are kept in Web Mercator from 0 to 1, like the tiles of the map, and the clusters of
+ * every level are sorted by x for finding the ones in view.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class QuakeClusterIndex {
+
+	// Zoom levels above this show every quake
+	public static final int MAX_ZOOM = 10;
+	// Side of the grid cells in pixels
+	public static final float CLUSTER_RADIUS = 40;
+
+	public static final byte SHALLOW = 0;
+	public static final byte INTERMEDIATE = 1;
+	public static final byte DEEP = 2;
+
+	private static final int TILE_SIZE = 256;
+	private static final float MAX_LATITUDE = 85.0511f;
+
+	// One entry per zoom level from 0 to MAX_ZOOM, a level where nothing merged shares the arrays of the finer one
+	private final float[][] xs = new float[MAX_ZOOM + 1][];
+	private final float[][] ys = new float[MAX_ZOOM + 1][];
+	private final int[][] counts = new int[MAX_ZOOM + 1][];
+	private final float[][] maxMagnitudes = new float[MAX_ZOOM + 1][];
+	private final byte[][] depthClasses = new byte[MAX_ZOOM + 1][];
+	// The quake of a cluster with one quake, -1 for larger clusters
+	private final int[][] items = new int[MAX_ZOOM + 1][];
+
+	private QuakeClusterIndex() {
+	}
+
+	/**
+	 * This method builds the clusters of all zoom levels.
+	 * @param latitudes is the latitude of every quake
+	 * @param longitudes is the longitude of every quake
+	 * @param magnitudes is the magnitude of every quake
+	 * @param depths is the depth of every quake in km
+	 * @param count is the number of quakes
+	 * @param shallowDepth is the depth above which a quake is shallow
+	 * @param deepDepth is the depth below which a quake is deep
+	 * @return the index
+	 */
+	public static QuakeClusterIndex build(float[] latitudes, float[] longitudes, float[] magnitudes, float[] depths,
+			int count, float shallowDepth, float deepDepth) {
+		// The quakes themselves are the finest level, each with the counts of its depth class
+		float[] x = new float[count];
+		float[] y = new float[count];
+		int[] n = new int[count];
+		float[] maxMagnitude = new float[count];
+		int[][] depthCounts = new int[3][count];
+		int[] item = new int[count];
+		for (int i = 0; i < count; i++) {
+			x[i] = mercatorX(longitudes[i]);
+			y[i] = mercatorY(latitudes[i]);
+			n[i] = 1;
+			maxMagnitude[i] = magnitudes[i];
+			depthCounts[depthClass(depths[i], shallowDepth, deepDepth)][i] = 1;
+			item[i] = i;
+		}
+
+		QuakeClusterIndex index = new QuakeClusterIndex();
+		int size = count;
+		for (int zoom = MAX_ZOOM; zoom >= 0; zoom--) {
+			double cell = CLUSTER_RADIUS / (TILE_SIZE * Math.pow(2, zoom));
+			long columns = (long) Math.ceil(1 / cell);
+
+			// Sort the clusters of the finer level by grid cell, the index goes in the low bits
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				long column = Math.min(columns - 1, (long) (x[i] / cell));
+				long row = Math.min(columns - 1, (long) (y[i] / cell));
+				keys[i] = ((row * columns + column) << 24) | i;
+			}
+			Arrays.sort(keys);
+
+			// Merge the clusters of every cell
+			float[] mergedX = new float[size];
+			float[] mergedY = new float[size];
+			int[] mergedN = new int[size];
+			float[] mergedMagnitude = new float[size];
+			int[][] mergedDepthCounts = new int[3][size];
+			int[] mergedItem = new int[size];
+			int merged = 0;
+			for (int start = 0; start < size;) {
+				int end = start + 1;
+				while (end < size && (keys[end] >>> 24) == (keys[start] >>> 24)) {
+					end++;
+				}
+				double sumX = 0;
+				double sumY = 0;
+				float magnitude = Float.NEGATIVE_INFINITY;
+				for (int k = start; k < end; k++) {
+					int i = (int) (keys[k] & 0xffffff);
+					sumX += (double) x[i] * n[i];
+					sumY += (double) y[i] * n[i];
+					mergedN[merged] += n[i];
+					magnitude = Math.max(magnitude, maxMagnitude[i]);
+					for (int d = 0; d < 3; d++) {
+						mergedDepthCounts[d][merged] += depthCounts[d][i];
+					}
+				}
+				mergedX[merged] = (float) (sumX / mergedN[merged]);
+				mergedY[merged] = (float) (sumY / mergedN[merged]);
+				mergedMagnitude[merged] = magnitude;
+				mergedItem[merged] = end - start == 1 ? item[(int) (keys[start] & 0xffffff)] : -1;
+				merged++;
+				start = end;
+			}
+
+			if (merged < size || zoom == MAX_ZOOM) {
+				x = Arrays.copyOf(mergedX, merged);
+				y = Arrays.copyOf(mergedY, merged);
+				n = Arrays.copyOf(mergedN, merged);
+				maxMagnitude = Arrays.copyOf(mergedMagnitude, merged);
+				for (int d = 0; d < 3; d++) {
+					depthCounts[d] = Arrays.copyOf(mergedDepthCounts[d], merged);
+				}
+				item = Arrays.copyOf(mergedItem, merged);
+				size = merged;
+				index.setLevel(zoom, x, y, n, maxMagnitude, depthCounts, item);
+			} else {
+				// nothing merged, share the finer level
+				index.xs[zoom] = index.xs[zoom + 1];
+				index.ys[zoom] = index.ys[zoom + 1];
+				index.counts[zoom] = index.counts[zoom + 1];
+				index.maxMagnitudes[zoom] = index.maxMagnitudes[zoom + 1];
+				index.depthClasses[zoom] = index.depthClasses[zoom + 1];
+				index.items[zoom] = index.items[zoom + 1];
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * This method finds the clusters of a zoom level inside an area.
+	 * @param zoom is the zoom level, levels above MAX_ZOOM give the clusters of MAX_ZOOM
+	 * @param north is the latitude of the top of the area
+	 * @param west is the longitude of the left side of the area
+	 * @param south is the latitude of the bottom of the area
+	 * @param east is the longitude of the right side of the area
+	 * @param found receives the clusters, it must have room for getClusterCount(zoom) clusters
+	 * @return the number of clusters found
+	 */
+	public int findInView(int zoom, float north, float west, float south, float east, int[] found) {
+		int level = levelOf(zoom);
+		float[] x = xs[level];
+		float[] y = ys[level];
+		float minX = mercatorX(west);
+		float maxX = mercatorX(east);
+		float minY = mercatorY(north);
+		float maxY = mercatorY(south);
+		// first cluster with x >= minX
+		int low = 0;
+		int high = x.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (x[middle] < minX) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int count = 0;
+		for (int i = low; i < x.length && x[i] <= maxX; i++) {
+			if (y[i] >= minY && y[i] <= maxY) {
+				found[count++] = i;
+			}
+		}
+		return count;
+	}
+
+	// Return the number of clusters of a zoom level
+	public int getClusterCount(int zoom) {
+		return xs[levelOf(zoom)].length;
+	}
+
+	// Return the number of quakes in a cluster
+	public int getCount(int zoom, int cluster) {
+		return counts[levelOf(zoom)][cluster];
+	}
+
+	// Return the largest magnitude in a cluster
+	public float getMaxMagnitude(int zoom, int cluster) {
+		return maxMagnitudes[levelOf(zoom)][cluster];
+	}
+
+	// Return SHALLOW, INTERMEDIATE or DEEP, whichever most quakes of the cluster are
+	public byte getDepthClass(int zoom, int cluster) {
+		return depthClasses[levelOf(zoom)][cluster];
+	}
+
+	// Return the quake of a cluster with a single quake, -1 for larger clusters
+	public int getItem(int zoom, int cluster) {
+		return items[levelOf(zoom)][cluster];
+	}
+
+	// Return the latitude of the center of a cluster
+	public float getLatitude(int zoom, int cluster) {
+		double n = Math.PI * (1 - 2 * ys[levelOf(zoom)][cluster]);
+		return (float) Math.toDegrees(Math.atan(Math.sinh(n)));
+	}
+
+	// Return the longitude of the center of a cluster
+	public float getLongitude(int zoom, int cluster) {
+		return xs[levelOf(zoom)][cluster] * 360 - 180;
+	}
+
+	/*
+	 * Stores the clusters of a level sorted by x, with the depth class most of their quakes have.
+	 */
+	private void setLevel(int zoom, float[] x, float[] y, int[] n, float[] maxMagnitude, int[][] depthCounts, int[] item) {
+		int size = x.length;
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			// x is never negative, so its bits sort like the float
+			keys[i] = ((long) Float.floatToIntBits(x[i]) << 32) | i;
+		}
+		Arrays.sort(keys);
+		xs[zoom] = new float[size];
+		ys[zoom] = new float[size];
+		counts[zoom] = new int[size];
+		maxMagnitudes[zoom] = new float[size];
+		depthClasses[zoom] = new byte[size];
+		items[zoom] = new int[size];
+		for (int k = 0; k < size; k++) {
+			int i = (int) keys[k];
+			xs[zoom][k] = x[i];
+			ys[zoom][k] = y[i];
+			counts[zoom][k] = n[i];
+			maxMagnitudes[zoom][k] = maxMagnitude[i];
+			items[zoom][k] = item[i];
+			byte dominant = SHALLOW;
+			for (byte d = INTERMEDIATE; d <= DEEP; d++) {
+				if (depthCounts[d][i] > depthCounts[dominant][i]) {
+					dominant = d;
+				}
+			}
+			depthClasses[zoom][k] = dominant;
+		}
+	}
+
+	private static int levelOf(int zoom) {
+		return Math.max(0, Math.min(MAX_ZOOM, zoom));
+	}
+
+	private static byte depthClass(float depth, float shallowDepth, float deepDepth) {
+		if (depth > deepDepth) {
+			return DEEP;
+		} else if (depth < shallowDepth) {
+			return SHALLOW;
+		}
+		return INTERMEDIATE;
+	}
+
+	private static float mercatorX(float lon) {
+		return (lon + 180) / 360;
+	}
+
+	private static float mercatorY(float lat) {
+		double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat))));
+		return (float) (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI));
+	}
+}
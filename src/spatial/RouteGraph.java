@@ -0,0 +1,284 @@
+package spatial;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import de.fhpotsdam.unfolding.data.PointFeature;
+import de.fhpotsdam.unfolding.data.ShapeFeature;
+
+/**
+ * This class joins the routes of ParseFeed.parseRoutes with the airports of ParseFeed.parseAirports
+ * by their OpenFlights id into a compact graph. Every airport gets an int index, and the routes leaving
+ * an airport are stored in compressed sparse row form: offsets[i] to offsets[i + 1] are the positions of
+ * its destinations in targets, with the great circle length of each route in distances.
+ * Several airlines flying the same route give a single edge.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class RouteGraph {
+
+	private static final double EARTH_RADIUS_KM = 6371.0;
+
+	private final PointFeature[] airports;
+	private final HashMap<String, Integer> indexById;
+	private final float[] latitudes;
+	private final float[] longitudes;
+	private final int[] offsets;
+	private final int[] targets;
+	private final float[] distances;
+
+	private RouteGraph(PointFeature[] airports, HashMap<String, Integer> indexById, int[] offsets,
+			int[] targets, float[] distances) {
+		this.airports = airports;
+		this.indexById = indexById;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.distances = distances;
+		latitudes = new float[airports.length];
+		longitudes = new float[airports.length];
+		for (int i = 0; i < airports.length; i++) {
+			latitudes[i] = airports[i].getLocation().getLat();
+			longitudes[i] = airports[i].getLocation().getLon();
+		}
+	}
+
+	/**
+	 * This method builds the graph. Routes whose source or destination is not one of the airports are left out.
+	 * @param airportFeatures are the airports, with the OpenFlights id as feature id
+	 * @param routeFeatures are the routes, with the OpenFlights ids in the "source" and "destination" properties
+	 * @return the route graph
+	 */
+	public static RouteGraph build(List<PointFeature> airportFeatures, List<ShapeFeature> routeFeatures) {
+		PointFeature[] airports = airportFeatures.toArray(new PointFeature[airportFeatures.size()]);
+		HashMap<String, Integer> indexById = new HashMap<String, Integer>(airports.length * 2);
+		for (int i = 0; i < airports.length; i++) {
+			indexById.put(airports[i].getId(), i);
+		}
+
+		// Resolve the routes into pairs of indices, one long per route so they sort by source then target
+		long[] edges = new long[routeFeatures.size()];
+		int edgeCount = 0;
+		for (ShapeFeature route : routeFeatures) {
+			Integer source = indexById.get(String.valueOf(route.getProperty("source")));
+			Integer destination = indexById.get(String.valueOf(route.getProperty("destination")));
+			if (source != null && destination != null && !source.equals(destination)) {
+				edges[edgeCount++] = ((long) source << 32) | destination;
+			}
+		}
+		Arrays.sort(edges, 0, edgeCount);
+
+		// Fill the rows, skipping the same route of other airlines
+		int[] offsets = new int[airports.length + 1];
+		int[] targets = new int[edgeCount];
+		int unique = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			if (i > 0 && edges[i] == edges[i - 1]) {
+				continue;
+			}
+			int source = (int) (edges[i] >>> 32);
+			targets[unique++] = (int) edges[i];
+			offsets[source + 1]++;
+		}
+		for (int i = 0; i < airports.length; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		targets = Arrays.copyOf(targets, unique);
+
+		RouteGraph graph = new RouteGraph(airports, indexById, offsets, targets, new float[unique]);
+		for (int source = 0; source < airports.length; source++) {
+			for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+				graph.distances[e] = (float) graph.greatCircleDistance(source, targets[e]);
+			}
+		}
+		return graph;
+	}
+
+	// Return the number of airports
+	public int getAirportCount() {
+		return airports.length;
+	}
+
+	// Return the number of distinct routes
+	public int getRouteCount() {
+		return targets.length;
+	}
+
+	/**
+	 * This method finds the index of an airport
+	 * @param openFlightsId is the OpenFlights id of the airport
+	 * @return the index of the airport, or -1 if it is not in the graph
+	 */
+	public int indexOf(String openFlightsId) {
+		Integer index = indexById.get(openFlightsId);
+		return index == null ? -1 : index;
+	}
+
+	// Return the airport feature of an index
+	public PointFeature getAirport(int index) {
+		return airports[index];
+	}
+
+	// Return the number of routes leaving an airport
+	public int getDegree(int index) {
+		return offsets[index + 1] - offsets[index];
+	}
+
+	/**
+	 * This method returns the great circle distance between two airports
+	 * @param from is the index of the first airport
+	 * @param to is the index of the second airport
+	 * @return the distance in km
+	 */
+	public double greatCircleDistance(int from, int to) {
+		double lat1 = Math.toRadians(latitudes[from]);
+		double lat2 = Math.toRadians(latitudes[to]);
+		double dLat = lat2 - lat1;
+		double dLon = Math.toRadians(longitudes[to] - longitudes[from]);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	/**
+	 * This method finds a path with the fewest flights with a breadth first search
+	 * @param from is the index of the departure airport
+	 * @param to is the index of the arrival airport
+	 * @return the airport indices of the path including both ends, or null if there is none
+	 */
+	public int[] shortestHopPath(int from, int to) {
+		int[] previous = new int[airports.length];
+		Arrays.fill(previous, -1);
+		int[] queue = new int[airports.length];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = from;
+		previous[from] = from;
+
+		while (head < tail) {
+			int node = queue[head++];
+			if (node == to) {
+				return buildPath(previous, from, to);
+			}
+			for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+				int next = targets[e];
+				if (previous[next] == -1) {
+					previous[next] = node;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method finds the path with the shortest total great circle distance with Dijkstra's algorithm
+	 * @param from is the index of the departure airport
+	 * @param to is the index of the arrival airport
+	 * @return the airport indices of the path including both ends, or null if there is none
+	 */
+	public int[] shortestDistancePath(int from, int to) {
+		int n = airports.length;
+		double[] best = new double[n];
+		Arrays.fill(best, Double.POSITIVE_INFINITY);
+		int[] previous = new int[n];
+		Arrays.fill(previous, -1);
+		boolean[] done = new boolean[n];
+
+		// Binary heap of (distance, airport), an airport may be in it more than once
+		double[] heapDistance = new double[Math.max(16, targets.length + 1)];
+		int[] heapNode = new int[heapDistance.length];
+		int heapSize = 0;
+
+		best[from] = 0;
+		previous[from] = from;
+		heapDistance[0] = 0;
+		heapNode[0] = from;
+		heapSize = 1;
+
+		while (heapSize > 0) {
+			// pop the closest airport
+			int node = heapNode[0];
+			heapSize--;
+			double lastDistance = heapDistance[heapSize];
+			int lastNode = heapNode[heapSize];
+			int i = 0;
+			while (2 * i + 1 < heapSize) {
+				int child = 2 * i + 1;
+				if (child + 1 < heapSize && heapDistance[child + 1] < heapDistance[child]) {
+					child++;
+				}
+				if (heapDistance[child] >= lastDistance) {
+					break;
+				}
+				heapDistance[i] = heapDistance[child];
+				heapNode[i] = heapNode[child];
+				i = child;
+			}
+			heapDistance[i] = lastDistance;
+			heapNode[i] = lastNode;
+
+			if (done[node]) {
+				continue;
+			}
+			done[node] = true;
+			if (node == to) {
+				return buildPath(previous, from, to);
+			}
+
+			for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+				int next = targets[e];
+				double distance = best[node] + distances[e];
+				if (!done[next] && distance < best[next]) {
+					best[next] = distance;
+					previous[next] = node;
+
+					// push, growing the heap if the same airport was pushed many times
+					if (heapSize == heapDistance.length) {
+						heapDistance = Arrays.copyOf(heapDistance, heapSize * 2);
+						heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+					}
+					int j = heapSize++;
+					while (j > 0 && heapDistance[(j - 1) / 2] > distance) {
+						heapDistance[j] = heapDistance[(j - 1) / 2];
+						heapNode[j] = heapNode[(j - 1) / 2];
+						j = (j - 1) / 2;
+					}
+					heapDistance[j] = distance;
+					heapNode[j] = next;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method adds up the great circle distance of every flight of a path
+	 * @param path are the airport indices of the path
+	 * @return the length of the path in km
+	 */
+	public double pathDistance(int[] path) {
+		double total = 0;
+		for (int i = 1; i < path.length; i++) {
+			total += greatCircleDistance(path[i - 1], path[i]);
+		}
+		return total;
+	}
+
+	/*
+	 * Follows the previous airports back from the arrival and returns the path in flight order.
+	 */
+	private static int[] buildPath(int[] previous, int from, int to) {
+		int length = 1;
+		for (int node = to; node != from; node = previous[node]) {
+			length++;
+		}
+		int[] path = new int[length];
+		int node = to;
+		for (int i = length - 1; i >= 0; i--) {
+			path[i] = node;
+			node = previous[node];
+		}
+		return path;
+	}
+}
@@ -0,0 +1,219 @@
+package spatial;
+
+import java.util.Arrays;
+
+/**
+ * This class is a static R-tree over latitude/longitude bounding boxes, packed with the
+ * Sort-Tile-Recursive method: the boxes are sorted into vertical slices by longitude, every slice
+ * is sorted by latitude and cut into nodes of NODE_CAPACITY boxes, and the same is repeated on the
+ * nodes until one root is left. The children of every node are stored next to each other, so the
+ * tree is only a few flat arrays per level.
+ * It answers which boxes contain a point, e.g. which country polygons need the exact point in polygon test.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class STRTree {
+
+	private static final int NODE_CAPACITY = 16;
+
+	private final int itemCount;
+	// Item of every entry, the entries are the items in STR order
+	private final int[] entryItems;
+	private final float[] entryBoxes;
+	// levelBoxes[l] has the boxes of the nodes of level l, level 0 are the leaves and the last level is the root.
+	// Node i of level l has the children levelFirst[l][i] to levelEnd[l][i] in level l - 1, or in the entries for l = 0
+	private final float[][] levelBoxes;
+	private final int[][] levelFirst;
+	private final int[][] levelEnd;
+
+	private STRTree(int itemCount, int[] entryItems, float[] entryBoxes, float[][] levelBoxes, int[][] levelFirst,
+			int[][] levelEnd) {
+		this.itemCount = itemCount;
+		this.entryItems = entryItems;
+		this.entryBoxes = entryBoxes;
+		this.levelBoxes = levelBoxes;
+		this.levelFirst = levelFirst;
+		this.levelEnd = levelEnd;
+	}
+
+	/**
+	 * This method packs the tree.
+	 * @param boxes has min latitude, min longitude, max latitude and max longitude of every item, 4 floats per item
+	 * @param count is the number of items
+	 * @return the tree
+	 */
+	public static STRTree build(float[] boxes, int count) {
+		// Sort the items into STR order
+		int[] items = strOrder(boxes, count);
+		float[] entryBoxes = new float[4 * count];
+		for (int i = 0; i < count; i++) {
+			System.arraycopy(boxes, 4 * items[i], entryBoxes, 4 * i, 4);
+		}
+
+		float[][] levelBoxes = new float[0][];
+		int[][] levelFirst = new int[0][];
+		int[][] levelEnd = new int[0][];
+		float[] childBoxes = entryBoxes;
+		int childCount = count;
+		while (childCount > 0) {
+			// Group every NODE_CAPACITY children which are next to each other into a node
+			int nodeCount = (childCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			float[] nodeBoxes = new float[4 * nodeCount];
+			int[] first = new int[nodeCount];
+			int[] end = new int[nodeCount];
+			for (int node = 0; node < nodeCount; node++) {
+				first[node] = node * NODE_CAPACITY;
+				end[node] = Math.min(childCount, first[node] + NODE_CAPACITY);
+				unionOf(childBoxes, first[node], end[node], nodeBoxes, node);
+			}
+
+			// Put the nodes into STR order as well, unless this is the root
+			if (nodeCount > 1) {
+				int[] order = strOrder(nodeBoxes, nodeCount);
+				float[] sortedBoxes = new float[4 * nodeCount];
+				int[] sortedFirst = new int[nodeCount];
+				int[] sortedEnd = new int[nodeCount];
+				for (int i = 0; i < nodeCount; i++) {
+					System.arraycopy(nodeBoxes, 4 * order[i], sortedBoxes, 4 * i, 4);
+					sortedFirst[i] = first[order[i]];
+					sortedEnd[i] = end[order[i]];
+				}
+				nodeBoxes = sortedBoxes;
+				first = sortedFirst;
+				end = sortedEnd;
+			}
+
+			int level = levelBoxes.length;
+			levelBoxes = Arrays.copyOf(levelBoxes, level + 1);
+			levelFirst = Arrays.copyOf(levelFirst, level + 1);
+			levelEnd = Arrays.copyOf(levelEnd, level + 1);
+			levelBoxes[level] = nodeBoxes;
+			levelFirst[level] = first;
+			levelEnd[level] = end;
+			if (nodeCount == 1) {
+				break;
+			}
+			childBoxes = nodeBoxes;
+			childCount = nodeCount;
+		}
+		return new STRTree(count, items, entryBoxes, levelBoxes, levelFirst, levelEnd);
+	}
+
+	// Return the number of items in the tree
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	/**
+	 * This method finds the items whose box contains a point, in increasing order of item.
+	 * @param lat is the latitude of the point
+	 * @param lon is the longitude of the point
+	 * @param candidates receives the items, it must have room for getItemCount() items
+	 * @return the number of items found
+	 */
+	public int findContaining(float lat, float lon, int[] candidates) {
+		if (levelBoxes.length == 0) {
+			return 0;
+		}
+		int found = collect(levelBoxes.length - 1, 0, lat, lon, candidates, 0);
+		// Few items are found, sort them so the first match is the same as in a scan of all items
+		for (int i = 1; i < found; i++) {
+			int item = candidates[i];
+			int j = i - 1;
+			while (j >= 0 && candidates[j] > item) {
+				candidates[j + 1] = candidates[j];
+				j--;
+			}
+			candidates[j + 1] = item;
+		}
+		return found;
+	}
+
+	/*
+	 * Adds the items below a node whose box contains the point, returns the new number of items found.
+	 */
+	private int collect(int level, int node, float lat, float lon, int[] candidates, int found) {
+		if (!contains(levelBoxes[level], node, lat, lon)) {
+			return found;
+		}
+		int first = levelFirst[level][node];
+		int end = levelEnd[level][node];
+		if (level == 0) {
+			for (int entry = first; entry < end; entry++) {
+				if (contains(entryBoxes, entry, lat, lon)) {
+					candidates[found++] = entryItems[entry];
+				}
+			}
+		} else {
+			for (int child = first; child < end; child++) {
+				found = collect(level - 1, child, lat, lon, candidates, found);
+			}
+		}
+		return found;
+	}
+
+	private static boolean contains(float[] boxes, int index, float lat, float lon) {
+		int i = 4 * index;
+		return lat >= boxes[i] && lon >= boxes[i + 1] && lat <= boxes[i + 2] && lon <= boxes[i + 3];
+	}
+
+	/*
+	 * Writes the union of the boxes first to end into the box target of targetBoxes.
+	 */
+	private static void unionOf(float[] boxes, int first, int end, float[] targetBoxes, int target) {
+		float minLat = Float.POSITIVE_INFINITY;
+		float minLon = Float.POSITIVE_INFINITY;
+		float maxLat = Float.NEGATIVE_INFINITY;
+		float maxLon = Float.NEGATIVE_INFINITY;
+		for (int i = first; i < end; i++) {
+			minLat = Math.min(minLat, boxes[4 * i]);
+			minLon = Math.min(minLon, boxes[4 * i + 1]);
+			maxLat = Math.max(maxLat, boxes[4 * i + 2]);
+			maxLon = Math.max(maxLon, boxes[4 * i + 3]);
+		}
+		targetBoxes[4 * target] = minLat;
+		targetBoxes[4 * target + 1] = minLon;
+		targetBoxes[4 * target + 2] = maxLat;
+		targetBoxes[4 * target + 3] = maxLon;
+	}
+
+	/*
+	 * Returns the boxes in STR order: sorted by the longitude of their center into slices of
+	 * about sqrt(nodes) nodes each, and every slice sorted by the latitude of the center.
+	 */
+	private static int[] strOrder(float[] boxes, int count) {
+		int[] order = new int[count];
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = sortKey(boxes[4 * i + 1] + boxes[4 * i + 3], i);
+		}
+		Arrays.sort(keys);
+		for (int i = 0; i < count; i++) {
+			order[i] = (int) keys[i];
+		}
+
+		int nodeCount = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		int sliceSize = (int) Math.ceil(Math.sqrt(nodeCount)) * NODE_CAPACITY;
+		for (int start = 0; start < count; start += sliceSize) {
+			int end = Math.min(count, start + sliceSize);
+			for (int i = start; i < end; i++) {
+				keys[i] = sortKey(boxes[4 * order[i]] + boxes[4 * order[i] + 2], order[i]);
+			}
+			Arrays.sort(keys, start, end);
+			for (int i = start; i < end; i++) {
+				order[i] = (int) keys[i];
+			}
+		}
+		return order;
+	}
+
+	/*
+	 * Packs a float and an index into a long which sorts by the float first.
+	 */
+	private static long sortKey(float value, int index) {
+		int bits = Float.floatToIntBits(value);
+		// flip the other bits of negative floats so the ints compare like the floats
+		bits ^= (bits >> 31) & 0x7fffffff;
+		return ((long) bits << 32) | (index & 0xffffffffL);
+	}
+}
@@ -0,0 +1,124 @@
+package spatial;
+
+/**
+ * This class is a uniform grid over the screen for finding the marker under the mouse. Every marker
+ * is a circle at its projected screen position and is put into every cell its bounding square
+ * touches, so a lookup only tests the markers of one cell. The cells are stored in compressed
+ * form: the markers of cell c are entries[cellStart[c]] to entries[cellStart[c + 1]], in increasing
+ * order, so the first hit is the same marker a scan of the whole list would find.
+ * The grid is only valid for the map transform it was built with.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class ScreenHitGrid {
+
+	// Result of a lookup which hits no marker
+	public static final int NO_MARKER = -1;
+
+	private final float left;
+	private final float top;
+	private final float cellSize;
+	private final int columns;
+	private final int rows;
+	private final int[] cellStart;
+	private final int[] entries;
+	private final float[] xs;
+	private final float[] ys;
+	private final float[] radii;
+
+	private ScreenHitGrid(float left, float top, float cellSize, int columns, int rows, int[] cellStart, int[] entries,
+			float[] xs, float[] ys, float[] radii) {
+		this.left = left;
+		this.top = top;
+		this.cellSize = cellSize;
+		this.columns = columns;
+		this.rows = rows;
+		this.cellStart = cellStart;
+		this.entries = entries;
+		this.xs = xs;
+		this.ys = ys;
+		this.radii = radii;
+	}
+
+	/**
+	 * This method builds the grid over a screen area. Markers which do not reach into the area are left out.
+	 * @param xs is the screen x of every marker
+	 * @param ys is the screen y of every marker
+	 * @param radii is the radius of every marker, a point is on the marker if it is closer than this
+	 * @param count is the number of markers
+	 * @param left is the left side of the area
+	 * @param top is the top of the area
+	 * @param width is the width of the area
+	 * @param height is the height of the area
+	 * @param cellSize is the side of a cell in pixels, about twice the usual marker radius works well
+	 * @return the grid
+	 */
+	public static ScreenHitGrid build(float[] xs, float[] ys, float[] radii, int count, float left, float top,
+			float width, float height, float cellSize) {
+		int columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		int rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+		// Count the markers of every cell first, then fill them in marker order
+		int[] cellStart = new int[columns * rows + 1];
+		int[] range = new int[4];
+		for (int i = 0; i < count; i++) {
+			cellRange(xs[i], ys[i], radii[i], left, top, cellSize, columns, rows, range);
+			for (int r = range[2]; r <= range[3]; r++) {
+				for (int c = range[0]; c <= range[1]; c++) {
+					cellStart[r * columns + c + 1]++;
+				}
+			}
+		}
+		for (int cell = 0; cell < columns * rows; cell++) {
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		int[] entries = new int[cellStart[columns * rows]];
+		int[] fill = new int[columns * rows];
+		for (int i = 0; i < count; i++) {
+			cellRange(xs[i], ys[i], radii[i], left, top, cellSize, columns, rows, range);
+			for (int r = range[2]; r <= range[3]; r++) {
+				for (int c = range[0]; c <= range[1]; c++) {
+					int cell = r * columns + c;
+					entries[cellStart[cell] + fill[cell]++] = i;
+				}
+			}
+		}
+		return new ScreenHitGrid(left, top, cellSize, columns, rows, cellStart, entries, xs, ys, radii);
+	}
+
+	/**
+	 * This method finds the marker under a point.
+	 * @param x is the screen x of the point
+	 * @param y is the screen y of the point
+	 * @return the lowest index of the markers under the point, or NO_MARKER
+	 */
+	public int find(float x, float y) {
+		int c = (int) Math.floor((x - left) / cellSize);
+		int r = (int) Math.floor((y - top) / cellSize);
+		if (c < 0 || r < 0 || c >= columns || r >= rows) {
+			return NO_MARKER;
+		}
+		int cell = r * columns + c;
+		for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+			int i = entries[e];
+			float dx = xs[i] - x;
+			float dy = ys[i] - y;
+			if (dx * dx + dy * dy < radii[i] * radii[i]) {
+				return i;
+			}
+		}
+		return NO_MARKER;
+	}
+
+	/*
+	 * Writes the first and last column and the first and last row touched by a marker into range,
+	 * the range is empty (first > last) if the marker does not reach into the grid.
+	 */
+	private static void cellRange(float x, float y, float radius, float left, float top, float cellSize, int columns,
+			int rows, int[] range) {
+		range[0] = Math.max(0, (int) Math.floor((x - radius - left) / cellSize));
+		range[1] = Math.min(columns - 1, (int) Math.floor((x + radius - left) / cellSize));
+		range[2] = Math.max(0, (int) Math.floor((y - radius - top) / cellSize));
+		range[3] = Math.min(rows - 1, (int) Math.floor((y + radius - top) / cellSize));
+	}
+}
@@ -0,0 +1,179 @@
+package spatial;
+
+/**
+ * This class is a static k-d tree over points on the earth, each stored as a unit vector so the
+ * tree has no trouble at the date line or the poles. A great circle radius is turned into the
+ * straight chord through the sphere, and the points within that chord distance are exactly the
+ * points within the radius along the surface.
+ * The tree is kept in the order of a balanced build: the median of every range is its node, the
+ * points before it go left and the points after it go right, so there are no node objects.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class SphereKdTree {
+
+	private static final double EARTH_RADIUS_KM = 6371.0;
+
+	// Index of the original point at every position of the tree
+	private final int[] items;
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] zs;
+
+	private SphereKdTree(int[] items, double[] xs, double[] ys, double[] zs) {
+		this.items = items;
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+	}
+
+	/**
+	 * This method builds the tree.
+	 * @param latitudes is the latitude of every point in degrees
+	 * @param longitudes is the longitude of every point in degrees
+	 * @param count is the number of points
+	 * @return the tree
+	 */
+	public static SphereKdTree build(float[] latitudes, float[] longitudes, int count) {
+		int[] items = new int[count];
+		double[] xs = new double[count];
+		double[] ys = new double[count];
+		double[] zs = new double[count];
+		for (int i = 0; i < count; i++) {
+			items[i] = i;
+			double lat = Math.toRadians(latitudes[i]);
+			double lon = Math.toRadians(longitudes[i]);
+			xs[i] = Math.cos(lat) * Math.cos(lon);
+			ys[i] = Math.cos(lat) * Math.sin(lon);
+			zs[i] = Math.sin(lat);
+		}
+		SphereKdTree tree = new SphereKdTree(items, xs, ys, zs);
+		tree.buildRange(0, count, 0);
+		return tree;
+	}
+
+	// Return the number of points in the tree
+	public int size() {
+		return items.length;
+	}
+
+	/**
+	 * This method finds the points within a great circle distance of a location.
+	 * @param lat is the latitude of the location in degrees
+	 * @param lon is the longitude of the location in degrees
+	 * @param radiusKm is the distance in kilometers, points at exactly this distance are left out
+	 * @param found receives the indices of the points, it must have room for size() points
+	 * @return the number of points found
+	 */
+	public int findWithin(float lat, float lon, double radiusKm, int[] found) {
+		if (radiusKm <= 0 || items.length == 0) {
+			return 0;
+		}
+		double latRad = Math.toRadians(lat);
+		double lonRad = Math.toRadians(lon);
+		double[] center = { Math.cos(latRad) * Math.cos(lonRad), Math.cos(latRad) * Math.sin(lonRad), Math.sin(latRad) };
+		double angle = radiusKm / EARTH_RADIUS_KM;
+		// half the circumference or more takes every point
+		double chord = angle >= Math.PI ? Double.POSITIVE_INFINITY : 2 * Math.sin(angle / 2);
+		return collect(0, items.length, 0, center, chord, chord * chord, found, 0);
+	}
+
+	/*
+	 * Adds the points of a range within the chord distance, returns the new number of points found.
+	 */
+	private int collect(int start, int end, int axis, double[] center, double chord, double maxSquared, int[] found,
+			int count) {
+		while (start < end) {
+			int middle = (start + end) >>> 1;
+			double dx = xs[middle] - center[0];
+			double dy = ys[middle] - center[1];
+			double dz = zs[middle] - center[2];
+			if (dx * dx + dy * dy + dz * dz < maxSquared) {
+				found[count++] = items[middle];
+			}
+			double diff = axis == 0 ? dx : axis == 1 ? dy : dz;
+			int next = (axis + 1) % 3;
+			// search the near side by recursion and continue with the far side if the sphere reaches it
+			if (diff > 0) {
+				count = collect(start, middle, next, center, chord, maxSquared, found, count);
+				if (diff >= chord) {
+					return count;
+				}
+				start = middle + 1;
+			} else {
+				count = collect(middle + 1, end, next, center, chord, maxSquared, found, count);
+				if (-diff >= chord) {
+					return count;
+				}
+				end = middle;
+			}
+			axis = next;
+		}
+		return count;
+	}
+
+	/*
+	 * Puts the median of the range on the axis in the middle and builds both halves on the next axis.
+	 */
+	private void buildRange(int start, int end, int axis) {
+		while (end - start > 1) {
+			int middle = (start + end) >>> 1;
+			select(start, end - 1, middle, axis);
+			int next = (axis + 1) % 3;
+			buildRange(start, middle, next);
+			start = middle + 1;
+			axis = next;
+		}
+	}
+
+	/*
+	 * Moves the k-th smallest point on the axis of the range left to right to position k,
+	 * with smaller or equal points before it and larger or equal points after it.
+	 */
+	private void select(int left, int right, int k, int axis) {
+		while (left < right) {
+			double pivot = coordinate((left + right) >>> 1, axis);
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coordinate(i, axis) < pivot) {
+					i++;
+				}
+				while (coordinate(j, axis) > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private double coordinate(int position, int axis) {
+		return axis == 0 ? xs[position] : axis == 1 ? ys[position] : zs[position];
+	}
+
+	private void swap(int a, int b) {
+		int item = items[a];
+		items[a] = items[b];
+		items[b] = item;
+		double t = xs[a];
+		xs[a] = xs[b];
+		xs[b] = t;
+		t = ys[a];
+		ys[a] = ys[b];
+		ys[b] = t;
+		t = zs[a];
+		zs[a] = zs[b];
+		zs[b] = t;
+	}
+}
@@ -0,0 +1,377 @@
+package tiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class downloads tiles in the background and stores them in the disk cache. Every tile is
+ * downloaded once however many times it is asked for while it is queued or running, and a host never
+ * gets more than a few downloads at the same time.
+ * The queue is not first come first served: when a download finishes, the next one is the queued tile
+ * nearest to the centre of the view, tiles the map shows before prefetched ones, and only a quarter
+ * of the downloads may be prefetches. Queued tiles which leave the view before they start are
+ * cancelled. A running download is not stopped, its tile still goes to the disk cache.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class AsyncTileLoader {
+
+	// Tiles of this many tiles around the view are still wanted, the map may come back to them
+	public static final int VIEW_MARGIN = 1;
+
+	// Prefetches are not queued behind this many tiles, the map has moved on before they would start
+	public static final int MAX_QUEUED_PREFETCHES = 64;
+
+	// A prefetch waits behind every tile of the map up to this distance in tiles
+	private static final double PREFETCH_PENALTY = 1 << 16;
+	// A tile of another zoom level than the view waits behind the ones of the view up to this distance
+	private static final double ZOOM_PENALTY = 1 << 8;
+
+	private final TileSource source;
+	private final TileDiskCache diskCache;
+	private final int maxDownloads;
+	private final int maxDownloadsPerHost;
+	private final ThreadPoolExecutor executor;
+
+	// Queued and running tiles by key, a second request for one of them joins it
+	private final HashMap<Long, TileRequest> requests = new HashMap<Long, TileRequest>();
+	private final ArrayList<TileRequest> queue = new ArrayList<TileRequest>();
+	private final HashMap<String, Integer> runningByHost = new HashMap<String, Integer>();
+	private int running;
+	private int runningPrefetches;
+	// The view in tiles at viewZoom, no view yet while viewZoom is -1
+	private int viewZoom = -1;
+	private double viewLeft;
+	private double viewTop;
+	private double viewRight;
+	private double viewBottom;
+
+	private final AtomicLong downloaded = new AtomicLong();
+	private final AtomicLong joined = new AtomicLong();
+	private final AtomicLong cancelled = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Constructor of the loader
+	 * @param source is where the tiles are downloaded from
+	 * @param diskCache is where the downloaded tiles are stored
+	 * @param maxDownloads is the number of downloads at the same time
+	 * @param maxDownloadsPerHost is the number of downloads at the same time from one host
+	 */
+	public AsyncTileLoader(TileSource source, TileDiskCache diskCache, int maxDownloads, int maxDownloadsPerHost) {
+		this.source = source;
+		this.diskCache = diskCache;
+		this.maxDownloads = maxDownloads;
+		this.maxDownloadsPerHost = maxDownloadsPerHost;
+		// never more tasks than threads, the order is kept in the queue of this class
+		this.executor = new ThreadPoolExecutor(maxDownloads, maxDownloads, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "tile-loader");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * This method asks for a tile. If it is queued or running already, the same request is returned,
+	 * and a prefetch asked for by the map becomes a tile of the map.
+	 * @param zoom is the zoom level
+	 * @param column is the column of the tile
+	 * @param row is the row of the tile
+	 * @param prefetch is true if the map does not show the tile yet
+	 * @return the request, whose await() gives the tile, or null for a prefetch if the queue is full
+	 */
+	public TileRequest load(int zoom, int column, int row, boolean prefetch) {
+		long key = TileDiskCache.key(zoom, column, row);
+		synchronized (this) {
+			TileRequest request = requests.get(key);
+			if (request != null) {
+				joined.incrementAndGet();
+				if (!prefetch) {
+					request.prefetch = false;
+				}
+				return request;
+			}
+			if (prefetch && queue.size() >= MAX_QUEUED_PREFETCHES) {
+				return null;
+			}
+			request = new TileRequest(key, zoom, column, row, source.getHost(zoom, column, row), prefetch);
+			requests.put(key, request);
+			queue.add(request);
+			dispatch();
+			return request;
+		}
+	}
+
+	/**
+	 * This method tells the loader where the map is. Queued tiles far from it are cancelled, and the
+	 * tiles nearest to its centre are downloaded first.
+	 * @param zoom is the zoom level of the map
+	 * @param left is the left border in tiles at that zoom level
+	 * @param top is the top border in tiles
+	 * @param right is the right border in tiles
+	 * @param bottom is the bottom border in tiles
+	 */
+	public void setViewport(int zoom, double left, double top, double right, double bottom) {
+		ArrayList<TileRequest> dropped = new ArrayList<TileRequest>();
+		synchronized (this) {
+			viewZoom = zoom;
+			viewLeft = left;
+			viewTop = top;
+			viewRight = right;
+			viewBottom = bottom;
+			for (int i = queue.size() - 1; i >= 0; i--) {
+				TileRequest request = queue.get(i);
+				if (!isWanted(request)) {
+					queue.remove(i);
+					requests.remove(request.key);
+					dropped.add(request);
+				}
+			}
+		}
+		for (TileRequest request : dropped) {
+			cancelled.incrementAndGet();
+			request.finish(null);
+		}
+	}
+
+	// Return the number of tiles waiting for a download
+	public synchronized int getQueued() {
+		return queue.size();
+	}
+
+	// Return the number of downloads running
+	public synchronized int getRunning() {
+		return running;
+	}
+
+	// Return the number of tiles downloaded
+	public long getDownloaded() {
+		return downloaded.get();
+	}
+
+	// Return the number of requests which joined one already queued or running
+	public long getJoined() {
+		return joined.get();
+	}
+
+	// Return the number of tiles cancelled before their download started
+	public long getCancelled() {
+		return cancelled.get();
+	}
+
+	// Return the number of downloads which failed
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/*
+	 * Starts the downloads of the best queued tiles while there are free threads and their hosts
+	 * have room. Called with the lock held.
+	 */
+	private void dispatch() {
+		while (running < maxDownloads && !queue.isEmpty()) {
+			int best = -1;
+			double bestPriority = Double.MAX_VALUE;
+			for (int i = 0; i < queue.size(); i++) {
+				TileRequest request = queue.get(i);
+				Integer hostRunning = runningByHost.get(request.host);
+				if (hostRunning != null && hostRunning >= maxDownloadsPerHost) {
+					continue;
+				}
+				// prefetches keep room for the tiles the map asks for next
+				if (request.prefetch && runningPrefetches >= maxPrefetches()) {
+					continue;
+				}
+				double priority = priority(request);
+				if (priority < bestPriority) {
+					bestPriority = priority;
+					best = i;
+				}
+			}
+			if (best < 0) {
+				// every queued tile waits for its host, or is a prefetch over the limit
+				return;
+			}
+			final TileRequest request = queue.remove(best);
+			Integer hostRunning = runningByHost.get(request.host);
+			runningByHost.put(request.host, hostRunning == null ? 1 : hostRunning + 1);
+			running++;
+			request.countedAsPrefetch = request.prefetch;
+			if (request.prefetch) {
+				runningPrefetches++;
+			}
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					download(request);
+				}
+			});
+		}
+	}
+
+	/*
+	 * Downloads a tile on a loader thread, then frees its place and starts the next download.
+	 */
+	private void download(TileRequest request) {
+		byte[] data = null;
+		try {
+			data = source.fetch(request.zoom, request.column, request.row);
+			diskCache.put(request.zoom, request.column, request.row, data);
+			downloaded.incrementAndGet();
+		} catch (IOException e) {
+			failed.incrementAndGet();
+			if (!request.prefetch) {
+				System.err.println("Could not download tile " + request.zoom + "/" + request.column + "/" + request.row
+						+ ": " + e.getMessage());
+			}
+		} finally {
+			synchronized (this) {
+				requests.remove(request.key);
+				int hostRunning = runningByHost.get(request.host) - 1;
+				if (hostRunning == 0) {
+					runningByHost.remove(request.host);
+				} else {
+					runningByHost.put(request.host, hostRunning);
+				}
+				running--;
+				if (request.countedAsPrefetch) {
+					runningPrefetches--;
+				}
+				dispatch();
+			}
+			request.finish(data);
+		}
+	}
+
+	/*
+	 * At most a quarter of the downloads are prefetches.
+	 */
+	private int maxPrefetches() {
+		return Math.max(1, maxDownloads / 4);
+	}
+
+	/*
+	 * Squared distance of a tile centre from the view centre, in tiles of the view's zoom level,
+	 * with penalties for prefetches and other zoom levels. Smaller is sooner, without a view the
+	 * tiles go in the order they came.
+	 */
+	private double priority(TileRequest request) {
+		if (viewZoom < 0) {
+			return request.sequence;
+		}
+		double scale = Math.pow(2, viewZoom - request.zoom);
+		double dx = (request.column + 0.5) * scale - (viewLeft + viewRight) / 2;
+		// the nearest copy of the tile, the view may be left or right of the first world
+		double world = 1 << viewZoom;
+		dx -= world * Math.rint(dx / world);
+		double dy = (request.row + 0.5) * scale - (viewTop + viewBottom) / 2;
+		double priority = dx * dx + dy * dy;
+		if (request.zoom != viewZoom) {
+			priority += ZOOM_PENALTY;
+		}
+		if (request.prefetch) {
+			priority += PREFETCH_PENALTY;
+		}
+		return priority;
+	}
+
+	/*
+	 * A tile is wanted if it is in or next to the view at the zoom level of the view, the one above
+	 * or the one below. Every tile is wanted while there is no view.
+	 */
+	private boolean isWanted(TileRequest request) {
+		if (viewZoom < 0) {
+			return true;
+		}
+		if (Math.abs(request.zoom - viewZoom) > 1) {
+			return false;
+		}
+		double scale = Math.pow(2, request.zoom - viewZoom);
+		int tiles = 1 << request.zoom;
+		int left = (int) Math.floor(viewLeft * scale) - VIEW_MARGIN;
+		int right = (int) Math.floor(viewRight * scale) + VIEW_MARGIN;
+		int top = (int) Math.floor(viewTop * scale) - VIEW_MARGIN;
+		int bottom = (int) Math.floor(viewBottom * scale) + VIEW_MARGIN;
+		if (request.row < top || request.row > bottom) {
+			return false;
+		}
+		// the view may cross the date line, the first copy of the column right of the left border
+		// has to be left of the right border
+		int first = left + ((request.column - left) % tiles + tiles) % tiles;
+		return first <= right;
+	}
+
+	/**
+	 * This class is a tile asked for, queued or being downloaded. Everyone who asked for it waits on
+	 * the same request.
+	 */
+	public static class TileRequest {
+
+		private static long nextSequence;
+
+		private final long key;
+		private final int zoom;
+		private final int column;
+		private final int row;
+		private final String host;
+		private final long sequence;
+		private volatile boolean prefetch;
+		// Whether the download started as a prefetch, set with the lock of the loader
+		private boolean countedAsPrefetch;
+		private boolean done;
+		private byte[] data;
+
+		private TileRequest(long key, int zoom, int column, int row, String host, boolean prefetch) {
+			this.key = key;
+			this.zoom = zoom;
+			this.column = column;
+			this.row = row;
+			this.host = host;
+			this.prefetch = prefetch;
+			synchronized (TileRequest.class) {
+				this.sequence = nextSequence++;
+			}
+		}
+
+		/**
+		 * This method waits for the tile
+		 * @return the encoded tile, or null if the download failed or was cancelled
+		 */
+		public synchronized byte[] await() {
+			boolean interrupted = false;
+			while (!done) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return data;
+		}
+
+		// Return true when the tile arrived, failed or was cancelled
+		public synchronized boolean isDone() {
+			return done;
+		}
+
+		private synchronized void finish(byte[] data) {
+			this.data = data;
+			done = true;
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package tiles;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import de.fhpotsdam.unfolding.core.Coordinate;
+import de.fhpotsdam.unfolding.geo.Location;
+import de.fhpotsdam.unfolding.providers.AbstractMapProvider;
+import processing.core.PImage;
+
+/**
+ * This class is a map provider which caches the tiles of another provider in two tiers: the decoded
+ * images of the tiles used last in memory, and the downloaded files of many more on disk. A tile is
+ * looked up in memory, then on disk, and only downloaded when it is in neither.
+ * Every tile the map asks for also prefetches its four neighbours and the four tiles under it at the
+ * next zoom level to the disk, in the background, so panning and zooming in mostly find their tiles
+ * on disk. Prefetched tiles do not go into memory, that stays for the tiles the map really shows.
+ * Downloads go through an AsyncTileLoader, which downloads a tile once for everyone waiting for it,
+ * nearest to the centre of the view first. The map passes its view with setViewport(), so tiles
+ * which scroll out of view before their download starts are cancelled instead of downloaded.
+ * The positions and tile size are the ones of the wrapped provider. It gives the map no URLs, so a
+ * tile which is not ready yet is asked for again in a later frame instead of downloaded by the map
+ * itself, past the caches and the limits of the loader.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class CachingMapProvider extends AbstractMapProvider {
+
+	// Zoom levels deeper than this one are not prefetched from the level above
+	public static final int MAX_PREFETCH_ZOOM = 18;
+
+	// Downloads at the same time, in total and from one host
+	public static final int MAX_DOWNLOADS = 8;
+	public static final int MAX_DOWNLOADS_PER_HOST = 6;
+
+	private final AbstractMapProvider provider;
+	private final TileDiskCache diskCache;
+	// Decoded tiles by key, in the order of use, the first one was used longest ago
+	private final LinkedHashMap<Long, PImage> memoryCache;
+	private final AsyncTileLoader loader;
+	// The latest view not yet passed to the loader, the drawing thread only leaves it here
+	private final AtomicReference<double[]> nextViewport = new AtomicReference<double[]>();
+	private final ExecutorService viewportUpdater;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong downloads = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong prefetches = new AtomicLong();
+	private final AtomicLong latencyNanos = new AtomicLong();
+
+	/**
+	 * Constructor of a cache which downloads from the tile URLs of the provider
+	 * @param provider is the provider to cache
+	 * @param folder is the folder of the disk cache
+	 * @param memoryTiles is the number of decoded tiles kept in memory
+	 * @param diskBytes is the largest size of the disk cache
+	 */
+	public CachingMapProvider(AbstractMapProvider provider, File folder, int memoryTiles, long diskBytes) {
+		this(provider, new UrlTileSource(provider), new TileDiskCache(folder, diskBytes), memoryTiles);
+	}
+
+	/**
+	 * Constructor of a cache with its own tile source, e.g. a local server standing in for the provider
+	 * @param provider is the provider whose positions and tile size are used
+	 * @param source is where missing tiles are downloaded from
+	 * @param diskCache is the disk tier
+	 * @param memoryTiles is the number of decoded tiles kept in memory
+	 */
+	public CachingMapProvider(AbstractMapProvider provider, TileSource source, TileDiskCache diskCache, final int memoryTiles) {
+		super(provider.projection);
+		this.provider = provider;
+		this.diskCache = diskCache;
+		this.memoryCache = new LinkedHashMap<Long, PImage>(memoryTiles * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, PImage> eldest) {
+				return size() > memoryTiles;
+			}
+		};
+		this.loader = new AsyncTileLoader(source, diskCache, MAX_DOWNLOADS, MAX_DOWNLOADS_PER_HOST);
+		this.viewportUpdater = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "tile-viewport");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/*
+	 * Look the tile up in memory, then on disk, then wait for its download, and prefetch around it.
+	 * Unfolding calls this on its own tile threads, never on the one drawing the map
+	 * @see de.fhpotsdam.unfolding.providers.AbstractMapProvider#getTile(de.fhpotsdam.unfolding.core.Coordinate)
+	 */
+	@Override
+	public PImage getTile(Coordinate coordinate) {
+		long start = System.nanoTime();
+		int zoom = (int) coordinate.zoom;
+		int tiles = 1 << zoom;
+		int row = (int) coordinate.row;
+		if (row < 0 || row >= tiles) {
+			return null;
+		}
+		// the world repeats to the left and right
+		int column = ((int) coordinate.column % tiles + tiles) % tiles;
+		long key = TileDiskCache.key(zoom, column, row);
+		requests.incrementAndGet();
+
+		PImage tile;
+		synchronized (memoryCache) {
+			tile = memoryCache.get(key);
+		}
+		if (tile != null) {
+			memoryHits.incrementAndGet();
+		} else {
+			byte[] data = diskCache.get(zoom, column, row);
+			if (data != null) {
+				diskHits.incrementAndGet();
+			} else {
+				// null if it failed, or it left the view before its download started
+				data = loader.load(zoom, column, row, false).await();
+				if (data != null) {
+					downloads.incrementAndGet();
+				}
+			}
+			tile = data == null ? null : decode(data);
+			if (tile != null) {
+				synchronized (memoryCache) {
+					memoryCache.put(key, tile);
+				}
+			} else {
+				failures.incrementAndGet();
+			}
+		}
+		latencyNanos.addAndGet(System.nanoTime() - start);
+
+		prefetch(zoom, column - 1, row);
+		prefetch(zoom, column + 1, row);
+		prefetch(zoom, column, row - 1);
+		prefetch(zoom, column, row + 1);
+		if (zoom < MAX_PREFETCH_ZOOM) {
+			prefetch(zoom + 1, column * 2, row * 2);
+			prefetch(zoom + 1, column * 2 + 1, row * 2);
+			prefetch(zoom + 1, column * 2, row * 2 + 1);
+			prefetch(zoom + 1, column * 2 + 1, row * 2 + 1);
+		}
+		return tile;
+	}
+
+	/**
+	 * This method tells the loader where the map is, call it when the map moved. The tiles of the
+	 * view which are not cached are queued right away, Unfolding only asks for a few tiles at a time.
+	 * The work is done on a background thread, so the thread drawing the map never waits for a lock
+	 * of the caches, and views which were overtaken by a newer one before it started are skipped.
+	 * @param topLeft is the location of the top left corner of the map
+	 * @param bottomRight is the location of the bottom right corner of the map
+	 * @param zoom is the zoom level of the tiles the map shows
+	 */
+	public void setViewport(Location topLeft, Location bottomRight, int zoom) {
+		Coordinate first = provider.locationCoordinate(topLeft).zoomTo(zoom);
+		Coordinate last = provider.locationCoordinate(bottomRight).zoomTo(zoom);
+		setViewport(zoom, first.column, first.row, last.column, last.row);
+	}
+
+	/**
+	 * This method tells the loader where the map is, in tiles
+	 * @param zoom is the zoom level of the tiles the map shows
+	 * @param left is the left border in tiles at that zoom level
+	 * @param top is the top border in tiles
+	 * @param right is the right border in tiles
+	 * @param bottom is the bottom border in tiles
+	 */
+	public void setViewport(int zoom, double left, double top, double right, double bottom) {
+		if (nextViewport.getAndSet(new double[] { zoom, left, top, right, bottom }) == null) {
+			viewportUpdater.execute(new Runnable() {
+				@Override
+				public void run() {
+					double[] view = nextViewport.getAndSet(null);
+					updateViewport((int) view[0], view[1], view[2], view[3], view[4]);
+				}
+			});
+		}
+	}
+
+	// Return the loader of the tiles, e.g. for its counters
+	public AsyncTileLoader getLoader() {
+		return loader;
+	}
+
+	/*
+	 * No URLs, a tile for which getTile() returned null must not be downloaded by the map.
+	 * The loader gets the URLs from the wrapped provider.
+	 */
+	@Override
+	public String[] getTileUrls(Coordinate coordinate) {
+		return null;
+	}
+
+	@Override
+	public int tileWidth() {
+		return provider.tileWidth();
+	}
+
+	@Override
+	public int tileHeight() {
+		return provider.tileHeight();
+	}
+
+	@Override
+	public Location coordinateLocation(Coordinate coordinate) {
+		return provider.coordinateLocation(coordinate);
+	}
+
+	@Override
+	public Coordinate locationCoordinate(Location location) {
+		return provider.locationCoordinate(location);
+	}
+
+	@Override
+	public Coordinate sourceCoordinate(Coordinate coordinate) {
+		return provider.sourceCoordinate(coordinate);
+	}
+
+	@Override
+	public String getZoomString(Coordinate coordinate) {
+		return provider.getZoomString(coordinate);
+	}
+
+	// Return the number of tiles the map asked for
+	public long getRequests() {
+		return requests.get();
+	}
+
+	// Return the number of tiles found in memory
+	public long getMemoryHits() {
+		return memoryHits.get();
+	}
+
+	// Return the number of tiles found on disk
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	// Return the number of tiles the map had to wait for a download
+	public long getDownloads() {
+		return downloads.get();
+	}
+
+	// Return the number of tiles which could not be downloaded or decoded, or left the view first
+	public long getFailures() {
+		return failures.get();
+	}
+
+	// Return the number of tiles queued for a prefetch
+	public long getPrefetches() {
+		return prefetches.get();
+	}
+
+	// Return the part of the tiles found in memory or on disk
+	public double getHitRate() {
+		long count = requests.get();
+		return count == 0 ? 0 : (double) (memoryHits.get() + diskHits.get()) / count;
+	}
+
+	// Return the average time to get a tile in milliseconds
+	public double getAverageLatency() {
+		long count = requests.get();
+		return count == 0 ? 0 : latencyNanos.get() / 1e6 / count;
+	}
+
+	/**
+	 * This method describes the counters in one line, e.g. for printing when the applet closes
+	 * @return the counters
+	 */
+	public String getStatistics() {
+		return String.format("tiles %d, memory %d, disk %d, downloaded %d, failed %d, hit rate %.1f%%, average %.2f ms, "
+				+ "prefetches %d, loader downloads %d, joined %d, cancelled %d",
+				getRequests(), getMemoryHits(), getDiskHits(), getDownloads(), getFailures(), getHitRate() * 100,
+				getAverageLatency(), getPrefetches(), loader.getDownloaded(), loader.getJoined(), loader.getCancelled());
+	}
+
+	/*
+	 * Cancels the downloads out of the view and queues the tiles of the view which are not cached.
+	 */
+	private void updateViewport(int zoom, double left, double top, double right, double bottom) {
+		loader.setViewport(zoom, left, top, right, bottom);
+		int tiles = 1 << zoom;
+		for (int row = Math.max(0, (int) Math.floor(top)); row <= Math.min(tiles - 1, (int) Math.floor(bottom)); row++) {
+			for (int column = (int) Math.floor(left); column <= (int) Math.floor(right); column++) {
+				int wrapped = (column % tiles + tiles) % tiles;
+				synchronized (memoryCache) {
+					if (memoryCache.containsKey(TileDiskCache.key(zoom, wrapped, row))) {
+						continue;
+					}
+				}
+				if (!diskCache.contains(zoom, wrapped, row)) {
+					loader.load(zoom, wrapped, row, false);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Queues the download of a tile to disk, unless it is outside the map or cached already.
+	 */
+	private void prefetch(int zoom, int column, int row) {
+		int tiles = 1 << zoom;
+		if (row < 0 || row >= tiles) {
+			return;
+		}
+		column = (column % tiles + tiles) % tiles;
+		long key = TileDiskCache.key(zoom, column, row);
+		synchronized (memoryCache) {
+			// containsKey does not count as a use
+			if (memoryCache.containsKey(key)) {
+				return;
+			}
+		}
+		if (diskCache.contains(zoom, column, row)) {
+			return;
+		}
+		if (loader.load(zoom, column, row, true) != null) {
+			prefetches.incrementAndGet();
+		}
+	}
+
+	/*
+	 * Decodes a PNG or JPEG tile, null if it is broken.
+	 */
+	private static PImage decode(byte[] data) {
+		try {
+			BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+			return image == null ? null : new PImage(image);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package tiles;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores encoded tiles in a folder, one file per tile in zoom/column/row.tile, so they
+ * survive a restart of the applet. The folder is kept below a size limit: when a new tile does not
+ * fit, the tiles used longest ago are deleted. Which tile was used last is kept in memory, and in the
+ * modification time of the files for the next start.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class TileDiskCache {
+
+	private static final String SUFFIX = ".tile";
+
+	private final File folder;
+	private final long maxBytes;
+	// Size of every stored tile by key, in the order of use, the first one was used longest ago
+	private final LinkedHashMap<Long, Long> sizes = new LinkedHashMap<Long, Long>(256, 0.75f, true);
+	private long totalBytes;
+
+	/**
+	 * Constructor of the cache, the tiles already in the folder are taken over
+	 * @param folder is the folder of the tiles, created if needed
+	 * @param maxBytes is the largest total size of the tiles
+	 */
+	public TileDiskCache(File folder, long maxBytes) {
+		this.folder = folder;
+		this.maxBytes = maxBytes;
+		scan();
+	}
+
+	/**
+	 * This method reads a tile
+	 * @param zoom is the zoom level
+	 * @param column is the column of the tile
+	 * @param row is the row of the tile
+	 * @return the encoded tile, or null if it is not stored
+	 */
+	public byte[] get(int zoom, int column, int row) {
+		long key = key(zoom, column, row);
+		synchronized (this) {
+			if (sizes.get(key) == null) {
+				return null;
+			}
+		}
+		File file = file(zoom, column, row);
+		try {
+			byte[] data = Files.readAllBytes(file.toPath());
+			file.setLastModified(System.currentTimeMillis());
+			return data;
+		} catch (IOException e) {
+			// deleted from outside or by an eviction meanwhile, not just being replaced
+			synchronized (this) {
+				if (!file.exists()) {
+					Long size = sizes.remove(key);
+					if (size != null) {
+						totalBytes -= size;
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * This method tells whether a tile is stored, without reading it
+	 * @param zoom is the zoom level
+	 * @param column is the column of the tile
+	 * @param row is the row of the tile
+	 * @return true if the tile is stored
+	 */
+	public synchronized boolean contains(int zoom, int column, int row) {
+		// containsKey does not count as a use
+		return sizes.containsKey(key(zoom, column, row));
+	}
+
+	/**
+	 * This method stores a tile, deleting the tiles used longest ago if it does not fit
+	 * @param zoom is the zoom level
+	 * @param column is the column of the tile
+	 * @param row is the row of the tile
+	 * @param data is the encoded tile
+	 */
+	public void put(int zoom, int column, int row, byte[] data) {
+		if (data.length > maxBytes) {
+			return;
+		}
+		File file = file(zoom, column, row);
+		file.getParentFile().mkdirs();
+		// write to a temporary file first so a crash never leaves half a tile
+		File temp = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(temp)) {
+			out.write(data);
+		} catch (IOException e) {
+			System.err.println("Could not write tile " + file + ": " + e.getMessage());
+			temp.delete();
+			return;
+		}
+		// the files change under the lock, so a tile stored again meanwhile is never deleted
+		synchronized (this) {
+			file.delete();
+			if (!temp.renameTo(file)) {
+				temp.delete();
+				return;
+			}
+			Long previous = sizes.put(key(zoom, column, row), (long) data.length);
+			totalBytes += data.length - (previous == null ? 0 : previous);
+			evict();
+		}
+	}
+
+	// Return the number of stored tiles
+	public synchronized int size() {
+		return sizes.size();
+	}
+
+	// Return the total size of the stored tiles in bytes
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/*
+	 * Takes over the tiles of an earlier run, oldest first, and makes room if the limit is smaller now.
+	 */
+	private void scan() {
+		List<File> files = new ArrayList<File>();
+		File[] zooms = folder.listFiles();
+		if (zooms != null) {
+			for (File zoom : zooms) {
+				File[] columns = zoom.listFiles();
+				if (columns == null) {
+					continue;
+				}
+				for (File column : columns) {
+					File[] rows = column.listFiles();
+					if (rows == null) {
+						continue;
+					}
+					for (File row : rows) {
+						if (row.getName().endsWith(SUFFIX)) {
+							files.add(row);
+						} else if (row.getName().endsWith(".tmp")) {
+							row.delete();
+						}
+					}
+				}
+			}
+		}
+		// the order of use of the last run is the modification time
+		Collections.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File file : files) {
+			try {
+				int zoom = Integer.parseInt(file.getParentFile().getParentFile().getName());
+				int column = Integer.parseInt(file.getParentFile().getName());
+				int row = Integer.parseInt(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+				long size = file.length();
+				sizes.put(key(zoom, column, row), size);
+				totalBytes += size;
+			} catch (NumberFormatException e) {
+				// not a tile of this cache
+			}
+		}
+		evict();
+	}
+
+	/*
+	 * Deletes the tiles used longest ago until the rest fits.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<Long, Long>> eldest = sizes.entrySet().iterator();
+		while (totalBytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<Long, Long> entry = eldest.next();
+			totalBytes -= entry.getValue();
+			file(entry.getKey()).delete();
+			eldest.remove();
+		}
+	}
+
+	private File file(int zoom, int column, int row) {
+		return new File(folder, zoom + File.separator + column + File.separator + row + SUFFIX);
+	}
+
+	private File file(long key) {
+		return file(keyZoom(key), keyColumn(key), keyRow(key));
+	}
+
+	// Return a tile packed into one long, 6 bits of zoom and 29 bits for the column and the row
+	public static long key(int zoom, int column, int row) {
+		return ((long) zoom << 58) | ((long) column << 29) | row;
+	}
+
+	// Return the zoom level of a key
+	public static int keyZoom(long key) {
+		return (int) (key >>> 58);
+	}
+
+	// Return the column of a key
+	public static int keyColumn(long key) {
+		return (int) ((key >>> 29) & 0x1FFFFFFF);
+	}
+
+	// Return the row of a key
+	public static int keyRow(long key) {
+		return (int) (key & 0x1FFFFFFF);
+	}
+}
@@ -0,0 +1,31 @@
+package tiles;
+
+import java.io.IOException;
+
+/**
+ * This interface defines where the tile cache gets the tiles it does not have yet, e.g. the tile
+ * server of a map provider or a local server standing in for it.
+ * @author Yuming
+ * 10/17/2026
+ */
+public interface TileSource {
+
+	/**
+	 * This method downloads the encoded image of a tile
+	 * @param zoom is the zoom level
+	 * @param column is the column of the tile, from 0 to 2^zoom - 1
+	 * @param row is the row of the tile, from 0 to 2^zoom - 1
+	 * @return the bytes of the image, e.g. a PNG
+	 * @throws IOException if the tile can not be downloaded
+	 */
+	byte[] fetch(int zoom, int column, int row) throws IOException;
+
+	/**
+	 * This method tells which server a tile comes from, the loader limits the downloads per server
+	 * @param zoom is the zoom level
+	 * @param column is the column of the tile
+	 * @param row is the row of the tile
+	 * @return the host name of the server
+	 */
+	String getHost(int zoom, int column, int row);
+}
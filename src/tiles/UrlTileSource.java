@@ -0,0 +1,81 @@
+package tiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import de.fhpotsdam.unfolding.core.Coordinate;
+import de.fhpotsdam.unfolding.providers.AbstractMapProvider;
+
+/**
+ * This class downloads tiles from the URLs a map provider gives for them, so the cache works with any
+ * Unfolding provider. Only the first URL of a tile is used, providers with several layers per tile
+ * give the base layer first.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class UrlTileSource implements TileSource {
+
+	private static final int CONNECT_TIMEOUT = 5000;
+	private static final int READ_TIMEOUT = 10000;
+
+	private final AbstractMapProvider provider;
+
+	/**
+	 * Constructor of the source
+	 * @param provider is the provider which knows the tile URLs
+	 */
+	public UrlTileSource(AbstractMapProvider provider) {
+		this.provider = provider;
+	}
+
+	/*
+	 * The host of the first URL of the tile, providers spread their tiles over several hosts
+	 * @see tiles.TileSource#getHost(int, int, int)
+	 */
+	@Override
+	public String getHost(int zoom, int column, int row) {
+		String[] urls = provider.getTileUrls(new Coordinate(row, column, zoom));
+		if (urls == null || urls.length == 0) {
+			return "";
+		}
+		try {
+			return new URL(urls[0]).getHost();
+		} catch (MalformedURLException e) {
+			return "";
+		}
+	}
+
+	/*
+	 * Download the first URL of the tile
+	 * @see tiles.TileSource#fetch(int, int, int)
+	 */
+	@Override
+	public byte[] fetch(int zoom, int column, int row) throws IOException {
+		String[] urls = provider.getTileUrls(new Coordinate(row, column, zoom));
+		if (urls == null || urls.length == 0) {
+			throw new IOException("No URL for tile " + zoom + "/" + column + "/" + row);
+		}
+		HttpURLConnection connection = (HttpURLConnection) new URL(urls[0]).openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		int status = connection.getResponseCode();
+		if (status != HttpURLConnection.HTTP_OK) {
+			connection.disconnect();
+			throw new IOException("HTTP " + status + " for " + urls[0]);
+		}
+		// closing the stream without disconnecting keeps the connection for the next tile
+		try (InputStream in = connection.getInputStream()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 15);
+			byte[] buffer = new byte[1 << 13];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+}
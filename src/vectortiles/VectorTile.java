@@ -0,0 +1,343 @@
+package vectortiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class is one vector tile: the countries, earthquakes and cities of one z/x/y tile, clipped to
+ * the tile and a small buffer around it, with coordinates quantized to EXTENT units per tile side.
+ * The map draws a tile by scaling its integer coordinates, it projects nothing.
+ * A tile is encoded as a version byte and three layers. Coordinates are written as zigzag varint
+ * deltas from the point before, so most take one or two bytes:
+ * countries: count, then per country its id, ring count, and per ring vertex count and vertices
+ * earthquakes: count, then per quake the position and the style group of EarthQuakeMarker
+ * cities: count, then per city the position
+ * @author Yuming
+ * 10/17/2026
+ */
+public class VectorTile {
+
+	// Units per tile side
+	public static final int EXTENT = 4096;
+	private static final int VERSION = 1;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int countryCount;
+	private String[] countryIds = new String[INITIAL_CAPACITY];
+	// Rings of country i are countryRings[i] to countryRings[i + 1] - 1
+	private int[] countryRings = new int[INITIAL_CAPACITY + 1];
+	private int ringCount;
+	// Vertices of ring i are ringVertices[i] to ringVertices[i + 1] - 1
+	private int[] ringVertices = new int[INITIAL_CAPACITY + 1];
+	private int vertexCount;
+	private int[] vertexXs = new int[INITIAL_CAPACITY];
+	private int[] vertexYs = new int[INITIAL_CAPACITY];
+
+	private int quakeCount;
+	private int[] quakeXs = new int[INITIAL_CAPACITY];
+	private int[] quakeYs = new int[INITIAL_CAPACITY];
+	private byte[] quakeStyles = new byte[INITIAL_CAPACITY];
+
+	private int cityCount;
+	private int[] cityXs = new int[INITIAL_CAPACITY];
+	private int[] cityYs = new int[INITIAL_CAPACITY];
+
+	/**
+	 * This method starts a new country, the rings added next belong to it
+	 * @param id is the id of the country, e.g. its ISO code
+	 */
+	public void addCountry(String id) {
+		if (countryCount == countryIds.length) {
+			countryIds = Arrays.copyOf(countryIds, countryCount * 2);
+			countryRings = Arrays.copyOf(countryRings, countryCount * 2 + 1);
+		}
+		countryIds[countryCount++] = id;
+		countryRings[countryCount] = ringCount;
+	}
+
+	/**
+	 * This method adds a ring to the last country
+	 * @param xs are the x coordinates in tile units
+	 * @param ys are the y coordinates in tile units
+	 * @param count is the number of vertices
+	 */
+	public void addRing(int[] xs, int[] ys, int count) {
+		if (ringCount + 1 == ringVertices.length) {
+			ringVertices = Arrays.copyOf(ringVertices, ringVertices.length * 2);
+		}
+		if (vertexCount + count > vertexXs.length) {
+			int capacity = Math.max(vertexXs.length * 2, vertexCount + count);
+			vertexXs = Arrays.copyOf(vertexXs, capacity);
+			vertexYs = Arrays.copyOf(vertexYs, capacity);
+		}
+		System.arraycopy(xs, 0, vertexXs, vertexCount, count);
+		System.arraycopy(ys, 0, vertexYs, vertexCount, count);
+		vertexCount += count;
+		ringVertices[++ringCount] = vertexCount;
+		countryRings[countryCount] = ringCount;
+	}
+
+	/**
+	 * This method adds an earthquake
+	 * @param x is the x coordinate in tile units
+	 * @param y is the y coordinate in tile units
+	 * @param style is the style group, as EarthQuakeMarker.getStyleGroup()
+	 */
+	public void addQuake(int x, int y, int style) {
+		if (quakeCount == quakeXs.length) {
+			quakeXs = Arrays.copyOf(quakeXs, quakeCount * 2);
+			quakeYs = Arrays.copyOf(quakeYs, quakeCount * 2);
+			quakeStyles = Arrays.copyOf(quakeStyles, quakeCount * 2);
+		}
+		quakeXs[quakeCount] = x;
+		quakeYs[quakeCount] = y;
+		quakeStyles[quakeCount++] = (byte) style;
+	}
+
+	/**
+	 * This method adds a city
+	 * @param x is the x coordinate in tile units
+	 * @param y is the y coordinate in tile units
+	 */
+	public void addCity(int x, int y) {
+		if (cityCount == cityXs.length) {
+			cityXs = Arrays.copyOf(cityXs, cityCount * 2);
+			cityYs = Arrays.copyOf(cityYs, cityCount * 2);
+		}
+		cityXs[cityCount] = x;
+		cityYs[cityCount++] = y;
+	}
+
+	// Return true if the tile has nothing to draw
+	public boolean isEmpty() {
+		return countryCount == 0 && quakeCount == 0 && cityCount == 0;
+	}
+
+	// Return the number of countries
+	public int getCountryCount() {
+		return countryCount;
+	}
+
+	// Return the id of a country
+	public String getCountryId(int country) {
+		return countryIds[country];
+	}
+
+	// Return the first ring of a country
+	public int getFirstRing(int country) {
+		return countryRings[country];
+	}
+
+	// Return the ring after the last ring of a country
+	public int getRingEnd(int country) {
+		return countryRings[country + 1];
+	}
+
+	// Return the first vertex of a ring
+	public int getFirstVertex(int ring) {
+		return ringVertices[ring];
+	}
+
+	// Return the vertex after the last vertex of a ring
+	public int getVertexEnd(int ring) {
+		return ringVertices[ring + 1];
+	}
+
+	// Return the x coordinate of a vertex in tile units
+	public int getVertexX(int vertex) {
+		return vertexXs[vertex];
+	}
+
+	// Return the y coordinate of a vertex in tile units
+	public int getVertexY(int vertex) {
+		return vertexYs[vertex];
+	}
+
+	// Return the number of vertices of all rings
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	// Return the number of earthquakes
+	public int getQuakeCount() {
+		return quakeCount;
+	}
+
+	// Return the x coordinate of an earthquake in tile units
+	public int getQuakeX(int quake) {
+		return quakeXs[quake];
+	}
+
+	// Return the y coordinate of an earthquake in tile units
+	public int getQuakeY(int quake) {
+		return quakeYs[quake];
+	}
+
+	// Return the style group of an earthquake
+	public int getQuakeStyle(int quake) {
+		return quakeStyles[quake];
+	}
+
+	// Return the number of cities
+	public int getCityCount() {
+		return cityCount;
+	}
+
+	// Return the x coordinate of a city in tile units
+	public int getCityX(int city) {
+		return cityXs[city];
+	}
+
+	// Return the y coordinate of a city in tile units
+	public int getCityY(int city) {
+		return cityYs[city];
+	}
+
+	/**
+	 * This method encodes the tile
+	 * @return the bytes of the tile
+	 */
+	public byte[] encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 2 * vertexCount);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(VERSION);
+			writeVarint(out, countryCount);
+			int lastX = 0;
+			int lastY = 0;
+			for (int country = 0; country < countryCount; country++) {
+				out.writeUTF(countryIds[country]);
+				writeVarint(out, getRingEnd(country) - getFirstRing(country));
+				for (int ring = getFirstRing(country); ring < getRingEnd(country); ring++) {
+					writeVarint(out, getVertexEnd(ring) - getFirstVertex(ring));
+					for (int vertex = getFirstVertex(ring); vertex < getVertexEnd(ring); vertex++) {
+						writeVarint(out, zigzag(vertexXs[vertex] - lastX));
+						writeVarint(out, zigzag(vertexYs[vertex] - lastY));
+						lastX = vertexXs[vertex];
+						lastY = vertexYs[vertex];
+					}
+				}
+			}
+			writeVarint(out, quakeCount);
+			lastX = 0;
+			lastY = 0;
+			for (int quake = 0; quake < quakeCount; quake++) {
+				writeVarint(out, zigzag(quakeXs[quake] - lastX));
+				writeVarint(out, zigzag(quakeYs[quake] - lastY));
+				out.writeByte(quakeStyles[quake]);
+				lastX = quakeXs[quake];
+				lastY = quakeYs[quake];
+			}
+			writeVarint(out, cityCount);
+			lastX = 0;
+			lastY = 0;
+			for (int city = 0; city < cityCount; city++) {
+				writeVarint(out, zigzag(cityXs[city] - lastX));
+				writeVarint(out, zigzag(cityYs[city] - lastY));
+				lastX = cityXs[city];
+				lastY = cityYs[city];
+			}
+			out.flush();
+		} catch (IOException e) {
+			// a byte array stream does not throw
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * This method decodes a tile written by encode()
+	 * @param data is the bytes of the tile
+	 * @return the tile
+	 * @throws IOException if the bytes are not a tile of this version
+	 */
+	public static VectorTile decode(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Unknown vector tile version " + version);
+		}
+		VectorTile tile = new VectorTile();
+		int[] xs = new int[INITIAL_CAPACITY];
+		int[] ys = new int[INITIAL_CAPACITY];
+		int x = 0;
+		int y = 0;
+		int countries = readVarint(in);
+		for (int country = 0; country < countries; country++) {
+			tile.addCountry(in.readUTF());
+			int rings = readVarint(in);
+			for (int ring = 0; ring < rings; ring++) {
+				int vertices = readVarint(in);
+				if (vertices > xs.length) {
+					xs = new int[Math.max(vertices, xs.length * 2)];
+					ys = new int[xs.length];
+				}
+				for (int vertex = 0; vertex < vertices; vertex++) {
+					x += unzigzag(readVarint(in));
+					y += unzigzag(readVarint(in));
+					xs[vertex] = x;
+					ys[vertex] = y;
+				}
+				tile.addRing(xs, ys, vertices);
+			}
+		}
+		int quakes = readVarint(in);
+		x = 0;
+		y = 0;
+		for (int quake = 0; quake < quakes; quake++) {
+			x += unzigzag(readVarint(in));
+			y += unzigzag(readVarint(in));
+			tile.addQuake(x, y, in.readByte());
+		}
+		int cities = readVarint(in);
+		x = 0;
+		y = 0;
+		for (int city = 0; city < cities; city++) {
+			x += unzigzag(readVarint(in));
+			y += unzigzag(readVarint(in));
+			tile.addCity(x, y);
+		}
+		return tile;
+	}
+
+	/*
+	 * Writes a non negative number in 7 bit groups, the high bit tells that more follow.
+	 */
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/*
+	 * Reads a number written by writeVarint.
+	 */
+	private static int readVarint(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Varint too long");
+	}
+
+	/*
+	 * Maps small negative and positive numbers to small non negative ones: 0, -1, 1, -2 to 0, 1, 2, 3.
+	 */
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
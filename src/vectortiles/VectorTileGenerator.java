@@ -0,0 +1,387 @@
+package vectortiles;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import de.fhpotsdam.unfolding.geo.Location;
+import markers.EarthQuakeMarker;
+import markers.EarthquakeStore;
+import parsing.DatasetSnapshot;
+import parsing.FlatFeatureCollection;
+import snapshot.SnapshotData;
+import spatial.PolygonSimplifier;
+import tiles.TileDiskCache;
+
+/**
+ * This class cuts the countries, earthquakes and cities into vector tiles for the zoom levels 0 to
+ * MAX_ZOOM and stores them in a tile folder, z/x/y like the map tiles.
+ * The country outlines of a zoom level are the ones PolygonSimplifier makes for the level above,
+ * as VectorTileLayer draws them twice as wide as map tiles, so neighbouring countries keep a common
+ * border. Every outline is clipped to the columns it crosses first and each
+ * column to its rows after, so a large country is not clipped against every tile in full.
+ * Tiles with nothing in them are not written. The tiles of an earlier run are deleted first, and
+ * a key file with the hashes of the input files is written after the last tile, so a map can tell
+ * whether the tiles are complete and made from its own data.
+ * Usage: VectorTileGenerator [data folder] [tile folder] [max zoom] [earthquake feed]
+ * @author Yuming
+ * 10/17/2026
+ */
+public class VectorTileGenerator {
+
+	public static final int MAX_ZOOM = 8;
+	public static final String DEFAULT_TILE_FOLDER = "cache/vector-tiles";
+	// Country outlines reach this far over the tile border, more than the width of the outline.
+	// In tile units, a tile drawn 512 pixels wide has 8 units per pixel.
+	public static final int POLYGON_BUFFER = 64;
+	// Quakes and cities this close to the tile are in it as well, so half a marker is not cut off
+	public static final int POINT_BUFFER = 256;
+	// The key file of a tile folder and its entries
+	public static final String KEY_FILE = "tiles.key";
+	public static final String COUNTRY_KEY = "countries";
+	public static final String CITY_KEY = "cities";
+	public static final String EARTHQUAKE_KEY = "earthquakes";
+	public static final String MAX_ZOOM_KEY = "maxZoom";
+
+	private final SnapshotData data;
+	// The outer rings of the country parts in order, every ring for every zoom level up to maxZoom + 1
+	private final List<List<List<Location>>> zoomRings;
+
+	/**
+	 * Constructor of the generator, which simplifies the country outlines for every zoom level
+	 * @param data is the countries, earthquakes and cities
+	 * @param maxZoom is the last zoom level to generate
+	 */
+	public VectorTileGenerator(SnapshotData data, int maxZoom) {
+		this.data = data;
+		FlatFeatureCollection countries = data.getCountries();
+		List<List<Location>> rings = new ArrayList<List<Location>>();
+		for (int part = 0; part < countries.getPartCount(); part++) {
+			int ring = countries.getFirstRing(part);
+			List<Location> locations = new ArrayList<Location>();
+			for (int c = countries.getFirstCoordinate(ring); c < countries.getCoordinateEnd(ring); c++) {
+				locations.add(new Location(countries.getLatitude(c), countries.getLongitude(c)));
+			}
+			rings.add(locations);
+		}
+		zoomRings = PolygonSimplifier.simplify(rings, maxZoom + 1);
+	}
+
+	/**
+	 * This method makes the tiles of one zoom level
+	 * @param zoom is the zoom level
+	 * @return the tiles which are not empty, by TileDiskCache.key()
+	 */
+	public Map<Long, VectorTile> generate(int zoom) {
+		HashMap<Long, PendingTile> tiles = new HashMap<Long, PendingTile>();
+		addCountries(tiles, zoom);
+		addQuakes(tiles, zoom);
+		addCities(tiles, zoom);
+		HashMap<Long, VectorTile> result = new HashMap<Long, VectorTile>();
+		for (Map.Entry<Long, PendingTile> entry : tiles.entrySet()) {
+			if (!entry.getValue().tile.isEmpty()) {
+				result.put(entry.getKey(), entry.getValue().tile);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * This method computes the key of an input file of the tiles
+	 * @param data is the content of the file
+	 * @return the SHA-256 hash of the content, in hex
+	 */
+	public static String contentKey(byte[] data) {
+		StringBuilder key = new StringBuilder();
+		for (byte b : DatasetSnapshot.contentKey(data)) {
+			key.append(String.format("%02x", b));
+		}
+		return key.toString();
+	}
+
+	/*
+	 * Clips the outline of every country part of the zoom level to the tiles it crosses.
+	 */
+	private void addCountries(HashMap<Long, PendingTile> tiles, int zoom) {
+		FlatFeatureCollection countries = data.getCountries();
+		int n = 1 << zoom;
+		double buffer = (double) POLYGON_BUFFER / VectorTile.EXTENT;
+		int[] xs = new int[64];
+		int[] ys = new int[64];
+		for (int feature = 0; feature < countries.getFeatureCount(); feature++) {
+			String id = countries.getId(feature) == null ? "" : countries.getId(feature);
+			for (int part = countries.getFirstPart(feature); part < countries.getPartEnd(feature); part++) {
+				List<Location> ring = zoomRings.get(part).get(zoom + 1);
+				double[][] outline = new double[2][ring.size()];
+				for (int i = 0; i < ring.size(); i++) {
+					outline[0][i] = PolygonSimplifier.mercatorX(ring.get(i).getLon()) * n;
+					outline[1][i] = PolygonSimplifier.mercatorY(ring.get(i).getLat()) * n;
+				}
+				int firstColumn = Math.max(0, (int) Math.floor(min(outline[0]) - buffer));
+				int lastColumn = Math.min(n - 1, (int) Math.floor(max(outline[0]) + buffer));
+				for (int column = firstColumn; column <= lastColumn; column++) {
+					double[][] strip = clip(outline, 0, column - buffer, column + 1 + buffer);
+					if (strip[0].length < 3) {
+						continue;
+					}
+					int firstRow = Math.max(0, (int) Math.floor(min(strip[1]) - buffer));
+					int lastRow = Math.min(n - 1, (int) Math.floor(max(strip[1]) + buffer));
+					for (int row = firstRow; row <= lastRow; row++) {
+						double[][] piece = clip(strip, 1, row - buffer, row + 1 + buffer);
+						if (piece[0].length > xs.length) {
+							xs = new int[piece[0].length];
+							ys = new int[piece[0].length];
+						}
+						// quantize, points on the same unit as the one before are left out
+						int count = 0;
+						for (int i = 0; i < piece[0].length; i++) {
+							int x = (int) Math.round((piece[0][i] - column) * VectorTile.EXTENT);
+							int y = (int) Math.round((piece[1][i] - row) * VectorTile.EXTENT);
+							if (count == 0 || x != xs[count - 1] || y != ys[count - 1]) {
+								xs[count] = x;
+								ys[count] = y;
+								count++;
+							}
+						}
+						while (count > 1 && xs[count - 1] == xs[0] && ys[count - 1] == ys[0]) {
+							count--;
+						}
+						if (count < 3) {
+							continue;
+						}
+						PendingTile tile = pendingTile(tiles, zoom, column, row);
+						if (tile.lastFeature != feature) {
+							tile.tile.addCountry(id);
+							tile.lastFeature = feature;
+						}
+						tile.tile.addRing(xs, ys, count);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Puts every earthquake into the tiles it is in or near, with its style group.
+	 */
+	private void addQuakes(HashMap<Long, PendingTile> tiles, int zoom) {
+		EarthquakeStore quakes = data.getEarthquakes();
+		for (int row = 0; row < quakes.size(); row++) {
+			int style = EarthQuakeMarker.styleGroup(quakes.isOnLand(row) ? EarthQuakeMarker.SHAPE_ELLIPSE : EarthQuakeMarker.SHAPE_SQUARE,
+					EarthQuakeMarker.depthClass(quakes.getDepth(row)), EarthQuakeMarker.sizeClass(quakes.getMagnitude(row)),
+					quakes.isPastHour(row));
+			for (PendingPoint point : pointTiles(data.getEarthquakeX(row), data.getEarthquakeY(row), zoom)) {
+				pendingTile(tiles, zoom, point.column, point.row).tile.addQuake(point.x, point.y, style);
+			}
+		}
+	}
+
+	/*
+	 * Puts every city into the tiles it is in or near.
+	 */
+	private void addCities(HashMap<Long, PendingTile> tiles, int zoom) {
+		for (int city = 0; city < data.getCityCount(); city++) {
+			for (PendingPoint point : pointTiles(data.getCityX(city), data.getCityY(city), zoom)) {
+				pendingTile(tiles, zoom, point.column, point.row).tile.addCity(point.x, point.y);
+			}
+		}
+	}
+
+	/*
+	 * The tiles a point is in or within POINT_BUFFER of, with its position in each of them. Left and
+	 * right the world repeats, so a point at the date line is also in the tiles on the other side.
+	 */
+	private static List<PendingPoint> pointTiles(double mercatorX, double mercatorY, int zoom) {
+		int n = 1 << zoom;
+		double buffer = (double) POINT_BUFFER / VectorTile.EXTENT;
+		double x = mercatorX * n;
+		double y = mercatorY * n;
+		List<PendingPoint> points = new ArrayList<PendingPoint>(1);
+		for (int column = (int) Math.floor(x - buffer); column <= (int) Math.floor(x + buffer); column++) {
+			for (int row = Math.max(0, (int) Math.floor(y - buffer)); row <= Math.min(n - 1, (int) Math.floor(y + buffer)); row++) {
+				points.add(new PendingPoint(((column % n) + n) % n, row, (int) Math.round((x - column) * VectorTile.EXTENT),
+						(int) Math.round((y - row) * VectorTile.EXTENT)));
+			}
+		}
+		return points;
+	}
+
+	private static PendingTile pendingTile(HashMap<Long, PendingTile> tiles, int zoom, int column, int row) {
+		long key = TileDiskCache.key(zoom, column, row);
+		PendingTile tile = tiles.get(key);
+		if (tile == null) {
+			tile = new PendingTile();
+			tiles.put(key, tile);
+		}
+		return tile;
+	}
+
+	/*
+	 * Clips a closed polygon to min <= coordinate <= max along one axis, 0 for x and 1 for y,
+	 * with Sutherland-Hodgman: every edge which crosses a border is cut where it crosses.
+	 */
+	private static double[][] clip(double[][] polygon, int axis, double min, double max) {
+		return clipEdge(clipEdge(polygon, axis, min, false), axis, max, true);
+	}
+
+	private static double[][] clipEdge(double[][] polygon, int axis, double bound, boolean keepBelow) {
+		int size = polygon[0].length;
+		double[] outXs = new double[2 * size];
+		double[] outYs = new double[2 * size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			int previous = (i + size - 1) % size;
+			double a = polygon[axis][previous];
+			double b = polygon[axis][i];
+			boolean aInside = keepBelow ? a <= bound : a >= bound;
+			boolean bInside = keepBelow ? b <= bound : b >= bound;
+			if (aInside != bInside) {
+				double t = (bound - a) / (b - a);
+				outXs[count] = polygon[0][previous] + t * (polygon[0][i] - polygon[0][previous]);
+				outYs[count] = polygon[1][previous] + t * (polygon[1][i] - polygon[1][previous]);
+				count++;
+			}
+			if (bInside) {
+				outXs[count] = polygon[0][i];
+				outYs[count] = polygon[1][i];
+				count++;
+			}
+		}
+		return new double[][] { Arrays.copyOf(outXs, count), Arrays.copyOf(outYs, count) };
+	}
+
+	private static double min(double[] values) {
+		double min = Double.MAX_VALUE;
+		for (double value : values) {
+			min = Math.min(min, value);
+		}
+		return min;
+	}
+
+	private static double max(double[] values) {
+		double max = -Double.MAX_VALUE;
+		for (double value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	/**
+	 * This method generates the vector tiles from the command line and prints the time and size of
+	 * every zoom level.
+	 * @param args are the data folder, the tile folder, the last zoom level and the earthquake feed,
+	 *        all optional
+	 */
+	public static void main(String[] args) throws IOException {
+		File dataFolder = new File(args.length > 0 ? args[0] : "data");
+		File tileFolder = new File(args.length > 1 ? args[1] : DEFAULT_TILE_FOLDER);
+		int maxZoom = args.length > 2 ? Integer.parseInt(args[2]) : MAX_ZOOM;
+		String earthquakeFeed = args.length > 3 ? args[3] : SnapshotData.EARTHQUAKE_FILE;
+
+		long start = System.nanoTime();
+		SnapshotData data = SnapshotData.load(dataFolder, earthquakeFeed);
+		long loaded = System.nanoTime();
+		VectorTileGenerator generator = new VectorTileGenerator(data, maxZoom);
+		long simplified = System.nanoTime();
+		clearTileFolder(tileFolder);
+		TileDiskCache cache = new TileDiskCache(tileFolder, Long.MAX_VALUE);
+		long tiles = 0;
+		long bytes = 0;
+		for (int zoom = 0; zoom <= maxZoom; zoom++) {
+			long zoomStart = System.nanoTime();
+			Map<Long, VectorTile> zoomTiles = generator.generate(zoom);
+			long zoomBytes = 0;
+			for (Map.Entry<Long, VectorTile> entry : zoomTiles.entrySet()) {
+				long key = entry.getKey();
+				byte[] encoded = entry.getValue().encode();
+				cache.put(zoom, TileDiskCache.keyColumn(key), TileDiskCache.keyRow(key), encoded);
+				zoomBytes += encoded.length;
+			}
+			tiles += zoomTiles.size();
+			bytes += zoomBytes;
+			System.out.println(String.format("Zoom %d: %d tiles, %d KB in %.0f ms", zoom, zoomTiles.size(),
+					zoomBytes >> 10, (System.nanoTime() - zoomStart) / 1e6));
+		}
+		Properties key = new Properties();
+		key.setProperty(COUNTRY_KEY, contentKey(Files.readAllBytes(new File(dataFolder, SnapshotData.COUNTRY_FILE).toPath())));
+		key.setProperty(CITY_KEY, contentKey(Files.readAllBytes(new File(dataFolder, SnapshotData.CITY_FILE).toPath())));
+		key.setProperty(EARTHQUAKE_KEY, earthquakeFeed);
+		key.setProperty(MAX_ZOOM_KEY, String.valueOf(maxZoom));
+		try (OutputStream out = new FileOutputStream(new File(tileFolder, KEY_FILE))) {
+			key.store(out, "Vector tiles");
+		}
+		long end = System.nanoTime();
+		System.out.println(String.format("Loaded the data in %.2f s, simplified the outlines in %.2f s", (loaded - start) / 1e9,
+				(simplified - loaded) / 1e9));
+		System.out.println(String.format("Wrote %d tiles, %d KB to %s in %.2f s", tiles, bytes >> 10, tileFolder,
+				(end - simplified) / 1e9));
+	}
+
+	/*
+	 * Deletes the key file and the zoom level folders of an earlier run, so no tile of other data or of
+	 * a zoom level not made any more is left. Other files in the folder are kept.
+	 */
+	private static void clearTileFolder(File folder) throws IOException {
+		File key = new File(folder, KEY_FILE);
+		if (key.exists() && !key.delete()) {
+			throw new IOException("Could not delete " + key);
+		}
+		File[] zooms = folder.listFiles();
+		if (zooms == null) {
+			return;
+		}
+		for (File zoom : zooms) {
+			if (zoom.isDirectory() && zoom.getName().matches("\\d+")) {
+				delete(zoom);
+			}
+		}
+	}
+
+	/*
+	 * Deletes a file or a folder with everything in it.
+	 */
+	private static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		if (!file.delete()) {
+			throw new IOException("Could not delete " + file);
+		}
+	}
+
+	/*
+	 * A tile being filled, and the country its last ring belongs to.
+	 */
+	private static class PendingTile {
+		private final VectorTile tile = new VectorTile();
+		private int lastFeature = -1;
+	}
+
+	/*
+	 * A point in one of the tiles it is in.
+	 */
+	private static class PendingPoint {
+		private final int column;
+		private final int row;
+		private final int x;
+		private final int y;
+
+		private PendingPoint(int column, int row, int x, int y) {
+			this.column = column;
+			this.row = row;
+			this.x = x;
+			this.y = y;
+		}
+	}
+}
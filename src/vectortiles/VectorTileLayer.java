@@ -0,0 +1,286 @@
+package vectortiles;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import de.fhpotsdam.unfolding.UnfoldingMap;
+import de.fhpotsdam.unfolding.geo.Location;
+import de.fhpotsdam.unfolding.utils.ScreenPosition;
+import markers.CityMarker;
+import markers.EarthQuakeMarker;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import tiles.TileDiskCache;
+
+/**
+ * This class draws the countries, earthquakes and cities of a map from the vector tiles made by
+ * VectorTileGenerator, instead of projecting every marker and every vertex of every outline each frame.
+ * Only the tiles in the view are drawn, each one scaled from its tile units to the screen and clipped to
+ * its square, so the parts reaching into the neighbour tiles do not show twice. A map at zoom level z
+ * draws the tiles of level z - 1, and above the last generated zoom level its tiles are scaled up.
+ * Decoded tiles are kept in memory, the tiles used longest ago are dropped first.
+ * open() only uses a tile folder whose key file says it was made from the countries the map shows.
+ * @author Yuming
+ * 10/17/2026
+ */
+public class VectorTileLayer {
+
+	// Tiles are drawn this wide at their own zoom level, so from 362 to 724 pixels. Fewer and larger
+	// tiles than the 256 pixels of the map tiles cut the outlines into fewer pieces.
+	public static final int DISPLAY_TILE_SIZE = 512;
+	// Two points of the map whose screen positions give the scale and position of the world
+	private static final Location WORLD_CENTER = new Location(0, 0);
+	private static final Location WORLD_EAST = new Location(0, 90);
+	// A tile which is not stored, there is nothing to draw there
+	private static final VectorTile EMPTY = new VectorTile();
+
+	private final TileDiskCache source;
+	private final int maxZoom;
+	private final LinkedHashMap<Long, VectorTile> tiles;
+
+	private boolean drawCountries = true;
+	private boolean drawQuakes = true;
+	private boolean drawCities = true;
+	// Index of every country id in countryColors
+	private final HashMap<String, Integer> countryIndex = new HashMap<String, Integer>();
+	private int[] countryColors = new int[0];
+	// Land and border colors of the earthquake snapshots, as ARGB
+	private int countryFill = 0xFFF2EFE9;
+	private int countryStroke = 0xFFB4AAA0;
+
+	/**
+	 * Constructor of the layer
+	 * @param source is the folder of the generated tiles
+	 * @param maxZoom is the last generated zoom level
+	 * @param memoryTiles is the number of decoded tiles kept in memory
+	 */
+	public VectorTileLayer(TileDiskCache source, int maxZoom, final int memoryTiles) {
+		this.source = source;
+		this.maxZoom = maxZoom;
+		this.tiles = new LinkedHashMap<Long, VectorTile>(memoryTiles * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, VectorTile> eldest) {
+				return size() > memoryTiles;
+			}
+		};
+	}
+
+	/**
+	 * This method opens the tiles of a folder made by VectorTileGenerator, if they were made from the
+	 * same country file. A folder of other countries, or one the generator did not finish, is not used.
+	 * @param folder is the tile folder
+	 * @param countryData is the content of the country file the map shows
+	 * @param memoryTiles is the number of decoded tiles kept in memory
+	 * @return the layer, or null if the folder has no tiles of these countries
+	 */
+	public static VectorTileLayer open(File folder, byte[] countryData, int memoryTiles) {
+		File keyFile = new File(folder, VectorTileGenerator.KEY_FILE);
+		if (countryData == null || !keyFile.isFile()) {
+			return null;
+		}
+		Properties key = new Properties();
+		try (InputStream in = new FileInputStream(keyFile)) {
+			key.load(in);
+		} catch (IOException e) {
+			System.err.println("Could not read " + keyFile + ": " + e.getMessage());
+			return null;
+		}
+		if (!VectorTileGenerator.contentKey(countryData).equals(key.getProperty(VectorTileGenerator.COUNTRY_KEY))) {
+			return null;
+		}
+		int maxZoom;
+		try {
+			maxZoom = Integer.parseInt(key.getProperty(VectorTileGenerator.MAX_ZOOM_KEY));
+		} catch (NumberFormatException e) {
+			System.err.println("No zoom levels in " + keyFile);
+			return null;
+		}
+		return new VectorTileLayer(new TileDiskCache(folder, Long.MAX_VALUE), maxZoom, memoryTiles);
+	}
+
+	/**
+	 * This method chooses which layers are drawn
+	 * @param countries is true to draw the countries
+	 * @param quakes is true to draw the earthquakes
+	 * @param cities is true to draw the cities
+	 */
+	public void setLayers(boolean countries, boolean quakes, boolean cities) {
+		drawCountries = countries;
+		drawQuakes = quakes;
+		drawCities = cities;
+	}
+
+	/**
+	 * This method sets the colors of the countries
+	 * @param fill is the color of a country without a color of its own
+	 * @param stroke is the color of the outlines
+	 */
+	public void setCountryStyle(int fill, int stroke) {
+		countryFill = fill;
+		countryStroke = stroke;
+	}
+
+	/**
+	 * This method tells the layer the order of the colors given to setCountryColors()
+	 * @param ids are the country ids, e.g. of the country markers
+	 */
+	public void setCountryIds(List<String> ids) {
+		countryIndex.clear();
+		for (int i = 0; i < ids.size(); i++) {
+			countryIndex.put(ids.get(i), i);
+		}
+	}
+
+	/**
+	 * This method colors every country on its own, e.g. by its life expectancy
+	 * @param colors are the colors in the order of setCountryIds(), the array is kept, not copied
+	 */
+	public void setCountryColors(int[] colors) {
+		countryColors = colors;
+	}
+
+	/**
+	 * This method draws the tiles in the view of a map, after the map itself was drawn
+	 * @param pg is the graphics the map is drawn on
+	 * @param map is the map
+	 */
+	public void draw(PGraphics pg, UnfoldingMap map) {
+		ScreenPosition center = map.getScreenPosition(WORLD_CENTER);
+		ScreenPosition east = map.getScreenPosition(WORLD_EAST);
+		// longitude 90 is a quarter of the world right of the center
+		double world = (east.x - center.x) * 4;
+		float left = (float) map.mapDisplay.offsetX;
+		float top = (float) map.mapDisplay.offsetY;
+		draw(pg, center.x - world / 2, center.y - world / 2, world, left, top, left + map.getWidth(), top + map.getHeight());
+	}
+
+	/**
+	 * This method draws the tiles in a part of the screen
+	 * @param pg is the graphics to draw on
+	 * @param originX is the screen x of the left border of the world
+	 * @param originY is the screen y of the top border of the world
+	 * @param world is the width of the world in pixels
+	 * @param left is the left border of the part of the screen to draw
+	 * @param top is the top border
+	 * @param right is the right border
+	 * @param bottom is the bottom border
+	 */
+	public void draw(PGraphics pg, double originX, double originY, double world, float left, float top, float right,
+			float bottom) {
+		int zoom = (int) Math.round(Math.log(world / DISPLAY_TILE_SIZE) / Math.log(2));
+		zoom = Math.max(0, Math.min(maxZoom, zoom));
+		int n = 1 << zoom;
+		double tileSize = world / n;
+		int firstColumn = (int) Math.floor((left - originX) / tileSize);
+		int lastColumn = (int) Math.floor((right - originX) / tileSize);
+		int firstRow = Math.max(0, (int) Math.floor((top - originY) / tileSize));
+		int lastRow = Math.min(n - 1, (int) Math.floor((bottom - originY) / tileSize));
+		float scale = (float) (tileSize / VectorTile.EXTENT);
+
+		pg.pushStyle();
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			for (int row = firstRow; row <= lastRow; row++) {
+				// left and right of the world are its copies
+				VectorTile tile = getTile(zoom, ((column % n) + n) % n, row);
+				if (tile == EMPTY) {
+					continue;
+				}
+				float x = (float) (originX + column * tileSize);
+				float y = (float) (originY + row * tileSize);
+				float clipLeft = Math.max(left, x);
+				float clipTop = Math.max(top, y);
+				float clipRight = Math.min(right, (float) (x + tileSize));
+				float clipBottom = Math.min(bottom, (float) (y + tileSize));
+				pg.clip(clipLeft, clipTop, clipRight - clipLeft, clipBottom - clipTop);
+				if (drawCountries) {
+					drawCountries(pg, tile, x, y, scale);
+				}
+				if (drawCities) {
+					drawCities(pg, tile, x, y, scale);
+				}
+				if (drawQuakes) {
+					drawQuakes(pg, tile, x, y, scale);
+				}
+			}
+		}
+		pg.noClip();
+		pg.popStyle();
+	}
+
+	// Return the number of decoded tiles in memory
+	public int getMemoryTiles() {
+		return tiles.size();
+	}
+
+	/*
+	 * Fills and outlines every ring of every country of a tile.
+	 */
+	private void drawCountries(PGraphics pg, VectorTile tile, float x, float y, float scale) {
+		pg.stroke(countryStroke);
+		pg.strokeWeight(1);
+		for (int country = 0; country < tile.getCountryCount(); country++) {
+			Integer index = countryIndex.get(tile.getCountryId(country));
+			pg.fill(index != null && index < countryColors.length ? countryColors[index] : countryFill);
+			for (int ring = tile.getFirstRing(country); ring < tile.getRingEnd(country); ring++) {
+				pg.beginShape();
+				for (int vertex = tile.getFirstVertex(ring); vertex < tile.getVertexEnd(ring); vertex++) {
+					pg.vertex(x + tile.getVertexX(vertex) * scale, y + tile.getVertexY(vertex) * scale);
+				}
+				pg.endShape(PConstants.CLOSE);
+			}
+		}
+	}
+
+	/*
+	 * Draws the cities as the city marker does.
+	 */
+	private void drawCities(PGraphics pg, VectorTile tile, float x, float y, float scale) {
+		pg.stroke(0);
+		pg.fill(CityMarker.CITY_COLOR);
+		for (int city = 0; city < tile.getCityCount(); city++) {
+			CityMarker.drawTriangle(pg, x + tile.getCityX(city) * scale, y + tile.getCityY(city) * scale, 1);
+		}
+	}
+
+	/*
+	 * Draws the earthquakes as the land and ocean quake markers do, from their style group.
+	 */
+	private void drawQuakes(PGraphics pg, VectorTile tile, float x, float y, float scale) {
+		pg.stroke(0);
+		for (int quake = 0; quake < tile.getQuakeCount(); quake++) {
+			EarthQuakeMarker.drawStyleGroup(pg, tile.getQuakeStyle(quake), x + tile.getQuakeX(quake) * scale,
+					y + tile.getQuakeY(quake) * scale);
+		}
+	}
+
+	/*
+	 * The decoded tile from memory, or from the tile folder. A tile which is not stored or can not be
+	 * decoded is EMPTY.
+	 */
+	private VectorTile getTile(int zoom, int column, int row) {
+		long key = TileDiskCache.key(zoom, column, row);
+		VectorTile tile = tiles.get(key);
+		if (tile == null) {
+			tile = EMPTY;
+			byte[] data = source.contains(zoom, column, row) ? source.get(zoom, column, row) : null;
+			if (data != null) {
+				try {
+					tile = VectorTile.decode(data);
+				} catch (IOException e) {
+					System.err.println("Could not read vector tile " + zoom + "/" + column + "/" + row + ": " + e.getMessage());
+				}
+			}
+			tiles.put(key, tile);
+		}
+		return tile;
+	}
+}